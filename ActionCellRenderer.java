@@ -4,55 +4,64 @@ import javax.swing.*;
 import javax.swing.table.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.function.IntConsumer;
 
 public class ActionCellRenderer extends AbstractCellEditor implements TableCellRenderer, TableCellEditor {
     private final Main main;
     private final JTable table;
-    private final Map<Integer, JPanel> panelCache = new HashMap<>();
+    private final JPanel panel;
+    private int editingRow = -1;
 
     public ActionCellRenderer(Main main, JTable table) {
         this.main = main;
         this.table = table;
+        this.panel = createPanel(); // One panel for every row; the row is resolved when a button is pressed
     }
 
-    private JPanel createPanel(int row) {
+    private JPanel createPanel() {
         JPanel panel = new JPanel(new FlowLayout(FlowLayout.CENTER, 5, 0));
         panel.setBorder(BorderFactory.createEmptyBorder(2, 2, 2, 2));
 
-        panel.add(createActionButton("Start", row, e -> main.startInstance(getInstanceIndex(row))));
-        panel.add(createActionButton("Stop", row, e -> main.stopInstance(getInstanceIndex(row))));
-        panel.add(createActionButton("Modules", row, e -> {
-            MemuInstance inst = main.getInstanceByIndex(getInstanceIndex(row));
+        panel.add(createActionButton("Start", index -> main.startInstance(index)));
+        panel.add(createActionButton("Stop", index -> main.stopInstance(index)));
+        panel.add(createActionButton("Modules", index -> {
+            MemuInstance inst = main.getInstanceByIndex(index);
             if (inst != null) main.showModulesDialog(inst);
         }));
 
         return panel;
     }
 
-    private JButton createActionButton(String text, int row, ActionListener action) {
+    private JButton createActionButton(String text, IntConsumer action) {
         JButton btn = new JButton(text);
         btn.setFont(new Font("Segoe UI", Font.PLAIN, 12));
         btn.setMargin(new Insets(2, 6, 2, 6));
         btn.setPreferredSize(new Dimension(75, 28));
-        btn.addActionListener(action);
+        btn.addActionListener(e -> {
+            int index = getEditingInstanceIndex();
+            fireEditingStopped(); // Rows may be reshuffled by the action; don't keep editing a stale row
+            if (index >= 0) action.accept(index);
+        });
         return btn;
     }
 
-    private int getInstanceIndex(int row) {
-        return (int) table.getModel().getValueAt(table.convertRowIndexToModel(row), 0);
+    private int getEditingInstanceIndex() {
+        if (editingRow < 0 || editingRow >= table.getRowCount()) {
+            return -1;
+        }
+        return (int) table.getModel().getValueAt(table.convertRowIndexToModel(editingRow), InstanceTableModel.COL_INDEX);
     }
 
     @Override public Component getTableCellRendererComponent(JTable table, Object value,
             boolean isSelected, boolean hasFocus, int row, int column) {
-        return panelCache.computeIfAbsent(row, this::createPanel);
+        return panel;
     }
 
     @Override public Component getTableCellEditorComponent(JTable table, Object value,
             boolean isSelected, int row, int column) {
-        return panelCache.computeIfAbsent(row, this::createPanel);
+        editingRow = row;
+        return panel;
     }
 
     @Override public Object getCellEditorValue() { return null; }
-}
\ No newline at end of file
+}
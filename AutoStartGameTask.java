@@ -1,197 +1,134 @@
 package newgame;
 
 import java.awt.Point;
-import java.nio.file.Paths;
-import java.io.File;
 
 public class AutoStartGameTask {
+    private static final Log LOG = Log.get(AutoStartGameTask.class);
+
     private final MemuInstance instance;
     private final int attempts;
     private final Runnable onComplete;
+    private final Log log;
     private volatile boolean shouldStop = false;
 
     public AutoStartGameTask(MemuInstance instance, int attempts, Runnable onComplete) {
         this.instance = instance;
         this.attempts = attempts;
         this.onComplete = onComplete;
+        this.log = LOG.at(instance != null ? instance.index : Log.NO_INSTANCE);
     }
 
+    @SuppressWarnings("try")
     public void execute() {
         if (instance == null) {
-            System.err.println("Cannot start game loop: instance is null");
+            log.error("Cannot start game loop: instance is null");
             return;
         }
         
-        if (instance.isAutoStartGameRunning()) {
-            System.out.println("Auto start game already running for instance " + instance.index);
+        if (!instance.tryStartAutoStartGame()) {
+            log.info("Auto start game already running");
             return;
         }
         
-        instance.setAutoStartGameRunning(true);
         instance.setState("Starting game...");
         
         Thread gameThread = new Thread(() -> {
             try {
-                // Use the EXACT SAME path that works perfectly for resolution checks
-                String screenPath = Paths.get(BotUtils.SCREENSHOTS_DIR, "resolution_check_" + instance.index + ".png").toString();
-                
-                BotUtils.createDirectoryIfNeeded(BotUtils.SCREENSHOTS_DIR);
+                FramePipeline pipeline = FramePipeline.forInstance(instance.index);
                 
                 for (int i = 0; i < attempts && !shouldStop && !Thread.currentThread().isInterrupted(); i++) {
-                    System.out.println("Game start attempt " + (i+1) + "/" + attempts + " for instance " + instance.index);
-                    
-                    // Try to get a good screenshot - use same method that works for resolution check
-                    boolean screenshotSuccess = false;
-                    for (int retry = 0; retry < 5; retry++) { // Increased retries
-                        System.out.println("Screenshot attempt " + (retry + 1) + "/5 for game start...");
-                        System.out.println("Using working screenshot path: " + screenPath);
+                    log.info("Game start attempt {}/{}", i + 1, attempts);
+                    try (Trace.Span attempt = Trace.begin(instance.index, "gameStartAttempt", i + 1);
+                         FramePipeline.Frame frame = screenshot(pipeline)) {
+                        if (frame == null) {
+                            instance.setState("[ERROR] Screenshot failed after 5 retries (" + (i+1) + "/" + attempts + ")");
+                            log.error("All screenshot attempts failed, skipping this game start attempt");
+                            if (!BotUtils.delay(5000)) break; // Wait longer before next attempt
+                            continue;
+                        }
+                        // Truncated captures were rejected by the pipeline; the matches below decode the frame once
+                        String screenPath = frame.path;
                         
-                        // Delete existing file to get fresh screenshot
-                        File existingFile = new File(screenPath);
-                        if (existingFile.exists()) {
-                            existingFile.delete();
-                            System.out.println("Deleted existing resolution_check file");
-                            try {
-                                Thread.sleep(500); // Give file system time
-                            } catch (InterruptedException e) {
-                                Thread.currentThread().interrupt();
-                                break;
-                            }
+                        // Presence only: a reduced-resolution match is enough
+                        if (BotUtils.isTemplatePresent(screenPath, "game_icon.png", instance.index)) {
+                            instance.setState("Game already running");
+                            StateJournal.recordGame(instance.index, true);
+                            log.info("Game already detected running");
+                            break;
                         }
                         
-                        if (BotUtils.takeMenuScreenshotLegacy(instance.index, screenPath)) {
-                            File screenFile = new File(screenPath);
-                            if (screenFile.exists() && screenFile.length() > 15000) {
-                                screenshotSuccess = true;
-                                System.out.println("✅ Screenshot successful: " + screenFile.length() + " bytes (using resolution_check path)");
-                                break;
-                            } else {
-                                System.err.println("❌ Screenshot too small (" + 
-                                    (screenFile.exists() ? screenFile.length() + " bytes" : "doesn't exist") + 
-                                    "), retrying...");
-                                
-                                // Wait longer between retries
-                                BotUtils.delay(2000);
+                        boolean closedPopup = false;
+                        for (String closeBtn : new String[]{"close_x.png", "close_x2.png", "close_x3.png"}) {
+                            Point closeBtnLoc = BotUtils.findTemplate(screenPath, closeBtn, instance.index);
+                            if (closeBtnLoc != null) {
+                                // The post-popup frame is captured speculatively and picked up by the next attempt
+                                if (pipeline.tap(closeBtnLoc, 2000)) {
+                                    instance.setState("Closed popup (" + (i+1) + "/" + attempts + ")");
+                                    log.info("Closed popup");
+                                    closedPopup = true;
+                                    break;
+                                }
                             }
-                        } else {
-                            System.err.println("❌ Screenshot command failed, retrying...");
-                            BotUtils.delay(2000);
                         }
-                    }
-                    
-                    if (!screenshotSuccess) {
-                        instance.setState("[ERROR] Screenshot failed after 5 retries (" + (i+1) + "/" + attempts + ")");
-                        System.err.println("All screenshot attempts failed, skipping this game start attempt");
-                        if (!BotUtils.delay(5000)) break; // Wait longer before next attempt
-                        continue;
-                    }
-                    
-                    // Verify screenshot can be loaded by OpenCV before proceeding
-                    if (BotUtils.isOpenCvLoaded()) {
-                        org.opencv.core.Mat testMat = org.opencv.imgcodecs.Imgcodecs.imread(screenPath);
-                        if (testMat.empty()) {
-                            System.err.println("❌ OpenCV cannot load screenshot, retrying...");
-                            testMat.release();
-                            if (!BotUtils.delay(2000)) break;
+                        
+                        if (closedPopup) {
                             continue;
-                        } else {
-                            System.out.println("✅ OpenCV validated screenshot: " + testMat.cols() + "x" + testMat.rows());
-                            testMat.release();
                         }
-                    }
-                    
-                    // Use the new method with retry capability
-                    Point gameIcon = BotUtils.findImageOnScreenGrayWithRetry(screenPath, "game_icon.png", 0.8, instance.index);
-                    if (gameIcon != null) {
-                        instance.setState("Game already running");
-                        System.out.println("Game already detected running for instance " + instance.index);
-                        break;
-                    }
-                    
-                    boolean closedPopup = false;
-                    for (String closeBtn : new String[]{"close_x.png", "close_x2.png", "close_x3.png"}) {
-                        Point closeBtnLoc = BotUtils.findImageOnScreenGrayWithRetry(screenPath, closeBtn, 0.8, instance.index);
-                        if (closeBtnLoc != null) {
-                            if (BotUtils.clickMenu(instance.index, closeBtnLoc)) {
-                                instance.setState("Closed popup (" + (i+1) + "/" + attempts + ")");
-                                System.out.println("Closed popup for instance " + instance.index);
-                                closedPopup = true;
-                                if (!BotUtils.delay(1000)) break;
-                                
-                                // Retake screenshot after closing popup with same robust logic
-                                for (int popupRetry = 0; popupRetry < 3; popupRetry++) {
-                                    if (BotUtils.takeMenuScreenshotLegacy(instance.index, screenPath)) {
-                                        File screenFile = new File(screenPath);
-                                        if (screenFile.exists() && screenFile.length() > 15000) {
-                                            System.out.println("✅ Post-popup screenshot: " + screenFile.length() + " bytes");
-                                            break;
-                                        }
-                                    }
-                                    BotUtils.delay(1000);
-                                }
-                                break;
+                        
+                        Point launcher = BotUtils.findTemplate(screenPath, "game_launcher.png", instance.index);
+                        if (launcher != null) {
+                            if (pipeline.tap(launcher, 5000)) {
+                                instance.setState("Launched game (" + (i+1) + "/" + attempts + ")");
+                                log.info("Clicked game launcher");
+                                continue;
+                            } else {
+                                instance.setState("[ERROR] Click failed (" + (i+1) + "/" + attempts + ")");
                             }
-                        }
-                    }
-                    
-                    if (closedPopup) {
-                        if (!BotUtils.delay(1000)) break;
-                        continue;
-                    }
-                    
-                    Point launcher = BotUtils.findImageOnScreenGrayWithRetry(screenPath, "game_launcher.png", 0.8, instance.index);
-                    if (launcher != null) {
-                        if (BotUtils.clickMenu(instance.index, launcher)) {
-                            instance.setState("Launched game (" + (i+1) + "/" + attempts + ")");
-                            System.out.println("Clicked game launcher for instance " + instance.index);
                         } else {
-                            instance.setState("[ERROR] Click failed (" + (i+1) + "/" + attempts + ")");
+                            instance.setState("[ERROR] Launcher not found (" + (i+1) + "/" + attempts + ")");
+                            log.info("Game launcher not found");
+                        }
+                        
+                        if (i < attempts - 1 && !BotUtils.delay(5000)) {
+                            break;
                         }
-                    } else {
-                        instance.setState("[ERROR] Launcher not found (" + (i+1) + "/" + attempts + ")");
-                        System.out.println("Game launcher not found for instance " + instance.index);
-                    }
-                    
-                    if (i < attempts - 1 && !BotUtils.delay(5000)) {
-                        break;
                     }
                 }
                 
                 if (!shouldStop && !Thread.currentThread().isInterrupted()) {
                     // Final verification with robust screenshot
-                    boolean finalScreenshotSuccess = false;
-                    for (int retry = 0; retry < 3; retry++) {
-                        if (BotUtils.takeMenuScreenshotLegacy(instance.index, screenPath)) {
-                            File screenFile = new File(screenPath);
-                            if (screenFile.exists() && screenFile.length() > 15000) {
-                                finalScreenshotSuccess = true;
-                                break;
-                            }
+                    FramePipeline.Frame finalFrame = null;
+                    for (int retry = 0; retry < 3 && finalFrame == null; retry++) {
+                        finalFrame = pipeline.current();
+                        if (finalFrame == null) {
+                            BotUtils.delay(1000);
                         }
-                        BotUtils.delay(1000);
                     }
                     
-                    if (finalScreenshotSuccess) {
-                        Point gameIcon = BotUtils.findImageOnScreenGrayWithRetry(screenPath, "game_icon.png", 0.8, instance.index);
-                        if (gameIcon != null) {
-                            instance.setState("Game running successfully");
-                            System.out.println("Game confirmed running for instance " + instance.index);
-                        } else {
-                            instance.setState("Game status uncertain");
+                    if (finalFrame != null) {
+                        try (FramePipeline.Frame verified = finalFrame) {
+                            if (BotUtils.isTemplatePresent(verified.path, "game_icon.png", instance.index)) {
+                                instance.setState("Game running successfully");
+                                StateJournal.recordGame(instance.index, true);
+                                log.info("Game confirmed running");
+                            } else {
+                                instance.setState("Game status uncertain");
+                                StateJournal.recordGame(instance.index, false);
+                            }
                         }
                     } else {
                         instance.setState("Final verification failed");
+                        StateJournal.recordGame(instance.index, false);
                     }
                 }
             } catch (Exception e) {
-                System.err.println("Error in auto start game loop: " + e.getMessage());
-                e.printStackTrace();
+                log.error("Error in auto start game loop", e);
                 instance.setState("[ERROR] " + e.getMessage());
             } finally {
-                instance.setAutoStartGameRunning(false);
-                String finalState = instance.isAutoGatherRunning() ? "Gathering resources" : "Idle";
-                instance.setState(finalState);
-                System.out.println("Auto start game loop completed for instance " + instance.index);
+                // Release the slot and settle the state in one consistent transition
+                instance.update(s -> s.withAutoStartGameRunning(false)
+                    .withState(s.autoGatherRunning ? "Gathering resources" : "Idle"));
+                log.info("Auto start game loop completed");
                 
                 if (onComplete != null) {
                     onComplete.run();
@@ -203,8 +140,24 @@ public class AutoStartGameTask {
         gameThread.start();
     }
 
+    // Try to get a good screenshot (the pipeline rejects truncated captures); null if every retry failed
+    private FramePipeline.Frame screenshot(FramePipeline pipeline) {
+        FramePipeline.Frame frame = null;
+        for (int retry = 0; retry < 5 && frame == null; retry++) {
+            log.debug("Screenshot attempt {}/5 for game start...", retry + 1);
+            frame = pipeline.current();
+            if (frame != null) {
+                log.debug("✅ Screenshot successful: {} bytes", frame.bytes);
+            } else {
+                log.warn("❌ Screenshot failed, retrying...");
+                if (!BotUtils.delay(2000)) break; // Wait longer between retries
+            }
+        }
+        return frame;
+    }
+
     public void stop() {
         shouldStop = true;
-        System.out.println("Stop requested for auto start game task on instance " + instance.index);
+        log.info("Stop requested for auto start game task");
     }
 }
\ No newline at end of file
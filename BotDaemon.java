@@ -0,0 +1,109 @@
+package newgame;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless entry point: runs the bot fleet without loading Swing/FlatLaf.
+ *
+ *   java -cp ... newgame.BotDaemon [--start-stopped]
+ *
+ * Loads settings.json, discovers instances through the status monitor and runs the enabled modules on
+ * every running instance, restarting them whenever an instance comes back up. With --start-stopped,
+ * stopped instances that have Auto Start Game enabled are booted too. Runs until the JVM is signalled.
+ * The Swing UI ({@link Main}) remains available as a separate, optional client.
+ */
+public class BotDaemon {
+    private static final Log log = Log.get(BotDaemon.class);
+    private static final long STATUS_POLL_MS = 10000;
+    private static final long START_TIMEOUT_MS = 120000;
+
+    private final boolean startStopped;
+    private final Map<Integer, MemuInstance> instances = new ConcurrentHashMap<>();
+    private final StatusMonitor monitor = new StatusMonitor(STATUS_POLL_MS);
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    public BotDaemon(boolean startStopped) {
+        this.startStopped = startStopped;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+        long startNanos = System.nanoTime();
+        new BotDaemon(Arrays.asList(args).contains("--start-stopped")).run(startNanos);
+    }
+
+    public void run(long startNanos) throws InterruptedException {
+        BotUtils.init();
+        SettingsStore.load();
+        Metrics.expose();
+
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "BotDaemon-shutdown"));
+        StateJournal.attach(monitor); // Before onStatusChanges, so modules see this boot's pid journaled
+        monitor.addListener(this::onStatusChanges);
+        monitor.start(); // The first poll reports every VM as new, which launches its modules
+
+        Runtime rt = Runtime.getRuntime();
+        log.info("=== Bot daemon ready in {}ms, heap used {}MB ===",
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+            (rt.totalMemory() - rt.freeMemory()) / (1024 * 1024));
+
+        stopped.await();
+    }
+
+    public void shutdown() {
+        log.info("=== Bot daemon shutting down ===");
+        monitor.stop();
+        ModuleRunner.stopAll();
+        stopped.countDown();
+    }
+
+    private void onStatusChanges(List<StatusMonitor.StatusChange> changes) {
+        for (StatusMonitor.StatusChange change : changes) {
+            int index = change.index;
+            if (change.isRemoved()) {
+                ModuleRunner.stopModules(index);
+                instances.remove(index);
+                continue;
+            }
+
+            MemuInstance inst = instances.computeIfAbsent(index,
+                i -> new MemuInstance(i, change.name, change.newStatus, ""));
+            inst.setStatus(change.newStatus);
+
+            if (!ModuleRunner.hasEnabledModules(index)) {
+                continue;
+            }
+
+            if ("Running".equals(change.newStatus)) {
+                if (change.isAdded()) {
+                    ModuleRunner.startModules(inst);      // Already up when we found it
+                } else {
+                    ModuleRunner.onInstanceStarted(inst); // Just booted
+                }
+            } else {
+                ModuleRunner.stopModules(index);
+                if (startStopped && change.isAdded() && SettingsStore.isEnabled(index, ModuleRunner.AUTO_START_GAME)) {
+                    bootInstance(index);
+                }
+            }
+        }
+    }
+
+    private void bootInstance(int index) {
+        log.at(index).info("Starting stopped instance");
+        StateJournal.recordGame(index, false);
+        CommandRunner.memucAsync(START_TIMEOUT_MS, "start", "-i", String.valueOf(index)).thenAccept(result -> {
+            InstanceInventory.invalidate();
+            if (result.ok()) {
+                monitor.pollNow(); // Seeing it as Running triggers onInstanceStarted
+            } else {
+                log.at(index).error("Failed to start instance: {}", result.describeFailure());
+            }
+        });
+    }
+}
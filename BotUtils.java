@@ -6,38 +6,51 @@ import org.opencv.imgproc.Imgproc;
 import java.awt.Point;
 import java.io.*;
 import java.nio.file.*;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class BotUtils {
     public static final String MEMUC_PATH = "C:\\Program Files\\Microvirt\\MEmu\\memuc.exe";
     public static final String SCREENSHOTS_DIR = "screenshots";
     public static boolean openCvLoaded = false;
+    private static final Log log = Log.get(BotUtils.class);
+
+    // Last result per instance, template and threshold, reused while the frame hasn't changed where it matters
+    private static final Map<String, FrameDelta.Cached<Match>> matchCache = new ConcurrentHashMap<>();
+
+    // Presence checks match at 1/COARSE_FACTOR size (-Dbot.coarse.scale, 2, 4 or 8), unless the template gets too small
+    static final int COARSE_FACTOR = coarseFactor(Integer.getInteger("bot.coarse.scale", 2));
+    private static final int MIN_COARSE_SIDE = 12;
+    private static final double COARSE_MARGIN = Double.parseDouble(System.getProperty("bot.coarse.margin", "0.15"));
 
     static {
         try {
             // Try to load OpenCV using the standard method
             System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
             openCvLoaded = true;
-            System.out.println("OpenCV loaded successfully");
+            log.info("OpenCV loaded successfully");
         } catch (Exception | UnsatisfiedLinkError e) {
-            System.err.println("Failed to load OpenCV: " + e.getMessage());
-            System.err.println("OpenCV features will be disabled. Image matching will not work.");
-            System.err.println("To enable OpenCV: Install OpenCV for Java and add it to your path");
+            log.error("Failed to load OpenCV: {}", e.getMessage());
+            log.error("OpenCV features will be disabled. Image matching will not work.");
+            log.error("To enable OpenCV: Install OpenCV for Java and add it to your path");
             openCvLoaded = false;
         }
     }
 
     public static void init() {
-        System.out.println("=== MEmu Instance Manager Starting ===");
-        System.out.println("=== Cleaning up corrupted screenshots ===");
+        long startNanos = System.nanoTime();
+        log.info("=== MEmu Instance Manager Starting ===");
+        log.info("=== Cleaning up corrupted screenshots ===");
         
         // Clean up any corrupted screenshot files
         cleanupCorruptedScreenshots();
         
-        System.out.println("=== Cleanup complete ===");
+        log.info("=== Cleanup complete ===");
         
         // Setup image directory
         setupImageDirectory();
+        
+        log.info("=== Startup assets ready in {}ms ===", (System.nanoTime() - startNanos) / 1_000_000);
     }
 
     private static void cleanupCorruptedScreenshots() {
@@ -49,52 +62,23 @@ public class BotUtils {
                     for (File file : files) {
                         if (file.length() < 1000) { // Files smaller than 1KB are likely corrupted
                             file.delete();
+                        } else if (file.getName().startsWith(FramePipeline.FILE_PREFIX)) {
+                            file.delete(); // Pipeline frames left over from the last run
                         }
                     }
                 }
             }
         } catch (Exception e) {
-            System.err.println("Error during cleanup: " + e.getMessage());
+            log.error("Error during cleanup: {}", e.getMessage());
         }
     }
 
     private static void setupImageDirectory() {
-        System.out.println("=== Image Directory Setup ===");
-        File workingDir = new File(System.getProperty("user.dir"));
-        System.out.println("Working directory: " + workingDir.getAbsolutePath());
-        
-        // Look for images in src/images
-        File imagesDir = new File(workingDir, "src/images");
-        System.out.println("PRIORITY: Looking for images in " + imagesDir.getPath());
-        
-        if (imagesDir.exists() && imagesDir.isDirectory()) {
-            System.out.println("✅ Found src/images directory:");
-            File[] imageFiles = imagesDir.listFiles((dir, name) -> name.toLowerCase().endsWith(".png"));
-            if (imageFiles != null) {
-                for (File imageFile : imageFiles) {
-                    System.out.println("  - " + imageFile.getName() + " (" + imageFile.length() + " bytes)");
-                    
-                    // Test if OpenCV can load the image
-                    if (openCvLoaded) {
-                        try {
-                            Mat testMat = Imgcodecs.imread(imageFile.getAbsolutePath(), Imgcodecs.IMREAD_GRAYSCALE);
-                            if (!testMat.empty()) {
-                                System.out.println("    ✅ OpenCV can load: " + imageFile.getName() + " (" + testMat.cols() + "x" + testMat.rows() + ")");
-                                testMat.release();
-                            } else {
-                                System.out.println("    ❌ OpenCV cannot load: " + imageFile.getName());
-                            }
-                        } catch (Exception e) {
-                            System.out.println("    ❌ Error loading " + imageFile.getName() + ": " + e.getMessage());
-                        }
-                    }
-                }
-            }
-        } else {
-            System.out.println("❌ src/images directory not found");
-        }
-        
-        System.out.println("============================");
+        log.info("=== Image Directory Setup ===");
+        log.info("Working directory: {}", new File(System.getProperty("user.dir")).getAbsolutePath());
+        TemplateStore.LoadReport report = TemplateStore.loadAll();
+        log.info("✅ {}", report);
+        log.info("============================");
     }
 
     public static boolean isOpenCvLoaded() {
@@ -108,178 +92,264 @@ public class BotUtils {
                 Files.createDirectories(path);
             }
         } catch (IOException e) {
-            System.err.println("Failed to create directory: " + dirPath + " - " + e.getMessage());
+            log.error("Failed to create directory: {} - {}", dirPath, e.getMessage());
         }
     }
 
     public static boolean takeMenuScreenshotLegacy(int index, String savePath) {
-        try {
-            createDirectoryIfNeeded(SCREENSHOTS_DIR);
-            
-            ProcessBuilder captureBuilder = new ProcessBuilder(
-                MEMUC_PATH, "adb", "-i", String.valueOf(index),
-                "shell", "screencap", "-p", "/sdcard/screen.png"
-            );
-            Process captureProcess = captureBuilder.start();
-            
-            boolean captureSuccess = captureProcess.waitFor(10, TimeUnit.SECONDS) && 
-                                   captureProcess.exitValue() == 0;
-            
-            if (!captureSuccess) {
-                System.err.println("Screenshot capture failed for instance " + index);
-                return false;
-            }
-
-            Thread.sleep(500);
+        createDirectoryIfNeeded(SCREENSHOTS_DIR);
+        boolean overwriting = new File(savePath).exists();
+        
+        CommandRunner.CommandResult capture = CommandRunner.memuc(10000,
+            "adb", "-i", String.valueOf(index),
+            "shell", "screencap", "-p", "/sdcard/screen.png"
+        );
+        
+        if (!capture.ok()) {
+            log.at(index).error("Screenshot capture failed ({})", capture.describeFailure());
+            return false;
+        }
 
-            ProcessBuilder pullBuilder = new ProcessBuilder(
-                MEMUC_PATH, "adb", "-i", String.valueOf(index),
-                "pull", "/sdcard/screen.png", savePath
-            );
-            Process pullProcess = pullBuilder.start();
-            
-            boolean pullSuccess = pullProcess.waitFor(10, TimeUnit.SECONDS) && 
-                                pullProcess.exitValue() == 0;
-            
-            if (!pullSuccess) {
-                System.err.println("Screenshot pull failed for instance " + index);
-                return false;
-            }
+        if (!delay(500)) {
+            return false;
+        }
 
-            File screenshotFile = new File(savePath);
-            boolean success = screenshotFile.exists() && screenshotFile.length() > 0;
-            
-            if (success) {
-                System.out.println("Screenshot saved: " + savePath + " (" + screenshotFile.length() + " bytes)");
-            }
-            
-            return success;
-        } catch (IOException | InterruptedException e) {
-            System.err.println("Screenshot error: " + e.getMessage());
-            if (e instanceof InterruptedException) {
-                Thread.currentThread().interrupt();
-            }
+        CommandRunner.CommandResult pull = CommandRunner.memuc(10000,
+            "adb", "-i", String.valueOf(index),
+            "pull", "/sdcard/screen.png", savePath
+        );
+        if (overwriting) {
+            MatchBuffers.rewritten(savePath); // Even a failed pull may have replaced part of it
+        }
+        
+        if (!pull.ok()) {
+            log.at(index).error("Screenshot pull failed ({})", pull.describeFailure());
             return false;
         }
+
+        File screenshotFile = new File(savePath);
+        long bytes = screenshotFile.length(); // 0 if missing
+        boolean success = bytes > 0;
+        
+        if (success) {
+            log.at(index).debug("Screenshot saved: {} ({} bytes)", savePath, bytes);
+        }
+        
+        return success;
     }
 
     public static Point findImageOnScreenGrayWithRetry(String screenshotPath, String templateName, double threshold, int instanceIndex) {
         if (!openCvLoaded) {
-            System.err.println("OpenCV not loaded, cannot perform image matching");
+            log.error("OpenCV not loaded, cannot perform image matching");
             return null;
         }
+        Match match = match(screenshotPath, templateName, threshold, instanceIndex, 1);
+        return match != null && match.point != null ? new Point(match.point) : null;
+    }
 
-        try {
-            // Find the template file
-            File templateFile = findImageFile(templateName);
-            if (templateFile == null) {
-                System.err.println("Template not found: " + templateName);
-                return null;
+    /**
+     * Whether a template is on screen, matched on a reduced-resolution decode against templates scaled to
+     * match. Cheaper than {@link #findTemplate} but with no usable click point; templates that would shrink
+     * below {@value #MIN_COARSE_SIDE}px are matched at full resolution instead. Downscaling blurs fine detail
+     * and lowers scores, so a reduced match that falls short of the threshold by less than
+     * -Dbot.coarse.margin (default 0.15) is settled at full resolution.
+     */
+    public static boolean isTemplatePresent(String screenshotPath, String templateName, int instanceIndex) {
+        if (!openCvLoaded) {
+            log.error("OpenCV not loaded, cannot perform image matching");
+            return false;
+        }
+        TemplateStore.TemplateMeta meta = TemplateStore.meta(templateName);
+        int factor = COARSE_FACTOR;
+        Mat template = TemplateStore.get(templateName);
+        if (template == null) {
+            log.at(instanceIndex).error("Template not found: {}", templateName);
+            return false;
+        }
+        for (double scale : meta.scales) {
+            if (Math.min(template.cols(), template.rows()) * scale / factor < MIN_COARSE_SIDE) {
+                return findImageOnScreenGrayWithRetry(screenshotPath, templateName, meta.threshold, instanceIndex) != null;
             }
+        }
+
+        Match coarse = match(screenshotPath, templateName, meta.threshold, instanceIndex, factor);
+        if (coarse == null) {
+            return false;
+        }
+        if (coarse.point != null) {
+            return true;
+        }
+        if (coarse.confidence >= meta.threshold - COARSE_MARGIN) {
+            log.at(instanceIndex).debug("Near miss for {} at 1/{}, confirming at full resolution", templateName, factor);
+            return findImageOnScreenGrayWithRetry(screenshotPath, templateName, meta.threshold, instanceIndex) != null;
+        }
+        return false;
+    }
 
-            System.out.println("Found image at: " + templateFile.getAbsolutePath());
-            System.out.println("Loading template: " + templateFile.getAbsolutePath() + " (size: " + templateFile.length() + " bytes)");
-            System.out.println("Loading screen: " + screenshotPath + " (size: " + new File(screenshotPath).length() + " bytes)");
+    // Best score of a template on a screenshot and, if it reaches the threshold, where (full-size pixels)
+    private static final class Match {
+        final Point point;
+        final double confidence;
 
-            // Load template and screen images
-            Mat template = Imgcodecs.imread(templateFile.getAbsolutePath(), Imgcodecs.IMREAD_GRAYSCALE);
-            Mat screen = Imgcodecs.imread(screenshotPath, Imgcodecs.IMREAD_GRAYSCALE);
+        Match(Point point, double confidence) {
+            this.point = point;
+            this.confidence = confidence;
+        }
+    }
 
-            if (template.empty()) {
-                System.err.println("Failed to load template: " + templateName);
+    /**
+     * Match a template at each of its configured scales against the screenshot decoded at 1/factor size
+     * (1 for full resolution), within its search region. Results are reused while the frame is unchanged
+     * where they were found, or memoized by frame content. Null if the template or screenshot can't be loaded.
+     */
+    @SuppressWarnings("try")
+    private static Match match(String screenshotPath, String templateName, double threshold, int instanceIndex, int factor) {
+        Log out = log.at(instanceIndex);
+        String at = factor == 1 ? "" : " at 1/" + factor;
+        long t = Metrics.start();
+        try (Trace.Span span = Trace.begin(instanceIndex, factor == 1 ? "match" : "coarseMatch", templateName)) {
+            // Templates are decoded once and shared - never release them here
+            Mat template = TemplateStore.get(templateName);
+            if (template == null) {
+                out.error("Template not found: {}", templateName);
                 return null;
             }
 
-            if (screen.empty()) {
-                System.err.println("Failed to load screenshot: " + screenshotPath);
-                template.release();
-                return null;
+            FrameDelta delta = FrameDelta.forPath(screenshotPath);
+            String cacheKey = instanceIndex + "/" + templateName + "/" + threshold + (factor == 1 ? "" : "/1:" + factor);
+            FrameDelta.Cached<Match> cached = delta != null ? matchCache.get(cacheKey) : null;
+            if (cached != null && cached.validFor(delta)) {
+                FrameDelta.countSkippedMatch();
+                out.debug("Screen unchanged where {} was looked for, reusing the result", templateName);
+                return cached.value;
             }
 
-            System.out.println("Screen dimensions: " + screen.cols() + "x" + screen.rows());
-            System.out.println("Template dimensions: " + template.cols() + "x" + template.rows());
+            // Per-thread buffers: the screen is decoded once per frame and result Mats are reused, never release them
+            MatchBuffers buffers = MatchBuffers.current();
+            TemplateStore.TemplateMeta meta = TemplateStore.meta(templateName);
+
+            // The same question about the same pixels was answered before
+            MatchMemo.Key memoKey = null;
+            if (MatchMemo.ENABLED) {
+                long fingerprint = buffers.fingerprint(screenshotPath);
+                if (fingerprint != 0) {
+                    memoKey = MatchMemo.key(fingerprint, factor == 1 ? templateName : templateName + "@1/" + factor,
+                        threshold, meta.region);
+                    MatchMemo.Entry memo = MatchMemo.get(memoKey);
+                    if (memo != null) {
+                        out.debug("Memoized result for {} on this frame: {}", templateName, memo.point);
+                        return new Match(memo.point, memo.confidence);
+                    }
+                }
+            }
 
-            // Perform template matching
-            Mat result = new Mat();
-            Imgproc.matchTemplate(screen, template, result, Imgproc.TM_CCOEFF_NORMED);
+            out.trace("Loading screen: {}", screenshotPath);
+            Mat screen = factor == 1 ? buffers.screen(screenshotPath) : buffers.reducedScreen(screenshotPath, factor);
+            if (screen.empty()) {
+                out.error("Failed to load screenshot: {}", screenshotPath);
+                return null;
+            }
 
-            // Find the best match
-            Core.MinMaxLocResult mmr = Core.minMaxLoc(result);
-            double confidence = mmr.maxVal;
+            out.trace("Screen dimensions: {}x{}, template dimensions: {}x{}{}", screen.cols(), screen.rows(), template.cols(), template.rows(), at);
 
-            System.out.println("Template matching confidence: " + String.format("%.3f", confidence) + " (threshold: " + threshold + ") for " + templateName);
+            // Restrict the search to the template's region, if it has one and it fits this screen
+            Rect region = null;
+            if (meta.region != null) {
+                region = new Rect(meta.region.x / factor, meta.region.y / factor,
+                    meta.region.width / factor, meta.region.height / factor);
+                if (region.x + region.width > screen.cols() || region.y + region.height > screen.rows()) {
+                    region = null;
+                }
+            }
 
-            // Clean up
-            template.release();
-            screen.release();
-            result.release();
+            double confidence = -1;
+            org.opencv.core.Point bestLoc = null;
+            Size bestSize = null;
+            try (ManagedMat view = region != null ? ManagedMat.of("match", screen.submat(region)) : null) {
+                Mat searchArea = view != null ? view.get() : screen;
+
+                // Perform template matching at each configured scale, keeping the best
+                for (double scale : meta.scales) {
+                    Mat scaled = TemplateStore.scaled(templateName, scale / factor);
+                    if (scaled == null) {
+                        continue;
+                    }
+                    int resultRows = searchArea.rows() - scaled.rows() + 1;
+                    int resultCols = searchArea.cols() - scaled.cols() + 1;
+                    if (resultRows <= 0 || resultCols <= 0) {
+                        continue;
+                    }
+                    Mat result = buffers.result(resultRows, resultCols);
+                    Imgproc.matchTemplate(searchArea, scaled, result, Imgproc.TM_CCOEFF_NORMED);
+                    Core.MinMaxLocResult mmr = Core.minMaxLoc(result);
+                    if (mmr.maxVal > confidence) {
+                        confidence = mmr.maxVal;
+                        bestLoc = mmr.maxLoc;
+                        bestSize = scaled.size();
+                    }
+                }
+            }
 
-            if (confidence >= threshold) {
-                Point matchPoint = new Point((int)mmr.maxLoc.x, (int)mmr.maxLoc.y);
-                System.out.println("Found template at: (" + matchPoint.x + ", " + matchPoint.y + ") for " + templateName);
-                return matchPoint;
+            out.debug("Template matching confidence: {} (threshold: {}) for {}{}", Math.round(confidence * 1000) / 1000.0, threshold, templateName, at);
+
+            Point found = null;
+            Rect patch = region != null ? meta.region : null;
+            if (bestLoc != null && confidence >= threshold) {
+                int offsetX = region != null ? region.x : 0;
+                int offsetY = region != null ? region.y : 0;
+                found = new Point(((int) bestLoc.x + offsetX) * factor, ((int) bestLoc.y + offsetY) * factor);
+                // A hit stays valid while the matched patch is untouched, wherever else the screen changes
+                patch = new Rect(found.x, found.y, (int) bestSize.width * factor, (int) bestSize.height * factor);
+                out.debug("Found template at: ({}, {}) for {}{}", found.x, found.y, templateName, at);
             } else {
-                System.out.println("Template not found - confidence too low for " + templateName);
-                return null;
+                out.debug("Template not found - confidence too low for {}{}", templateName, at);
             }
-
+            Match match = new Match(found, confidence);
+            if (delta != null) {
+                matchCache.put(cacheKey, new FrameDelta.Cached<>(delta, patch, match));
+            }
+            if (memoKey != null) {
+                MatchMemo.put(memoKey, found, confidence);
+            }
+            return match;
         } catch (Exception e) {
-            System.err.println("Error in image matching: " + e.getMessage());
-            e.printStackTrace();
+            out.error("Error in image matching", e);
             return null;
+        } finally {
+            Metrics.record(Metrics.Stage.MATCH, instanceIndex, t);
         }
     }
 
-    private static File findImageFile(String imageName) {
-        // Look in src/images first
-        File srcImagesFile = new File("src/images/" + imageName);
-        if (srcImagesFile.exists()) {
-            return srcImagesFile;
-        }
-
-        // Look in current directory
-        File currentDirFile = new File(imageName);
-        if (currentDirFile.exists()) {
-            return currentDirFile;
-        }
-
-        // Look in images subdirectory
-        File imagesSubdirFile = new File("images/" + imageName);
-        if (imagesSubdirFile.exists()) {
-            return imagesSubdirFile;
-        }
-
-        return null;
+    private static int coarseFactor(int requested) {
+        return requested == 4 || requested == 8 ? requested : 2;
     }
 
+    @SuppressWarnings("try")
     public static boolean clickMenu(int index, Point pt) {
-        try {
-            ProcessBuilder builder = new ProcessBuilder(
-                MEMUC_PATH, "adb", "-i", String.valueOf(index),
+        long t = Metrics.start();
+        CommandRunner.CommandResult result;
+        try (Trace.Span span = Trace.begin(index, "tap")) {
+            result = CommandRunner.memuc(5000,
+                "adb", "-i", String.valueOf(index),
                 "shell", "input", "tap",
                 String.valueOf((int)pt.getX()),
                 String.valueOf((int)pt.getY())
             );
-            Process process = builder.start();
-            
-            boolean success = process.waitFor(5, TimeUnit.SECONDS) && process.exitValue() == 0;
-            
-            if (success) {
-                System.out.println("Clicked at " + pt + " on instance " + index);
-            }
-            
-            return success;
-        } catch (IOException | InterruptedException e) {
-            System.err.println("Click error: " + e.getMessage());
-            if (e instanceof InterruptedException) {
-                Thread.currentThread().interrupt();
-            }
-            return false;
         }
+        Metrics.record(Metrics.Stage.CLICK, index, t);
+        
+        if (result.ok()) {
+            log.at(index).debug("Clicked at ({}, {})", pt.x, pt.y);
+        } else {
+            log.at(index).error("Click error: {}", result.describeFailure());
+        }
+        
+        return result.ok();
     }
 
+    @SuppressWarnings("try")
     public static boolean delay(int milliseconds) {
-        try {
+        try (Trace.Span span = Trace.begin("sleep")) {
             Thread.sleep(milliseconds);
             return true;
         } catch (InterruptedException e) {
@@ -289,34 +359,22 @@ public class BotUtils {
     }
 
     public static boolean isInstanceRunning(int index) {
-        try {
-            ProcessBuilder builder = new ProcessBuilder(MEMUC_PATH, "isvmrunning", "-i", String.valueOf(index));
-            Process process = builder.start();
-            
-            boolean finished = process.waitFor(5, TimeUnit.SECONDS);
-            if (!finished) {
-                process.destroyForcibly();
-                return false;
-            }
-            
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                String output = reader.readLine();
-                if (output != null) {
-                    String trimmedOutput = output.trim();
-                    return trimmedOutput.equals("1") || trimmedOutput.equalsIgnoreCase("Running");
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Error checking if instance " + index + " is running: " + e.getMessage());
-        }
-        return false;
+        return InstanceInventory.isRunning(index);
     }
 
     public static void enableAutoStart(int index) {
-        System.out.println("Auto Start Game is enabled for instance " + index);
+        log.at(index).info("Auto Start Game is enabled");
         // This method can be expanded to perform additional setup if needed
     }
 
+    /**
+     * Match a template with the threshold, region and scales from its metadata (templates.properties)
+     */
+    public static Point findTemplate(String screenshotPath, String templateName, int instanceIndex) {
+        return findImageOnScreenGrayWithRetry(screenshotPath, templateName,
+            TemplateStore.meta(templateName).threshold, instanceIndex);
+    }
+
     // Alias method for compatibility with other classes
     public static Point findImageOnScreenGray(String screenshotPath, String templateName, double threshold) {
         return findImageOnScreenGrayWithRetry(screenshotPath, templateName, threshold, 0);
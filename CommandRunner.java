@@ -0,0 +1,285 @@
+package newgame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Single entry point for running external commands (memuc, adb via memuc, tesseract).
+ *
+ * Every call returns a {@link CompletableFuture} that always completes normally with a {@link CommandResult}:
+ * stdout and stderr are fully drained, the process is killed once its hard timeout passes, and spawn
+ * failures become a result with exit code -1. The blocking variants wait on that future for the command's
+ * timeout plus -Dbot.spawn.queue.budget ms (default 30000) for admission and output draining. If that runs out
+ * or the caller is interrupted, they cancel it, which kills a process that is still running or stops it from
+ * being spawned.
+ *
+ * The backend is pluggable: the real one spawns processes through {@link ProcessGovernor}, and
+ * -Dbot.backend=fake swaps in a scriptable {@link FakeCommandBackend} so the bot runs on Linux without MEmu.
+ * -Dbot.backend=replay plays back a session captured with -Dbot.record (see {@link SessionRecorder}), and
+ * -Dbot.backend=sim runs against a {@link SimulatedFleet} of hundreds of scripted instances.
+ */
+public class CommandRunner {
+
+    public static class CommandResult {
+        public final List<String> command;
+        public final int exitCode;
+        public final String stdout;
+        public final String stderr;
+        public final long durationMs;
+        public final boolean timedOut;
+
+        public CommandResult(List<String> command, int exitCode, String stdout, String stderr, long durationMs, boolean timedOut) {
+            this.command = command;
+            this.exitCode = exitCode;
+            this.stdout = stdout != null ? stdout : "";
+            this.stderr = stderr != null ? stderr : "";
+            this.durationMs = durationMs;
+            this.timedOut = timedOut;
+        }
+
+        public static CommandResult failed(List<String> command, String reason, long durationMs) {
+            return new CommandResult(command, -1, "", reason, durationMs, false);
+        }
+
+        public boolean ok() {
+            return exitCode == 0 && !timedOut;
+        }
+
+        public List<String> lines() {
+            List<String> lines = new ArrayList<>();
+            for (String line : stdout.split("\\r?\\n")) {
+                if (!line.trim().isEmpty()) {
+                    lines.add(line);
+                }
+            }
+            return lines;
+        }
+
+        /**
+         * Short description for error messages, e.g. "exit code 1: device offline".
+         */
+        public String describeFailure() {
+            if (timedOut) return "timed out after " + durationMs + "ms";
+            String detail = !stderr.trim().isEmpty() ? stderr.trim() : stdout.trim();
+            return "exit code " + exitCode + (detail.isEmpty() ? "" : ": " + detail);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s -> %s in %dms", String.join(" ", command), ok() ? "ok" : describeFailure(), durationMs);
+        }
+    }
+
+    public interface Backend {
+        CompletableFuture<CommandResult> run(List<String> command, long timeoutMs);
+
+        default boolean isAvailable(String executable) {
+            return new File(executable).exists();
+        }
+    }
+
+    private static final long QUEUE_BUDGET_MS = Long.getLong("bot.spawn.queue.budget", 30000L);
+
+    private static volatile Backend backend = SessionRecorder.fromProperties(createBackend());
+
+    private static Backend createBackend() {
+        String kind = System.getProperty("bot.backend", "");
+        if ("fake".equalsIgnoreCase(kind)) {
+            return FakeCommandBackend.withDefaultScript();
+        }
+        if ("replay".equalsIgnoreCase(kind)) {
+            return ReplayBackend.fromProperties();
+        }
+        if ("sim".equalsIgnoreCase(kind)) {
+            return SimulatedFleet.fromProperties();
+        }
+        return new ProcessBackend();
+    }
+
+    public static Backend getBackend() {
+        return backend;
+    }
+
+    public static void setBackend(Backend newBackend) {
+        backend = newBackend;
+    }
+
+    public static boolean isAvailable(String executable) {
+        return backend.isAvailable(executable);
+    }
+
+    public static CompletableFuture<CommandResult> runAsync(long timeoutMs, String... command) {
+        return backend.run(Collections.unmodifiableList(Arrays.asList(command)), timeoutMs);
+    }
+
+    public static CompletableFuture<CommandResult> memucAsync(long timeoutMs, String... args) {
+        String[] command = new String[args.length + 1];
+        command[0] = BotUtils.MEMUC_PATH;
+        System.arraycopy(args, 0, command, 1, args.length);
+        int instance = instanceOf(args);
+        CompletableFuture<CommandResult> source = runAsync(timeoutMs, command);
+        return cancelling(source, source.whenComplete((result, error) -> {
+            if (result != null) {
+                Metrics.recordMillis(Metrics.Stage.MEMUC, instance, result.durationMs);
+            }
+        }));
+    }
+
+    /**
+     * derived, made to cancel source when it is cancelled itself, so cancelling a future built on a backend's
+     * future still reaches the process.
+     */
+    static <T> CompletableFuture<T> cancelling(CompletableFuture<?> source, CompletableFuture<T> derived) {
+        derived.whenComplete((result, error) -> {
+            if (derived.isCancelled()) {
+                source.cancel(true);
+            }
+        });
+        return derived;
+    }
+
+    // The "-i <index>" argument, or Metrics.FLEET for fleet-wide commands like listvms
+    private static int instanceOf(String[] args) {
+        for (int i = 0; i + 1 < args.length; i++) {
+            if ("-i".equals(args[i])) {
+                try {
+                    return Integer.parseInt(args[i + 1]);
+                } catch (NumberFormatException e) {
+                    break;
+                }
+            }
+        }
+        return Metrics.FLEET;
+    }
+
+    /**
+     * Blocking variant. An interrupt cancels the command and re-asserts the interrupt flag.
+     */
+    public static CommandResult run(long timeoutMs, String... command) {
+        return await(runAsync(timeoutMs, command), timeoutMs, command);
+    }
+
+    @SuppressWarnings("try")
+    public static CommandResult memuc(long timeoutMs, String... args) {
+        int instance = instanceOf(args);
+        String verb = args.length > 0 ? args[0] : null;
+        // Fleet-wide commands (listvms) are attributed to whatever span issued them
+        try (Trace.Span span = instance == Metrics.FLEET ? Trace.begin("memuc", verb) : Trace.begin(instance, "memuc", verb)) {
+            return await(memucAsync(timeoutMs, args), timeoutMs, args);
+        }
+    }
+
+    private static CommandResult await(CompletableFuture<CommandResult> future, long timeoutMs, String... command) {
+        long start = System.nanoTime();
+        try {
+            return future.get(timeoutMs + QUEUE_BUDGET_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            return new CommandResult(Arrays.asList(command), -1, "", "gave up waiting for admission or output",
+                elapsedMs(start), true);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return CommandResult.failed(Arrays.asList(command), "interrupted", elapsedMs(start));
+        } catch (CancellationException e) {
+            return CommandResult.failed(Arrays.asList(command), "cancelled", elapsedMs(start));
+        } catch (ExecutionException e) {
+            return CommandResult.failed(Arrays.asList(command), String.valueOf(e.getCause()), elapsedMs(start));
+        }
+    }
+
+    /**
+     * Spawns real processes, gated by {@link ProcessGovernor}.
+     */
+    static class ProcessBackend implements Backend {
+        private static final long DRAIN_GRACE_MS = 2000;
+
+        private final ExecutorService pool = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "CommandRunner");
+            t.setDaemon(true);
+            return t;
+        });
+
+        @Override
+        public CompletableFuture<CommandResult> run(List<String> command, long timeoutMs) {
+            CompletableFuture<CommandResult> result = new CompletableFuture<>();
+            Future<?> task = pool.submit(() -> result.complete(execute(command, timeoutMs)));
+            // Cancelling interrupts the worker: it gives up waiting for admission, or kills the running process
+            result.whenComplete((r, e) -> {
+                if (result.isCancelled()) {
+                    task.cancel(true);
+                }
+            });
+            return result;
+        }
+
+        private CommandResult execute(List<String> command, long timeoutMs) {
+            long start = System.nanoTime();
+            Process process = null;
+            try {
+                process = ProcessGovernor.start(new ProcessBuilder(command));
+                process.getOutputStream().close();
+
+                // Drain both pipes concurrently so a chatty process can never block on a full pipe
+                Future<String> stdout = pool.submit(drain(process.getInputStream()));
+                Future<String> stderr = pool.submit(drain(process.getErrorStream()));
+
+                boolean finished = process.waitFor(timeoutMs, TimeUnit.MILLISECONDS);
+                if (!finished) {
+                    process.destroyForcibly();
+                    process.waitFor(DRAIN_GRACE_MS, TimeUnit.MILLISECONDS);
+                }
+
+                return new CommandResult(command,
+                    finished ? process.exitValue() : -1,
+                    collect(stdout), collect(stderr),
+                    elapsedMs(start), !finished);
+            } catch (InterruptedException e) {
+                if (process != null) process.destroyForcibly();
+                Thread.currentThread().interrupt();
+                return CommandResult.failed(command, "interrupted", elapsedMs(start));
+            } catch (IOException | RuntimeException e) {
+                if (process != null) process.destroyForcibly();
+                return CommandResult.failed(command, e.getMessage(), elapsedMs(start));
+            }
+        }
+
+        private static Callable<String> drain(InputStream in) {
+            return () -> {
+                try (InputStream stream = in) {
+                    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                    byte[] chunk = new byte[8192];
+                    int n;
+                    while ((n = stream.read(chunk)) != -1) {
+                        buffer.write(chunk, 0, n);
+                    }
+                    return new String(buffer.toByteArray(), Charset.defaultCharset());
+                }
+            };
+        }
+
+        private static String collect(Future<String> output) {
+            try {
+                return output.get(DRAIN_GRACE_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return "";
+            } catch (ExecutionException | TimeoutException e) {
+                output.cancel(true);
+                return "";
+            }
+        }
+    }
+
+    static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
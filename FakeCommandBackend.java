@@ -0,0 +1,203 @@
+package newgame;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Scriptable stand-in for memuc/adb/tesseract so the bot can run on Linux without MEmu.
+ *
+ * Rules match a command by token prefix, where the executable is reduced to its base name
+ * ("memuc", "tesseract") and "*" matches any single token:
+ * <pre>
+ *   fake.on("memuc adb * * shell input tap", args -> fake.ok(""));
+ * </pre>
+ * The most recently added matching rule wins, so tests can override the defaults. Every call is recorded.
+ *
+ * Defaults (see {@link #withDefaultScript()}) are driven by system properties:
+ * bot.fake.instances (VM count), bot.fake.frame (PNG served for screenshots),
+ * bot.fake.ocr (text file returned by tesseract) and bot.fake.latency (ms per call).
+ */
+public class FakeCommandBackend implements CommandRunner.Backend {
+
+    private static class Rule {
+        final String[] pattern;
+        final Function<List<String>, CommandRunner.CommandResult> handler;
+
+        Rule(String pattern, Function<List<String>, CommandRunner.CommandResult> handler) {
+            this.pattern = pattern.trim().split("\\s+");
+            this.handler = handler;
+        }
+
+        boolean matches(List<String> tokens) {
+            if (tokens.size() < pattern.length) return false;
+            for (int i = 0; i < pattern.length; i++) {
+                if (!pattern[i].equals("*") && !pattern[i].equalsIgnoreCase(tokens.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private final Deque<Rule> rules = new ConcurrentLinkedDeque<>();
+    private final List<List<String>> calls = new CopyOnWriteArrayList<>();
+    private volatile long latencyMs;
+
+    public FakeCommandBackend on(String pattern, Function<List<String>, CommandRunner.CommandResult> handler) {
+        rules.addFirst(new Rule(pattern, handler));
+        return this;
+    }
+
+    public FakeCommandBackend latency(long millis) {
+        this.latencyMs = millis;
+        return this;
+    }
+
+    public List<List<String>> calls() {
+        return Collections.unmodifiableList(calls);
+    }
+
+    @Override
+    public CompletableFuture<CommandRunner.CommandResult> run(List<String> command, long timeoutMs) {
+        calls.add(command);
+        Executor executor = latencyMs > 0
+            ? CompletableFuture.delayedExecutor(latencyMs, TimeUnit.MILLISECONDS)
+            : Runnable::run;
+        return CompletableFuture.supplyAsync(() -> dispatch(command), executor);
+    }
+
+    @Override
+    public boolean isAvailable(String executable) {
+        return true;
+    }
+
+    private CommandRunner.CommandResult dispatch(List<String> command) {
+        List<String> tokens = normalize(command);
+        for (Rule rule : rules) {
+            if (rule.matches(tokens)) {
+                try {
+                    CommandRunner.CommandResult result = rule.handler.apply(tokens);
+                    return new CommandRunner.CommandResult(command, result.exitCode, result.stdout, result.stderr,
+                        latencyMs, result.timedOut);
+                } catch (RuntimeException e) {
+                    return CommandRunner.CommandResult.failed(command, "fake handler failed: " + e, latencyMs);
+                }
+            }
+        }
+        return CommandRunner.CommandResult.failed(command, "no fake rule for: " + String.join(" ", tokens), latencyMs);
+    }
+
+    static List<String> normalize(List<String> command) {
+        List<String> tokens = new ArrayList<>(command);
+        if (!tokens.isEmpty()) {
+            String exe = new File(tokens.get(0).replace('\\', '/')).getName().toLowerCase();
+            tokens.set(0, exe.endsWith(".exe") ? exe.substring(0, exe.length() - 4) : exe);
+        }
+        return tokens;
+    }
+
+    public CommandRunner.CommandResult ok(String stdout) {
+        return new CommandRunner.CommandResult(Collections.emptyList(), 0, stdout, "", 0, false);
+    }
+
+    public CommandRunner.CommandResult fail(int exitCode, String stderr) {
+        return new CommandRunner.CommandResult(Collections.emptyList(), exitCode, "", stderr, 0, false);
+    }
+
+    /**
+     * Value following "-i" in a memuc command, or -1.
+     */
+    public static int instanceArg(List<String> tokens) {
+        int i = tokens.indexOf("-i");
+        if (i >= 0 && i + 1 < tokens.size()) {
+            try {
+                return Integer.parseInt(tokens.get(i + 1));
+            } catch (NumberFormatException ignored) {}
+        }
+        return -1;
+    }
+
+    /**
+     * A handful of stopped VMs that can be started/stopped/configured, a static screen and canned OCR text.
+     */
+    public static FakeCommandBackend withDefaultScript() {
+        FakeCommandBackend fake = new FakeCommandBackend();
+        fake.latency(Long.getLong("bot.fake.latency", 0L));
+
+        int count = Integer.getInteger("bot.fake.instances", 2);
+        Map<Integer, Boolean> running = new ConcurrentHashMap<>();
+        Map<Integer, Map<String, String>> config = new ConcurrentHashMap<>();
+        for (int i = 0; i < count; i++) {
+            running.put(i, false);
+            config.put(i, new ConcurrentHashMap<>());
+        }
+
+        fake.on("memuc listvms", args -> {
+            StringBuilder out = new StringBuilder();
+            for (int i = 0; i < count; i++) {
+                boolean up = running.get(i);
+                out.append(i).append(",Fake ").append(i).append(",0,").append(up ? 1 : 0).append(',')
+                   .append(up ? 10000 + i : 0).append('\n');
+            }
+            return fake.ok(out.toString());
+        });
+        fake.on("memuc isvmrunning", args ->
+            fake.ok(running.getOrDefault(instanceArg(args), false) ? "Running" : "Not Running"));
+        fake.on("memuc start", args -> {
+            running.put(instanceArg(args), true);
+            return fake.ok("SUCCESS: start vm finished.");
+        });
+        fake.on("memuc stop", args -> {
+            running.put(instanceArg(args), false);
+            return fake.ok("SUCCESS: stop vm finished.");
+        });
+        fake.on("memuc setconfigex", args -> {
+            int index = instanceArg(args);
+            int keyAt = args.indexOf("-i") + 2;
+            config.computeIfAbsent(index, k -> new ConcurrentHashMap<>())
+                  .put(args.get(keyAt), String.join(" ", args.subList(keyAt + 1, args.size())));
+            return fake.ok("SUCCESS: set configex finished.");
+        });
+        fake.on("memuc getconfigex", args -> {
+            int index = instanceArg(args);
+            String key = args.get(args.indexOf("-i") + 2);
+            return fake.ok("Value: " + config.getOrDefault(index, Collections.emptyMap()).getOrDefault(key, ""));
+        });
+
+        String framePath = System.getProperty("bot.fake.frame");
+        fake.on("memuc adb * * shell screencap", args -> fake.ok(""));
+        fake.on("memuc adb * * shell input", args -> fake.ok(""));
+        fake.on("memuc adb * * pull", args -> {
+            if (framePath == null) {
+                return fake.fail(1, "no frame configured (-Dbot.fake.frame)");
+            }
+            try {
+                Files.copy(Paths.get(framePath), Paths.get(args.get(args.size() - 1)), StandardCopyOption.REPLACE_EXISTING);
+                return fake.ok("1 file pulled.");
+            } catch (IOException e) {
+                return fake.fail(1, e.getMessage());
+            }
+        });
+
+        String ocrPath = System.getProperty("bot.fake.ocr");
+        fake.on("tesseract", args -> {
+            if (ocrPath == null) {
+                return fake.ok("March Queue 1\nIdle\nMarch Queue 2\nIdle\n");
+            }
+            try {
+                return fake.ok(new String(Files.readAllBytes(Paths.get(ocrPath)), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                return fake.fail(1, e.getMessage());
+            }
+        });
+
+        return fake;
+    }
+}
@@ -0,0 +1,114 @@
+package newgame;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The latest frame captured on an instance, shared by every module working on it.
+ *
+ * {@link FramePipeline} publishes each frame it captures with a version one higher than the last and
+ * clears the slot when it taps, since the screen is about to change. A module that only needs to look at
+ * the screen asks for {@link #latest(long)} and gets the newest frame if it is young enough, so a popup
+ * check, a panel read and a resolution check in quick succession cost one capture instead of three.
+ * Frames older than -Dbot.frame.maxAge ms (default {@link FramePipeline#MAX_FRAME_AGE_MS}) are not reused.
+ *
+ * The bus holds its own reference to the latest frame and hands out new ones; callers close what they get.
+ */
+public class FrameBus {
+    public static final long MAX_AGE_MS = Long.getLong("bot.frame.maxAge", FramePipeline.MAX_FRAME_AGE_MS);
+
+    private static final Map<Integer, FrameBus> buses = new ConcurrentSkipListMap<>();
+
+    private final int index;
+    private final AtomicReference<FramePipeline.Frame> latest = new AtomicReference<>();
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+
+    private FrameBus(int index) {
+        this.index = index;
+    }
+
+    public static FrameBus forInstance(int index) {
+        return buses.computeIfAbsent(index, FrameBus::new);
+    }
+
+    static Map<Integer, FrameBus> all() {
+        return buses;
+    }
+
+    long nextVersion() {
+        return version.incrementAndGet();
+    }
+
+    /**
+     * Version of the newest frame captured so far, 0 before the first.
+     */
+    public long version() {
+        return version.get();
+    }
+
+    void publish(FramePipeline.Frame frame) {
+        FramePipeline.Frame held = frame.retain();
+        if (held == null) {
+            return;
+        }
+        published.incrementAndGet();
+        // Captures can finish out of order (a synchronous retry racing the capture thread): keep the newest
+        FramePipeline.Frame current;
+        do {
+            current = latest.get();
+            if (current != null && current.version > held.version) {
+                held.close();
+                return;
+            }
+        } while (!latest.compareAndSet(current, held));
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    /**
+     * Drop the latest frame; the screen no longer looks like it.
+     */
+    void invalidate() {
+        FramePipeline.Frame dropped = latest.getAndSet(null);
+        if (dropped != null) {
+            dropped.close();
+        }
+    }
+
+    /**
+     * The newest frame if it is at most maxAgeMs old, else null. The caller closes it.
+     */
+    public FramePipeline.Frame latest(long maxAgeMs) {
+        FramePipeline.Frame frame = latest.get();
+        if (frame == null || frame.ageMillis() > maxAgeMs) {
+            return null;
+        }
+        // Null if it was replaced and released since we looked
+        FramePipeline.Frame held = frame.retain();
+        if (held != null) {
+            reused.incrementAndGet();
+        }
+        return held;
+    }
+
+    public long captures() {
+        return published.get();
+    }
+
+    /**
+     * Captures avoided by handing out a frame that was already there.
+     */
+    public long capturesSaved() {
+        return reused.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("#%d v%d: %d captures, %d saved", index, version(), captures(), capturesSaved());
+    }
+}
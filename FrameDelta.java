@@ -0,0 +1,222 @@
+package newgame;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.imgcodecs.Imgcodecs;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Which parts of a frame changed, from block hashes of a 1/8 scale grayscale decode.
+ *
+ * FramePipeline computes one per captured frame on the capture thread, so analysis sees it for free. The
+ * frame is cut into 64x64 pixel blocks (8x8 at the reduced scale) and each block hashed with its low
+ * intensity bits dropped. A region counts as unchanged when every block overlapping it hashes the same, so
+ * a result computed on an earlier frame can be reused there ({@link Cached}), and detectors can look only
+ * at {@link #dirtyRegions()}. That is a heuristic, not pixel equality: a change the downscale averages away
+ * or that stays within the dropped bits (a few digits of small text, like a countdown timer) goes unseen.
+ * Fine for template matches on large buttons; anything reading small text needs an exact comparison.
+ *
+ * Off with -Dbot.delta=false, which also turns off MarchDetector reusing the OCR text of an identical panel.
+ */
+public final class FrameDelta {
+    public static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("bot.delta"));
+
+    static final int SCALE = 8;                // IMREAD_REDUCED_GRAYSCALE_8
+    static final int BLOCK = 8;                // Block side at the reduced scale
+    static final int BLOCK_PIXELS = SCALE * BLOCK;
+    private static final int QUANT_SHIFT = 3;  // Ignore gradients the downscale smears across a boundary
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final Map<String, FrameDelta> byPath = new ConcurrentHashMap<>();
+    private static final AtomicLong skippedMatches = new AtomicLong();
+    private static final AtomicLong skippedOcr = new AtomicLong();
+
+    public final int instance;
+    public final long version;
+    public final int width;  // Full-size pixels, to the nearest multiple of the scale
+    public final int height;
+    final int cols;
+    final int rows;
+    final long[] hashes;
+    private final List<Rect> dirty; // Against the previous frame, which isn't kept
+    private final long fileSize;
+    private final long fileModified;
+
+    private FrameDelta(int instance, long version, int width, int height, int cols, int rows, long[] hashes,
+                       FrameDelta previous, long fileSize, long fileModified) {
+        this.instance = instance;
+        this.version = version;
+        this.width = width;
+        this.height = height;
+        this.cols = cols;
+        this.rows = rows;
+        this.hashes = hashes;
+        this.fileSize = fileSize;
+        this.fileModified = fileModified;
+        this.dirty = dirtyBlocks(previous);
+    }
+
+    /**
+     * A result computed on one frame, reusable on later frames of the instance while area is unchanged.
+     */
+    public static final class Cached<T> {
+        final FrameDelta frame;
+        final Rect area; // null for the whole frame
+        public final T value;
+
+        public Cached(FrameDelta frame, Rect area, T value) {
+            this.frame = frame;
+            this.area = area;
+            this.value = value;
+        }
+
+        public boolean validFor(FrameDelta current) {
+            return current != null && current.instance == frame.instance && !current.changedSince(frame, area);
+        }
+    }
+
+    /**
+     * Hash the frame at path and compare it with the instance's previous frame. Null if it can't be decoded.
+     */
+    static FrameDelta compute(int instance, long version, String path, FrameDelta previous) {
+        if (!ENABLED || !BotUtils.isOpenCvLoaded()) {
+            return null;
+        }
+        File file = new File(path);
+        long size = file.length();
+        long modified = file.lastModified();
+        try (ManagedMat small = ManagedMat.of("delta", Imgcodecs.imread(path, Imgcodecs.IMREAD_REDUCED_GRAYSCALE_8))) {
+            if (small.empty()) {
+                return null;
+            }
+            Mat mat = small.get();
+            byte[] pixels = new byte[mat.cols() * mat.rows()];
+            mat.get(0, 0, pixels);
+            FrameDelta delta = fromPixels(instance, version, pixels, mat.cols(), mat.rows(), previous, size, modified);
+            byPath.put(path, delta);
+            return delta;
+        }
+    }
+
+    /**
+     * Block hashes of an already reduced grayscale frame (width x height bytes at 1/{@value #SCALE} scale).
+     */
+    static FrameDelta fromPixels(int instance, long version, byte[] pixels, int width, int height, FrameDelta previous,
+                                 long fileSize, long fileModified) {
+        int cols = (width + BLOCK - 1) / BLOCK;
+        int rows = (height + BLOCK - 1) / BLOCK;
+        long[] hashes = new long[cols * rows];
+        Arrays.fill(hashes, FNV_OFFSET);
+        for (int y = 0; y < height; y++) {
+            int rowBase = (y / BLOCK) * cols;
+            for (int x = 0; x < width; x++) {
+                int block = rowBase + x / BLOCK;
+                hashes[block] = (hashes[block] ^ ((pixels[y * width + x] & 0xFF) >> QUANT_SHIFT)) * FNV_PRIME;
+            }
+        }
+        return new FrameDelta(instance, version, width * SCALE, height * SCALE, cols, rows, hashes,
+            previous, fileSize, fileModified);
+    }
+
+    /**
+     * The delta of the frame at path, if FramePipeline captured it and the file hasn't been rewritten since.
+     */
+    public static FrameDelta forPath(String path) {
+        FrameDelta delta = byPath.get(path);
+        if (delta == null) {
+            return null;
+        }
+        File file = new File(path);
+        return file.length() == delta.fileSize && file.lastModified() == delta.fileModified ? delta : null;
+    }
+
+    /**
+     * Drop the delta of a frame whose file is gone.
+     */
+    static void forget(String path) {
+        byPath.remove(path);
+    }
+
+    /**
+     * True if nothing changed since the previous frame.
+     */
+    public boolean unchanged() {
+        return dirty != null && dirty.isEmpty();
+    }
+
+    /**
+     * Changed blocks since the previous frame in full-size pixels, merged into horizontal runs; null for
+     * the first frame, when everything is new.
+     */
+    public List<Rect> dirtyRegions() {
+        return dirty;
+    }
+
+    /**
+     * Whether any block overlapping area (full-size pixels, null for the whole frame) differs from earlier.
+     */
+    public boolean changedSince(FrameDelta earlier, Rect area) {
+        if (earlier == null || earlier.cols != cols || earlier.rows != rows) {
+            return true;
+        }
+        int x0 = 0, y0 = 0, x1 = cols - 1, y1 = rows - 1;
+        if (area != null) {
+            x0 = Math.max(0, area.x / BLOCK_PIXELS);
+            y0 = Math.max(0, area.y / BLOCK_PIXELS);
+            x1 = Math.min(cols - 1, (area.x + area.width - 1) / BLOCK_PIXELS);
+            y1 = Math.min(rows - 1, (area.y + area.height - 1) / BLOCK_PIXELS);
+        }
+        for (int by = y0; by <= y1; by++) {
+            for (int bx = x0; bx <= x1; bx++) {
+                if (hashes[by * cols + bx] != earlier.hashes[by * cols + bx]) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private List<Rect> dirtyBlocks(FrameDelta earlier) {
+        if (earlier == null || earlier.cols != cols || earlier.rows != rows) {
+            return null;
+        }
+        List<Rect> regions = new ArrayList<>();
+        for (int by = 0; by < rows; by++) {
+            int runStart = -1;
+            for (int bx = 0; bx <= cols; bx++) {
+                boolean changed = bx < cols && hashes[by * cols + bx] != earlier.hashes[by * cols + bx];
+                if (changed && runStart < 0) {
+                    runStart = bx;
+                } else if (!changed && runStart >= 0) {
+                    regions.add(new Rect(runStart * BLOCK_PIXELS, by * BLOCK_PIXELS,
+                        (bx - runStart) * BLOCK_PIXELS, BLOCK_PIXELS));
+                    runStart = -1;
+                }
+            }
+        }
+        return regions;
+    }
+
+    static void countSkippedMatch() {
+        skippedMatches.incrementAndGet();
+    }
+
+    static void countSkippedOcr() {
+        skippedOcr.incrementAndGet();
+    }
+
+    public static long skippedMatches() {
+        return skippedMatches.get();
+    }
+
+    public static long skippedOcr() {
+        return skippedOcr.get();
+    }
+}
@@ -0,0 +1,347 @@
+package newgame;
+
+import java.awt.Point;
+import java.io.File;
+import java.lang.ref.Cleaner;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Staged capture -> analyze -> act loop for a single instance.
+ *
+ * Captures run on a dedicated per-instance thread. A tap immediately queues a
+ * speculative capture of the screen it leads to, and a caller that knows it
+ * will look again soon without tapping can {@link #prefetch()} the next frame
+ * while it is still matching/OCR-ing the current one. At most one capture is
+ * outstanding; frames made stale by a later tap or older than
+ * {@link #MAX_FRAME_AGE_MS} are dropped instead of queued up.
+ *
+ * Every capture is written to a file of its own, so a Frame's pixels never
+ * change under a caller still reading frame.path. Frames are reference counted
+ * and must be closed by whoever got them, with try-with-resources:
+ *
+ *   try (FramePipeline.Frame frame = pipeline.current()) { ... frame.path ... }
+ *
+ * The file is deleted when the last holder (the caller, the {@link FrameBus})
+ * lets go, or by a Cleaner if a Frame is dropped without being closed.
+ *
+ * Each frame carries a {@link FrameDelta} against the previous one, hashed here before
+ * analysis starts. Every frame is also published on the instance's {@link FrameBus}; {@link #current()}
+ * hands out the latest one when it is still fresh instead of capturing again.
+ *
+ * Run with -Dbot.pipeline=false to get the old strictly sequential behaviour;
+ * benchmarks/PipelineHarness measures steps/min both ways.
+ */
+public class FramePipeline {
+    private static final Log log = Log.get(FramePipeline.class);
+    public static final boolean PIPELINED = !"false".equalsIgnoreCase(System.getProperty("bot.pipeline"));
+    public static final long MAX_FRAME_AGE_MS = 3000;
+    public static final long MIN_FRAME_BYTES = 15000; // Anything smaller is a truncated/blank screencap
+    private static final long CAPTURE_TIMEOUT_MS = 30000;
+    private static final int REPORT_EVERY_STEPS = 20;
+    static final String FILE_PREFIX = "frame_";
+    private static final Cleaner FILES = Cleaner.create();
+
+    private static final Map<Integer, FramePipeline> pipelines = new ConcurrentHashMap<>();
+
+    public static FramePipeline forInstance(int index) {
+        return pipelines.computeIfAbsent(index, FramePipeline::new);
+    }
+
+    public static class Frame implements AutoCloseable {
+        public final String path;
+        public final long bytes;
+        public final long capturedAt;
+        public final long version; // Increases with every frame captured on the instance
+        public final FrameDelta delta; // What changed since the previous frame; null if it couldn't be hashed
+        final long generation;
+        private final AtomicInteger refs = new AtomicInteger(1);
+        private final Cleaner.Cleanable file;
+
+        Frame(String path, long bytes, long capturedAt, long version, FrameDelta delta, long generation) {
+            this.path = path;
+            this.bytes = bytes;
+            this.capturedAt = capturedAt;
+            this.version = version;
+            this.delta = delta;
+            this.generation = generation;
+            this.file = FILES.register(this, new DeleteFrameFile(path));
+        }
+
+        public long ageMillis() {
+            return System.currentTimeMillis() - capturedAt;
+        }
+
+        /**
+         * Take another reference, to be closed separately; null if the frame was already released.
+         */
+        Frame retain() {
+            int n;
+            do {
+                n = refs.get();
+                if (n <= 0) {
+                    return null;
+                }
+            } while (!refs.compareAndSet(n, n + 1));
+            return this;
+        }
+
+        @Override
+        public void close() {
+            if (refs.decrementAndGet() == 0) {
+                file.clean();
+            }
+        }
+    }
+
+    private static class PendingCapture {
+        final long generation;
+        final CompletableFuture<Frame> future;
+
+        PendingCapture(long generation, CompletableFuture<Frame> future) {
+            this.generation = generation;
+            this.future = future;
+        }
+    }
+
+    private final int index;
+    private final FrameBus bus;
+    private final ExecutorService captureStage;
+    private final AtomicLong generation = new AtomicLong();
+    private PendingCapture pending; // guarded by this
+    private volatile FrameDelta lastDelta;
+    private final AtomicLong fileCounter = new AtomicLong();
+
+    // Steps/min meter
+    private final long startedAt = System.currentTimeMillis();
+    private final AtomicLong steps = new AtomicLong();
+    private final AtomicLong capturesDropped = new AtomicLong();
+
+    private FramePipeline(int index) {
+        this.index = index;
+        this.bus = FrameBus.forInstance(index);
+        this.captureStage = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "FrameCapture-" + index);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Get a frame showing the screen as it is after the last tap. Returns null if capturing failed.
+     */
+    @SuppressWarnings("try")
+    public Frame acquire() {
+        try (Trace.Span span = Trace.begin(index, "acquire")) {
+            return acquireFrame();
+        }
+    }
+
+    private Frame acquireFrame() {
+        if (!PIPELINED) {
+            Frame frame = capture(generation.get(), 0);
+            if (frame != null) countStep();
+            return frame;
+        }
+
+        PendingCapture capture;
+        synchronized (this) {
+            capture = pending;
+            pending = null;
+            if (capture == null || capture.generation != generation.get()) {
+                if (capture != null) {
+                    discard(capture);
+                }
+                capture = submit(0);
+            }
+        }
+
+        Frame frame = await(capture);
+        if (frame != null && frame.ageMillis() > MAX_FRAME_AGE_MS) {
+            // Prefetched frame sat around too long (caller slept in between) - don't trust it
+            capturesDropped.incrementAndGet();
+            frame.close();
+            synchronized (this) {
+                capture = submit(0);
+            }
+            frame = await(capture);
+        }
+
+        if (frame != null) {
+            countStep();
+        }
+        return frame;
+    }
+
+    /**
+     * The latest frame if it is at most {@link FrameBus#MAX_AGE_MS} old and nothing was tapped since,
+     * else a fresh {@link #acquire()}. For looking at the screen without changing it. Close the frame when done.
+     */
+    public Frame current() {
+        return current(FrameBus.MAX_AGE_MS);
+    }
+
+    public Frame current(long maxAgeMs) {
+        Frame frame = bus.latest(maxAgeMs);
+        if (frame == null) {
+            return acquire();
+        }
+        countStep();
+        return frame;
+    }
+
+    /**
+     * Tap the screen and speculatively capture the result once settleMillis has passed.
+     * The caller does not need to sleep; the next {@link #acquire()} waits for the capture.
+     */
+    public boolean tap(Point pt, long settleMillis) {
+        generation.incrementAndGet();
+        bus.invalidate();
+        boolean clicked = BotUtils.clickMenu(index, pt);
+
+        if (!PIPELINED) {
+            if (clicked) BotUtils.delay((int) settleMillis);
+            return clicked;
+        }
+
+        synchronized (this) {
+            if (pending != null) {
+                capturesDropped.incrementAndGet();
+                discard(pending);
+            }
+            pending = clicked ? submit(settleMillis) : null;
+        }
+        return clicked;
+    }
+
+    /**
+     * Start capturing the next frame in the background if nothing is outstanding yet. Only worth it when
+     * the caller will look again within {@link #MAX_FRAME_AGE_MS}; an older prefetch is thrown away.
+     */
+    public synchronized void prefetch() {
+        if (pending == null) {
+            pending = submit(0);
+        }
+    }
+
+    public double stepsPerMinute() {
+        double minutes = (System.currentTimeMillis() - startedAt) / 60000.0;
+        return minutes > 0 ? steps.get() / minutes : 0;
+    }
+
+    // Must hold the monitor
+    @SuppressWarnings("try")
+    private PendingCapture submit(long delayMillis) {
+        long gen = generation.get();
+        CompletableFuture<Frame> future = CompletableFuture.supplyAsync(() -> {
+            if (gen != generation.get()) {
+                return null; // A tap happened while we were queued - skip the stale capture
+            }
+            try (Trace.Span span = Trace.begin(index, "capture")) {
+                return capture(gen, delayMillis);
+            }
+        }, captureStage);
+        return new PendingCapture(gen, future);
+    }
+
+    // Release the frame of a capture nobody will pick up, whenever it completes
+    private static void discard(PendingCapture capture) {
+        capture.future.thenAccept(frame -> {
+            if (frame != null) {
+                frame.close();
+            }
+        });
+    }
+
+    private Frame await(PendingCapture capture) {
+        try {
+            Frame frame = capture.future.get(CAPTURE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            if (frame == null && capture.generation == generation.get()) {
+                return null;
+            }
+            if (frame == null) {
+                // Skipped as stale while we waited; capture synchronously for the current generation
+                return capture(generation.get(), 0);
+            }
+            return frame;
+        } catch (TimeoutException e) {
+            log.at(index).error("Frame capture timed out");
+            discard(capture); // Still runs on the capture thread; release what it produces
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            log.at(index).error("Frame capture failed", e.getCause());
+            return null;
+        }
+    }
+
+    @SuppressWarnings("try")
+    private Frame capture(long gen, long delayMillis) {
+        if (delayMillis > 0 && !BotUtils.delay((int) delayMillis)) {
+            return null;
+        }
+
+        String path = framePath();
+        File file = new File(path);
+
+        long startedAt = System.currentTimeMillis();
+        long t = Metrics.start();
+        boolean captured = BotUtils.takeMenuScreenshotLegacy(index, path);
+        Metrics.record(Metrics.Stage.CAPTURE, index, t);
+        if (!captured) {
+            file.delete();
+            return null;
+        }
+        long bytes = file.length();
+        if (bytes < MIN_FRAME_BYTES) {
+            log.at(index).error("❌ Screenshot too small ({} bytes)", bytes);
+            file.delete();
+            return null;
+        }
+        long version = bus.nextVersion();
+        FrameDelta delta;
+        try (Trace.Span span = Trace.begin(index, "delta")) {
+            delta = FrameDelta.compute(index, version, path, lastDelta);
+        }
+        if (delta != null) {
+            lastDelta = delta;
+        }
+        Frame frame = new Frame(path, bytes, startedAt, version, delta, gen);
+        if (gen == generation.get()) {
+            bus.publish(frame);
+        }
+        return frame;
+    }
+
+    private String framePath() {
+        return BotUtils.SCREENSHOTS_DIR + "/" + FILE_PREFIX + index + "_" + fileCounter.incrementAndGet() + ".png";
+    }
+
+    // Must not reference the Frame, or the Cleaner would never see it become unreachable
+    private static final class DeleteFrameFile implements Runnable {
+        private final String path;
+
+        DeleteFrameFile(String path) {
+            this.path = path;
+        }
+
+        @Override
+        public void run() {
+            FrameDelta.forget(path);
+            new File(path).delete();
+        }
+    }
+
+    private void countStep() {
+        long n = steps.incrementAndGet();
+        if (n % REPORT_EVERY_STEPS == 0) {
+            log.at(index).info("⏱️ {} steps/min ({}, {} stale captures dropped, {} saved by reuse)",
+                Math.round(stepsPerMinute() * 10) / 10.0, PIPELINED ? "pipelined" : "sequential", capturesDropped.get(),
+                bus.capturesSaved());
+        }
+    }
+}
@@ -1,35 +1,82 @@
 package newgame;
 
-import javax.swing.SwingWorker;
+import java.text.SimpleDateFormat;
+import java.util.Date;
 import java.util.List;
 
 /**
- * New AutoGatherResources system using OCR-based march detection
+ * New AutoGatherResources system using OCR-based march detection.
+ * Runs on its own daemon thread so it works the same with or without the Swing UI.
  */
-public class GatherResourcesTask extends SwingWorker<Void, String> {
+public class GatherResourcesTask {
+    private static final long CHECK_INTERVAL_MS = 60000;
+    private static final long MAX_RETURN_WAIT_MS = 15 * 60000; // Re-check at least this often even with known timers
+    private static final Log LOG = Log.get(GatherResourcesTask.class);
+    
     private final MemuInstance instance;
+    private final Log log;
     private volatile boolean shouldStop = false;
+    private volatile Thread worker;
 
     public GatherResourcesTask(MemuInstance instance) {
         this.instance = instance;
+        this.log = LOG.at(instance.index);
     }
 
-    @Override
-    protected Void doInBackground() throws Exception {
+    /**
+     * Start gathering. Returns false if a gather task is already running for the instance.
+     */
+    public boolean execute() {
+        if (!instance.tryStartAutoGather()) {
+            log.info("Resource gathering already running");
+            return false;
+        }
+        Thread thread = new Thread(this::run, "Gatherer-" + instance.index);
+        thread.setDaemon(true);
+        worker = thread;
+        thread.start();
+        return true;
+    }
+
+    private void run() {
+        try {
+            gatherLoop();
+            instance.setState("Resource gathering completed");
+            log.info("✅ GatherResourcesTask completed successfully");
+        } catch (InterruptedException e) {
+            instance.setState("Resource gathering stopped");
+        } catch (Exception e) {
+            log.error("GatherResourcesTask failed", e);
+            instance.setState("Resource gathering failed: " + e.getMessage());
+        }
+    }
+
+    private void gatherLoop() throws Exception {
         try {
-            instance.setAutoGatherRunning(true);
             instance.setState("Starting resource gathering...");
             
-            System.out.println("🚀 Starting new GatherResourcesTask for instance " + instance.index);
+            log.info("🚀 Starting new GatherResourcesTask");
+            
+            // Marches journaled during this VM boot are still out: sleep until the first returns instead of re-reading
+            StateJournal.InstanceState saved = StateJournal.recoverCurrentBoot(instance.index);
+            if (saved != null && !saved.marches.isEmpty() && !saved.hasIdleQueue()) {
+                long resumeAt = saved.nextReturnAt();
+                if (resumeAt > System.currentTimeMillis()) {
+                    publish("⏩ Resumed from journal, all marches out - next check at " + formatTime(resumeAt));
+                    pause(Math.min(resumeAt - System.currentTimeMillis(), MAX_RETURN_WAIT_MS), "resume");
+                }
+            }
             
             // Main gathering loop
-            while (!shouldStop && !isCancelled()) {
+            while (!shouldStop) {
+                long cycleStart = Metrics.start();
+                Trace.Span cycle = Trace.begin(instance.index, "gatherCycle");
                 try {
                     // Step 1: Setup march view (open left panel + wilderness)
                     publish("🔧 Setting up march view...");
                     if (!MarchDetector.setupMarchView(instance.index)) {
                         publish("❌ Failed to setup march view, retrying in 30 seconds...");
-                        Thread.sleep(30000);
+                        pause(30000, "retry");
                         continue;
                     }
                     
@@ -39,9 +86,10 @@ public class GatherResourcesTask extends SwingWorker<Void, String> {
                     
                     if (allQueues.isEmpty()) {
                         publish("⚠️ No march queues detected, retrying in 30 seconds...");
-                        Thread.sleep(30000);
+                        pause(30000, "retry");
                         continue;
                     }
+                    StateJournal.recordMarches(instance.index, allQueues);
                     
                     // Step 3: Check for available queues
                     List<MarchDetector.MarchInfo> availableQueues = MarchDetector.getAvailableQueues(allQueues);
@@ -69,10 +117,10 @@ public class GatherResourcesTask extends SwingWorker<Void, String> {
                                 publish("❌ Failed to start march on Queue " + queue.queueNumber);
                             }
                             
-                            Thread.sleep(3000); // Wait between march starts
+                            pause(3000, "betweenMarches"); // Wait between march starts
                         }
                     } else {
-                        publish("⏳ No available march queues, waiting 60 seconds...");
+                        publish("⏳ No available march queues");
                         
                         // Show current queue status when waiting
                         int gatheringCount = 0;
@@ -91,36 +139,68 @@ public class GatherResourcesTask extends SwingWorker<Void, String> {
                                unlockCount + " unlockable, " + cannotUseCount + " unusable");
                     }
                     
-                    // Step 5: Wait before next check
+                    Metrics.record(Metrics.Stage.GATHER_CYCLE, instance.index, cycleStart);
+                    
+                    // Step 5: Wait before next check - until the next march returns, if OCR gave us timers
                     if (!shouldStop) {
-                        publish("💤 Waiting 60 seconds before next check...");
-                        Thread.sleep(60000); // Check every minute
+                        long waitMs = nextCheckDelay(allQueues, availableQueues.isEmpty());
+                        publish("💤 Waiting " + (waitMs / 1000) + " seconds before next check...");
+                        pause(waitMs, "nextCheck");
                     }
                     
                 } catch (InterruptedException e) {
-                    System.out.println("GatherResourcesTask interrupted");
+                    log.info("GatherResourcesTask interrupted");
                     break;
                 } catch (Exception e) {
-                    System.err.println("Error in gather resources loop: " + e.getMessage());
+                    log.error("Error in gather resources loop: {}", e.getMessage());
                     publish("❌ Error: " + e.getMessage());
-                    Thread.sleep(30000); // Wait 30 seconds on error
+                    pause(30000, "error"); // Wait 30 seconds on error
+                } finally {
+                    cycle.close();
                 }
             }
             
         } finally {
             instance.setAutoGatherRunning(false);
             instance.setState("Resource gathering stopped");
-            System.out.println("🛑 GatherResourcesTask stopped for instance " + instance.index);
+            log.info("🛑 GatherResourcesTask stopped");
+        }
+    }
+    
+    private long nextCheckDelay(List<MarchDetector.MarchInfo> queues, boolean allBusy) {
+        if (!allBusy) {
+            return CHECK_INTERVAL_MS;
+        }
+        long next = -1;
+        for (MarchDetector.MarchInfo queue : queues) {
+            if (queue.returnsAt > 0 && (next < 0 || queue.returnsAt < next)) {
+                next = queue.returnsAt;
+            }
         }
-        
-        return null;
+        if (next < 0) {
+            return CHECK_INTERVAL_MS;
+        }
+        return Math.max(CHECK_INTERVAL_MS, Math.min(next - System.currentTimeMillis(), MAX_RETURN_WAIT_MS));
+    }
+    
+    // Sleeps show up in traces, so a long cycle can be told apart from a long wait
+    @SuppressWarnings("try")
+    private void pause(long millis, String reason) throws InterruptedException {
+        try (Trace.Span span = Trace.begin(instance.index, "sleep", reason)) {
+            Thread.sleep(millis);
+        }
+    }
+    
+    private static String formatTime(long epochMs) {
+        return new SimpleDateFormat("HH:mm:ss").format(new Date(epochMs));
     }
     
     /**
      * Start a march on a specific queue (placeholder implementation)
      */
+    @SuppressWarnings("try")
     private boolean startMarchOnQueue(int queueNumber) {
-        try {
+        try (Trace.Span span = Trace.begin(instance.index, "startMarch", queueNumber)) {
             // TODO: Implement actual march starting logic here
             // This would involve:
             // 1. Clicking on the queue
@@ -129,13 +209,13 @@ public class GatherResourcesTask extends SwingWorker<Void, String> {
             // 4. Clicking gather button
             // 5. Deploying the march
             
-            System.out.println("🎯 Starting march on queue " + queueNumber + " (placeholder)");
+            log.info("🎯 Starting march on queue {} (placeholder)", queueNumber);
             Thread.sleep(2000); // Simulate march starting time
             
             return true; // Placeholder success
             
         } catch (Exception e) {
-            System.err.println("Error starting march on queue " + queueNumber + ": " + e.getMessage());
+            log.error("Error starting march on queue {}: {}", queueNumber, e.getMessage());
             return false;
         }
     }
@@ -158,26 +238,12 @@ public class GatherResourcesTask extends SwingWorker<Void, String> {
         }
     }
     
-    @Override
-    protected void process(List<String> chunks) {
-        // Update instance state with latest message
-        if (!chunks.isEmpty()) {
-            String latestMessage = chunks.get(chunks.size() - 1);
-            instance.setState(latestMessage);
-            System.out.println("[Instance " + instance.index + "] " + latestMessage);
-        }
-    }
-    
-    @Override
-    protected void done() {
-        try {
-            get(); // Check for exceptions
-            instance.setState("Resource gathering completed");
-            System.out.println("✅ GatherResourcesTask completed successfully for instance " + instance.index);
-        } catch (Exception e) {
-            System.err.println("GatherResourcesTask failed: " + e.getMessage());
-            instance.setState("Resource gathering failed: " + e.getMessage());
-        }
+    /**
+     * Report progress: shown as the instance state and logged
+     */
+    private void publish(String message) {
+        instance.setState(message);
+        log.info("{}", message);
     }
     
     /**
@@ -185,7 +251,10 @@ public class GatherResourcesTask extends SwingWorker<Void, String> {
      */
     public void stopGathering() {
         shouldStop = true;
-        cancel(true);
-        System.out.println("🛑 Gathering task stop requested for instance " + instance.index);
+        Thread thread = worker;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        log.info("🛑 Gathering task stop requested");
     }
 }
\ No newline at end of file
@@ -0,0 +1,191 @@
+package newgame;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Fleet inventory built from a single "memuc listvms" call.
+ *
+ * listvms already reports the running flag and pid for every VM, so one process replaces the old
+ * listvms + one isvmrunning per VM. Results are cached for a short TTL (-Dbot.inventory.ttl, ms) and
+ * concurrent callers share one in-flight query, so UI refreshes, the status poller and bot tasks
+ * hitting it at the same time still cost a single spawn. {@link #invalidate()} starts a new generation:
+ * a query already running when it was called can't satisfy later callers or refill the cache.
+ */
+public class InstanceInventory {
+    private static final Log log = Log.get(InstanceInventory.class);
+
+    /**
+     * One row of "memuc listvms": index,title,top-level window handle,started,pid[,disk usage]
+     */
+    public static class VmInfo {
+        public final int index;
+        public final String title;
+        public final long windowHandle;
+        public final boolean running;
+        public final int pid;
+        public final long diskUsage; // -1 when the memuc version doesn't report it
+
+        public VmInfo(int index, String title, long windowHandle, boolean running, int pid, long diskUsage) {
+            this.index = index;
+            this.title = title;
+            this.windowHandle = windowHandle;
+            this.running = running;
+            this.pid = pid;
+            this.diskUsage = diskUsage;
+        }
+
+        public String status() {
+            return running ? "Running" : "Stopped";
+        }
+
+        @Override
+        public String toString() {
+            return String.format("VmInfo[%d: %s, %s, pid %d]", index, title, status(), pid);
+        }
+    }
+
+    private static final long TTL_MS = Long.getLong("bot.inventory.ttl", 2000L);
+    private static final long LISTVMS_TIMEOUT_MS = 15000;
+
+    private static List<VmInfo> cached;         // guarded by InstanceInventory.class
+    private static long cachedAt;               // guarded by InstanceInventory.class
+    private static CompletableFuture<List<VmInfo>> inFlight; // guarded by InstanceInventory.class
+    private static long inFlightGeneration;     // guarded by InstanceInventory.class
+    private static long generation;             // guarded by InstanceInventory.class, bumped by invalidate()
+
+    /**
+     * All VMs, at most TTL old.
+     */
+    public static List<VmInfo> snapshot() throws IOException {
+        CompletableFuture<List<VmInfo>> query;
+        long queryGeneration;
+        boolean owner = false;
+        synchronized (InstanceInventory.class) {
+            if (cached != null && System.currentTimeMillis() - cachedAt < TTL_MS) {
+                return cached;
+            }
+            // A query started before the last invalidate() may predate the change it was invalidated for
+            if (inFlight == null || inFlightGeneration != generation) {
+                inFlight = new CompletableFuture<>();
+                inFlightGeneration = generation;
+                owner = true;
+            }
+            query = inFlight;
+            queryGeneration = inFlightGeneration;
+        }
+
+        if (owner) {
+            query(query, queryGeneration);
+        }
+
+        try {
+            return query.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(String.valueOf(cause), cause);
+        }
+    }
+
+    /**
+     * Bypass the TTL, e.g. right after starting or stopping a VM.
+     */
+    public static List<VmInfo> refresh() throws IOException {
+        invalidate();
+        return snapshot();
+    }
+
+    public static synchronized void invalidate() {
+        cached = null;
+        generation++;
+    }
+
+    public static VmInfo find(int index) throws IOException {
+        for (VmInfo vm : snapshot()) {
+            if (vm.index == index) {
+                return vm;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * "Running", "Stopped", or "Unknown" when the inventory couldn't be read or doesn't list the VM.
+     */
+    public static String status(int index) {
+        try {
+            VmInfo vm = find(index);
+            return vm != null ? vm.status() : "Unknown";
+        } catch (IOException e) {
+            log.at(index).error("Status check failed: {}", e.getMessage());
+            return "Unknown";
+        }
+    }
+
+    public static boolean isRunning(int index) {
+        return "Running".equals(status(index));
+    }
+
+    private static void query(CompletableFuture<List<VmInfo>> query, long queryGeneration) {
+        List<VmInfo> parsed = null;
+        Throwable failure = new IOException("memuc listvms did not complete");
+        try {
+            CommandRunner.CommandResult result = CommandRunner.memuc(LISTVMS_TIMEOUT_MS, "listvms");
+            if (result.ok()) {
+                parsed = Collections.unmodifiableList(parse(result.lines()));
+            } else {
+                failure = new IOException("memuc listvms failed with " + result.describeFailure());
+            }
+        } catch (RuntimeException e) {
+            failure = e;
+        } finally {
+            // Always settle the query, or every caller joining it would wait forever
+            synchronized (InstanceInventory.class) {
+                if (parsed != null && queryGeneration == generation) {
+                    cached = parsed;
+                    cachedAt = System.currentTimeMillis();
+                }
+                if (inFlight == query) {
+                    inFlight = null;
+                }
+            }
+            if (parsed != null) {
+                query.complete(parsed);
+            } else {
+                query.completeExceptionally(failure);
+            }
+        }
+    }
+
+    static List<VmInfo> parse(List<String> lines) {
+        List<VmInfo> result = new ArrayList<>();
+        for (String line : lines) {
+            String[] parts = line.split(",");
+            if (parts.length < 2) {
+                continue;
+            }
+            try {
+                int index = Integer.parseInt(parts[0].trim());
+                String title = parts[1].trim();
+                long handle = parts.length > 2 ? parseLong(parts[2], 0) : 0;
+                int pid = parts.length > 4 ? (int) parseLong(parts[4], 0) : 0;
+                boolean running = parts.length > 3 ? "1".equals(parts[3].trim()) || pid > 0 : false;
+                long disk = parts.length > 5 ? parseLong(parts[5], -1) : -1;
+                result.add(new VmInfo(index, title, handle, running, pid, disk));
+            } catch (NumberFormatException ignored) {}
+        }
+        return result;
+    }
+
+    private static long parseLong(String value, long fallback) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package newgame;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Applies the 480x800 / 2 CPU / 3GB / 30 FPS profile to a stopped instance.
+ *
+ * Current values are read with getconfigex first and only keys that differ are written, so re-running
+ * "Optimize All" on an already optimized fleet costs one round of queries per instance and no stops.
+ * Safe to call for several instances at once; process concurrency is bounded by {@link ProcessGovernor}.
+ */
+public class InstanceOptimizer {
+    private static final Log log = Log.get(InstanceOptimizer.class);
+
+    public enum Outcome {
+        ALREADY_OPTIMIZED, OPTIMIZED, FAILED
+    }
+
+    private static final long QUERY_TIMEOUT_MS = 10000;
+    private static final long STOP_TIMEOUT_MS = 15000;
+    private static final int STOP_SETTLE_MS = 3000;
+
+    // Order matters: resolution keys before window/scaling, then performance settings
+    private static final Map<String, String> TARGET_CONFIG = new LinkedHashMap<>();
+    static {
+        TARGET_CONFIG.put("disable_resize", "0");
+        TARGET_CONFIG.put("is_customed_resolution", "1");
+        TARGET_CONFIG.put("custom_resolution", "480 800 160");
+        TARGET_CONFIG.put("is_full_screen", "0");
+        TARGET_CONFIG.put("start_window_mode", "1");
+        TARGET_CONFIG.put("win_scaling_percent2", "75");
+        TARGET_CONFIG.put("cpus", "2");
+        TARGET_CONFIG.put("memory", "3000");
+        TARGET_CONFIG.put("fps", "30");
+    }
+
+    public static Outcome optimize(int index) {
+        try {
+            log.at(index).info("🔧 Optimizing instance (configuration only)...");
+
+            Map<String, String> changes = diff(index);
+            if (changes.isEmpty()) {
+                log.at(index).info("⏭️ Instance already matches the target configuration, skipping");
+                return Outcome.ALREADY_OPTIMIZED;
+            }
+            log.at(index).info("🔄 Instance needs {} change(s): {}", changes.size(), changes.keySet());
+
+            // Ensure instance is stopped - only wait for shutdown if it was actually running
+            if (BotUtils.isInstanceRunning(index)) {
+                CommandRunner.memuc(STOP_TIMEOUT_MS, "stop", "-i", String.valueOf(index));
+                InstanceInventory.invalidate();
+                StateJournal.recordGame(index, false);
+                if (!BotUtils.delay(STOP_SETTLE_MS)) {
+                    return Outcome.FAILED;
+                }
+            }
+
+            boolean allApplied = true;
+            for (Map.Entry<String, String> change : changes.entrySet()) {
+                CommandRunner.CommandResult r = setConfig(index, change.getKey(), change.getValue());
+                if (!r.ok()) {
+                    log.at(index).warn("⚠️ Command failed: {}", r);
+                    allApplied = false;
+                }
+            }
+
+            if (!allApplied) {
+                return Outcome.FAILED;
+            }
+
+            log.at(index).info("✅ Optimization complete: 480x800@160dpi, windowed, 75% scaling, 2 CPU, 3GB, 30 FPS");
+            log.at(index).info("📝 Instance remains stopped - start manually when ready");
+            return Outcome.OPTIMIZED;
+
+        } catch (Exception e) {
+            log.at(index).error("❌ Exception optimizing instance: {}", e.getMessage());
+            return Outcome.FAILED;
+        }
+    }
+
+    /**
+     * Keys whose current value differs from the target (or couldn't be read), in application order.
+     */
+    static Map<String, String> diff(int index) {
+        Map<String, CompletableFuture<CommandRunner.CommandResult>> reads = new LinkedHashMap<>();
+        for (String key : TARGET_CONFIG.keySet()) {
+            reads.put(key, CommandRunner.memucAsync(QUERY_TIMEOUT_MS, "getconfigex", "-i", String.valueOf(index), key));
+        }
+
+        Map<String, String> changes = new LinkedHashMap<>();
+        for (Map.Entry<String, String> target : TARGET_CONFIG.entrySet()) {
+            CommandRunner.CommandResult r = reads.get(target.getKey()).join();
+            String current = r.ok() ? parseValue(r.stdout) : null;
+            if (current == null || !normalize(current).equals(normalize(target.getValue()))) {
+                changes.put(target.getKey(), target.getValue());
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * getconfigex prints "Value: 480" (sometimes with extra lines); anything else is treated as unknown.
+     */
+    static String parseValue(String output) {
+        for (String line : output.split("\\r?\\n")) {
+            String trimmed = line.trim();
+            if (trimmed.regionMatches(true, 0, "Value:", 0, 6)) {
+                return trimmed.substring(6).trim();
+            }
+        }
+        return null;
+    }
+
+    private static String normalize(String value) {
+        return value.trim().replaceAll("[,\\s]+", " ");
+    }
+
+    private static CommandRunner.CommandResult setConfig(int index, String key, String value) {
+        List<String> args = new ArrayList<>(Arrays.asList("setconfigex", "-i", String.valueOf(index), key));
+        args.addAll(Arrays.asList(value.split(" ")));
+        return CommandRunner.memuc(QUERY_TIMEOUT_MS, args.toArray(new String[0]));
+    }
+}
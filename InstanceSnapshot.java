@@ -0,0 +1,66 @@
+package newgame;
+
+/**
+ * Immutable view of one instance at a point in time. {@link MemuInstance} swaps these atomically and
+ * stamps each one it installs with a {@link #version} one higher than the snapshot it replaced, however many
+ * with* calls built it.
+ */
+public final class InstanceSnapshot {
+    public final int index;
+    public final String name;
+    public final String status;
+    public final String deviceSerial;
+    public final String state;
+    public final boolean autoStartGameRunning;
+    public final boolean autoGatherRunning;
+    public final long version;
+
+    InstanceSnapshot(int index, String name, String status, String deviceSerial, String state,
+                     boolean autoStartGameRunning, boolean autoGatherRunning, long version) {
+        this.index = index;
+        this.name = name;
+        this.status = status;
+        this.deviceSerial = deviceSerial;
+        this.state = state;
+        this.autoStartGameRunning = autoStartGameRunning;
+        this.autoGatherRunning = autoGatherRunning;
+        this.version = version;
+    }
+
+    public InstanceSnapshot withName(String name) {
+        String value = (name != null && !name.isEmpty()) ? name : "Instance " + index;
+        if (value.equals(this.name)) return this;
+        return new InstanceSnapshot(index, value, status, deviceSerial, state, autoStartGameRunning, autoGatherRunning, version);
+    }
+
+    public InstanceSnapshot withStatus(String status) {
+        String value = (status != null) ? status : "Unknown";
+        if (value.equals(this.status)) return this;
+        return new InstanceSnapshot(index, name, value, deviceSerial, state, autoStartGameRunning, autoGatherRunning, version);
+    }
+
+    public InstanceSnapshot withState(String state) {
+        String value = (state != null) ? state : "Idle";
+        if (value.equals(this.state)) return this;
+        return new InstanceSnapshot(index, name, status, deviceSerial, value, autoStartGameRunning, autoGatherRunning, version);
+    }
+
+    public InstanceSnapshot withAutoStartGameRunning(boolean running) {
+        if (running == autoStartGameRunning) return this;
+        return new InstanceSnapshot(index, name, status, deviceSerial, state, running, autoGatherRunning, version);
+    }
+
+    public InstanceSnapshot withAutoGatherRunning(boolean running) {
+        if (running == autoGatherRunning) return this;
+        return new InstanceSnapshot(index, name, status, deviceSerial, state, autoStartGameRunning, running, version);
+    }
+
+    InstanceSnapshot withVersion(long version) {
+        return new InstanceSnapshot(index, name, status, deviceSerial, state, autoStartGameRunning, autoGatherRunning, version);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MemuInstance[%d: %s (%s) v%d]", index, name, status, version);
+    }
+}
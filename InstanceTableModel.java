@@ -0,0 +1,188 @@
+package newgame;
+
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Table model for the instance list, keyed by MEmu instance index.
+ *
+ * Refreshes are applied as a diff (insert/update/delete of individual rows) and existing
+ * {@link MemuInstance} objects are kept, so tasks holding them keep updating the visible row.
+ * Rows subscribe to their instance's snapshot changes (from any thread); these are coalesced and
+ * flushed to the table at most once per {@link #FRAME_INTERVAL_MS}.
+ *
+ * Row structure (setInstances/upsert) must only be changed on the EDT.
+ */
+public class InstanceTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+    public static final int COL_INDEX = 0;
+    public static final int COL_NAME = 1;
+    public static final int COL_STATUS = 2;
+    public static final int COL_STATE = 3;
+    public static final int COL_SERIAL = 4;
+    public static final int COL_ACTIONS = 5;
+
+    private static final String[] COLUMNS = {"Index", "Name", "Status", "State", "Serial", "Actions"};
+    private static final int FRAME_INTERVAL_MS = 33; // ~30 repaints per second at most
+
+    private final List<MemuInstance> rows = new ArrayList<>();                      // EDT only
+    private final Map<Integer, MemuInstance> byIndex = new ConcurrentHashMap<>();
+    private final Set<Integer> dirty = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final javax.swing.Timer flushTimer;
+    private final MemuInstance.Listener changeListener = (previous, current) -> markDirty(current.index);
+
+    public InstanceTableModel() {
+        flushTimer = new javax.swing.Timer(FRAME_INTERVAL_MS, e -> flush());
+        flushTimer.setRepeats(false);
+    }
+
+    @Override public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override public String getColumnName(int col) {
+        return COLUMNS[col];
+    }
+
+    @Override public Class<?> getColumnClass(int col) {
+        return col == COL_INDEX ? Integer.class : String.class;
+    }
+
+    @Override public boolean isCellEditable(int row, int col) {
+        return col == COL_ACTIONS;
+    }
+
+    @Override public Object getValueAt(int row, int col) {
+        InstanceSnapshot inst = rows.get(row).snapshot();
+        switch (col) {
+            case COL_INDEX: return inst.index;
+            case COL_NAME: return inst.name;
+            case COL_STATUS: return inst.status;
+            case COL_STATE: return inst.state;
+            case COL_SERIAL: return inst.deviceSerial;
+            default: return "";
+        }
+    }
+
+    public MemuInstance getInstanceAt(int row) {
+        return rows.get(row);
+    }
+
+    /**
+     * Safe to call from any thread.
+     */
+    public MemuInstance getInstance(int index) {
+        return byIndex.get(index);
+    }
+
+    /**
+     * Snapshot of the current rows, in table order.
+     */
+    public List<MemuInstance> getInstances() {
+        return new ArrayList<>(rows);
+    }
+
+    /**
+     * Apply a fresh instance listing. Rows are matched by index: known instances are updated in place,
+     * new ones inserted and missing ones removed.
+     */
+    public void setInstances(List<MemuInstance> latest) {
+        Map<Integer, MemuInstance> incoming = new LinkedHashMap<>();
+        for (MemuInstance inst : latest) {
+            incoming.put(inst.index, inst);
+        }
+
+        for (int row = rows.size() - 1; row >= 0; row--) {
+            MemuInstance existing = rows.get(row);
+            if (!incoming.containsKey(existing.index)) {
+                rows.remove(row);
+                byIndex.remove(existing.index);
+                existing.removeListener(changeListener);
+                fireTableRowsDeleted(row, row);
+            }
+        }
+
+        for (MemuInstance inst : incoming.values()) {
+            upsert(inst);
+        }
+    }
+
+    /**
+     * Insert an instance, or copy name/status onto the instance already shown for that index.
+     */
+    public void upsert(MemuInstance inst) {
+        MemuInstance existing = byIndex.get(inst.index);
+        if (existing != null) {
+            InstanceSnapshot latest = inst.snapshot();
+            existing.update(s -> s.withName(latest.name).withStatus(latest.status));
+            return;
+        }
+
+        int row = insertionPoint(inst.index);
+        rows.add(row, inst);
+        byIndex.put(inst.index, inst);
+        inst.addListener(changeListener);
+        fireTableRowsInserted(row, row);
+    }
+
+    public int rowOf(int index) {
+        int lo = 0, hi = rows.size() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int midIndex = rows.get(mid).index;
+            if (midIndex == index) return mid;
+            if (midIndex < index) lo = mid + 1; else hi = mid - 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Note that an instance's row needs repainting. Safe to call from any thread, as often as you like.
+     */
+    public void markDirty(int index) {
+        dirty.add(index);
+        if (flushScheduled.compareAndSet(false, true)) {
+            if (SwingUtilities.isEventDispatchThread()) {
+                flushTimer.restart();
+            } else {
+                SwingUtilities.invokeLater(flushTimer::restart);
+            }
+        }
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        int first = Integer.MAX_VALUE;
+        int last = -1;
+        for (Iterator<Integer> it = dirty.iterator(); it.hasNext(); ) {
+            int row = rowOf(it.next());
+            it.remove();
+            if (row >= 0) {
+                first = Math.min(first, row);
+                last = Math.max(last, row);
+            }
+        }
+        if (last >= 0) {
+            fireTableRowsUpdated(first, last);
+        }
+    }
+
+    // Rows are kept sorted by instance index so lookups can binary search
+    private int insertionPoint(int index) {
+        int lo = 0, hi = rows.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (rows.get(mid).index < index) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+}
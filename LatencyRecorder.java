@@ -0,0 +1,138 @@
+package newgame;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram in the style of HdrHistogram: log-linear buckets (32 per power of two, so about
+ * 3% precision) over microseconds, from 1us up to an hour. Recording is a couple of atomic increments.
+ *
+ * Keeps the totals since start plus a rolling window, rotated by {@link Metrics}, so a degrading instance
+ * shows up in the recent percentiles even after hours of healthy history.
+ */
+public class LatencyRecorder {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final long MAX_MICROS = 3_600_000_000L;
+    private static final int BUCKETS = (63 - Long.numberOfLeadingZeros(MAX_MICROS) - SUB_BITS + 2) * SUB_COUNT;
+
+    /**
+     * Immutable-once-rotated histogram.
+     */
+    public static class Histogram {
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sumMicros = new LongAdder();
+        private final AtomicLong maxMicros = new AtomicLong();
+        final long startedAt = System.currentTimeMillis();
+        volatile long endedAt; // 0 while still recording
+
+        void record(long micros) {
+            counts.incrementAndGet(indexOf(micros));
+            count.increment();
+            sumMicros.add(micros);
+            maxMicros.accumulateAndGet(micros, Math::max);
+        }
+
+        public long count() {
+            return count.sum();
+        }
+
+        public double meanMillis() {
+            long n = count.sum();
+            return n == 0 ? 0 : sumMicros.sum() / (n * 1000.0);
+        }
+
+        public double sumMillis() {
+            return sumMicros.sum() / 1000.0;
+        }
+
+        public double maxMillis() {
+            return maxMicros.get() / 1000.0;
+        }
+
+        /**
+         * Value at the given percentile (0-100), in milliseconds; the upper bound of its bucket.
+         */
+        public double percentileMillis(double percentile) {
+            long n = count.sum();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * n));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= rank) {
+                    return Math.min(highestEquivalent(i), maxMicros.get()) / 1000.0;
+                }
+            }
+            return maxMillis();
+        }
+
+        /**
+         * Recordings per minute over the histogram's lifetime (or window).
+         */
+        public double ratePerMinute() {
+            long end = endedAt != 0 ? endedAt : System.currentTimeMillis();
+            long elapsed = Math.max(1, end - startedAt);
+            return count.sum() * 60000.0 / elapsed;
+        }
+    }
+
+    private final Histogram total = new Histogram();
+    private final AtomicReference<Histogram> window = new AtomicReference<>(new Histogram());
+    private volatile Histogram lastWindow = new Histogram();
+
+    public void recordNanos(long nanos) {
+        recordMicros(nanos / 1000);
+    }
+
+    public void recordMillis(long millis) {
+        recordMicros(millis * 1000);
+    }
+
+    public void recordMicros(long micros) {
+        long clamped = Math.max(0, Math.min(micros, MAX_MICROS));
+        total.record(clamped);
+        window.get().record(clamped);
+    }
+
+    public Histogram total() {
+        return total;
+    }
+
+    /**
+     * The last complete window.
+     */
+    public Histogram recent() {
+        return lastWindow;
+    }
+
+    void rotate() {
+        Histogram finished = window.getAndSet(new Histogram());
+        finished.endedAt = System.currentTimeMillis();
+        lastWindow = finished;
+    }
+
+    static int indexOf(long micros) {
+        if (micros < SUB_COUNT) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int shift = exponent - SUB_BITS;
+        long mantissa = micros >>> shift; // in [SUB_COUNT, 2 * SUB_COUNT)
+        return Math.min(BUCKETS - 1, shift * SUB_COUNT + (int) mantissa);
+    }
+
+    static long highestEquivalent(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_COUNT - 1;
+        long mantissa = index - (long) shift * SUB_COUNT;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,479 @@
+package newgame;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Levelled, asynchronous logger. Callers only fill a slot in a ring buffer; a single background thread
+ * formats and writes, so 30 instances logging never contend on console I/O.
+ *
+ *   private static final Log log = Log.get(MarchDetector.class);
+ *   log.at(index).info("Found {} marches", marches.size());
+ *
+ * Arguments are substituted for {} on the writer thread, and nothing is built at all when the level is
+ * disabled. Pass values that won't change afterwards (numbers, strings); use the Supplier overloads for
+ * messages that are expensive to compute.
+ *
+ * Configuration:
+ *   -Dbot.log.level=INFO       TRACE, DEBUG, INFO, WARN or ERROR
+ *   -Dbot.log.level.3=DEBUG    override for one instance
+ *   -Dbot.log.buffer=8192      ring slots; when full, DEBUG/INFO events are dropped and WARN/ERROR wait
+ *   -Dbot.log.binary=bot.blog  also write compact binary records there (see {@link LogDecoder});
+ *                              the console then only shows WARN and above unless -Dbot.log.console is set
+ */
+public final class Log {
+    public enum Level { TRACE, DEBUG, INFO, WARN, ERROR }
+
+    public static final int NO_INSTANCE = -1;
+
+    private static final Level DEFAULT_LEVEL = level(System.getProperty("bot.log.level"), Level.INFO);
+    private static final String BINARY_FILE = System.getProperty("bot.log.binary");
+    private static final Level CONSOLE_LEVEL = level(System.getProperty("bot.log.console"),
+        BINARY_FILE != null ? Level.WARN : Level.TRACE);
+
+    private static final int CAPACITY = Integer.highestOneBit(Math.max(64, Integer.getInteger("bot.log.buffer", 8192)));
+    private static final int MASK = CAPACITY - 1;
+    // The writer polls every 1 ms while busy, backing off to 50 ms while nothing is logged
+    private static final long MIN_IDLE_PARK_NANOS = 1_000_000L;
+    private static final long MAX_IDLE_PARK_NANOS = 50_000_000L;
+
+    // One event in flight; reused once the writer has consumed it
+    private static final class Slot {
+        volatile long seq = -1;
+        long time;
+        Level level;
+        Log logger;
+        String thread;
+        String format;
+        Object[] args;
+        Throwable error;
+    }
+
+    private static final Slot[] ring = new Slot[CAPACITY];
+    private static final AtomicLong claimed = new AtomicLong();
+    private static volatile long consumed;
+    private static final AtomicLong dropped = new AtomicLong();
+    private static final Object sinkLock = new Object();
+    private static volatile boolean direct; // after shutdown drain: write on the caller's thread
+
+    private static final TextSink console = new TextSink();
+    private static final BinarySink binary = BinarySink.open(BINARY_FILE);
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            ring[i] = new Slot();
+        }
+        Thread writer = new Thread(Log::drainLoop, "LogWriter");
+        writer.setDaemon(true);
+        writer.start();
+        try {
+            Runtime.getRuntime().addShutdownHook(new Thread(Log::shutdown, "LogFlush"));
+        } catch (IllegalStateException alreadyShuttingDown) {
+            direct = true; // First used from another shutdown hook
+        }
+    }
+
+    private final String component;
+    private final int instance;
+    private final Level threshold;
+    private final Map<Integer, Log> instances;
+
+    private Log(String component, int instance, Map<Integer, Log> instances) {
+        this.component = component;
+        this.instance = instance;
+        this.threshold = instance == NO_INSTANCE ? DEFAULT_LEVEL
+            : level(System.getProperty("bot.log.level." + instance), DEFAULT_LEVEL);
+        this.instances = instances;
+    }
+
+    public static Log get(Class<?> type) {
+        return new Log(type.getSimpleName(), NO_INSTANCE, new ConcurrentHashMap<>());
+    }
+
+    /**
+     * The same logger, tagging events with an instance index.
+     */
+    public Log at(int index) {
+        if (index == instance) {
+            return this;
+        }
+        return instances.computeIfAbsent(index, i -> new Log(component, i, instances));
+    }
+
+    public boolean isEnabled(Level level) {
+        return level.ordinal() >= threshold.ordinal();
+    }
+
+    public boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+
+    public void trace(String format, Object... args) {
+        if (isEnabled(Level.TRACE)) {
+            publish(Level.TRACE, format, args, null);
+        }
+    }
+
+    public void debug(String format, Object... args) {
+        if (isEnabled(Level.DEBUG)) {
+            publish(Level.DEBUG, format, args, null);
+        }
+    }
+
+    public void debug(Supplier<String> message) {
+        if (isEnabled(Level.DEBUG)) {
+            publish(Level.DEBUG, "{}", new Object[] { message.get() }, null);
+        }
+    }
+
+    public void info(String format, Object... args) {
+        if (isEnabled(Level.INFO)) {
+            publish(Level.INFO, format, args, null);
+        }
+    }
+
+    public void warn(String format, Object... args) {
+        if (isEnabled(Level.WARN)) {
+            publish(Level.WARN, format, args, null);
+        }
+    }
+
+    public void warn(String message, Throwable error) {
+        if (isEnabled(Level.WARN)) {
+            publish(Level.WARN, message, null, error);
+        }
+    }
+
+    public void error(String format, Object... args) {
+        if (isEnabled(Level.ERROR)) {
+            publish(Level.ERROR, format, args, null);
+        }
+    }
+
+    public void error(String message, Throwable error) {
+        if (isEnabled(Level.ERROR)) {
+            publish(Level.ERROR, message, null, error);
+        }
+    }
+
+    /**
+     * Block until everything logged so far has been written (bounded to a couple of seconds).
+     */
+    public static void flush() {
+        long target = claimed.get();
+        long deadline = System.nanoTime() + 2_000_000_000L;
+        while (consumed < target && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(100_000);
+        }
+        synchronized (sinkLock) {
+            console.flush();
+            if (binary != null) {
+                binary.flush();
+            }
+        }
+    }
+
+    /**
+     * Events dropped because the ring was full.
+     */
+    public static long dropped() {
+        return dropped.get();
+    }
+
+    private void publish(Level level, String format, Object[] args, Throwable error) {
+        long now = System.currentTimeMillis();
+        String thread = Thread.currentThread().getName();
+        if (direct) {
+            synchronized (sinkLock) {
+                write(now, level, this, thread, format, args, error);
+                console.flush();
+                if (binary != null) {
+                    binary.flush();
+                }
+            }
+            return;
+        }
+
+        long seq;
+        while (true) {
+            seq = claimed.get();
+            if (seq - consumed >= CAPACITY) {
+                if (level.ordinal() < Level.WARN.ordinal()) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+                LockSupport.parkNanos(50_000);
+                continue;
+            }
+            if (claimed.compareAndSet(seq, seq + 1)) {
+                break;
+            }
+        }
+
+        Slot slot = ring[(int) (seq & MASK)];
+        slot.time = now;
+        slot.level = level;
+        slot.logger = this;
+        slot.thread = thread;
+        slot.format = format;
+        slot.args = args;
+        slot.error = error;
+        slot.seq = seq; // publish
+    }
+
+    private static void drainLoop() {
+        long cursor = 0;
+        boolean unflushed = false;
+        long idleParkNanos = MIN_IDLE_PARK_NANOS;
+        while (true) {
+            Slot slot = ring[(int) (cursor & MASK)];
+            if (slot.seq != cursor) {
+                // Flush once when the ring runs dry, then back off while it stays empty
+                if (unflushed) {
+                    synchronized (sinkLock) {
+                        console.flush();
+                        if (binary != null) {
+                            binary.flush();
+                        }
+                    }
+                    unflushed = false;
+                }
+                LockSupport.parkNanos(idleParkNanos);
+                idleParkNanos = Math.min(idleParkNanos * 2, MAX_IDLE_PARK_NANOS);
+                continue;
+            }
+            synchronized (sinkLock) {
+                write(slot.time, slot.level, slot.logger, slot.thread, slot.format, slot.args, slot.error);
+            }
+            unflushed = true;
+            idleParkNanos = MIN_IDLE_PARK_NANOS;
+            slot.logger = null;
+            slot.args = null;
+            slot.error = null;
+            consumed = ++cursor;
+        }
+    }
+
+    private static void write(long time, Level level, Log logger, String thread, String format, Object[] args, Throwable error) {
+        if (level.ordinal() >= CONSOLE_LEVEL.ordinal()) {
+            console.write(time, level, logger.component, logger.instance, format, args, error);
+        }
+        if (binary != null) {
+            binary.write(time, level, logger.component, logger.instance, thread, format, args, error);
+        }
+    }
+
+    private static void shutdown() {
+        flush();
+        direct = true;
+        long lost = dropped.get();
+        if (lost > 0) {
+            get(Log.class).warn("{} log events were dropped because the buffer was full", lost);
+        }
+    }
+
+    /**
+     * Substitute args for {} in order. A trailing Throwable without a placeholder is ignored here; the
+     * sinks print it separately.
+     */
+    static String format(String format, Object[] args) {
+        if (args == null || args.length == 0 || format.indexOf('{') < 0) {
+            return format;
+        }
+        StringBuilder sb = new StringBuilder(format.length() + 16 * args.length);
+        int next = 0;
+        int from = 0;
+        int at;
+        while ((at = format.indexOf("{}", from)) >= 0 && next < args.length) {
+            sb.append(format, from, at).append(args[next++]);
+            from = at + 2;
+        }
+        return sb.append(format, from, format.length()).toString();
+    }
+
+    static Throwable trailingError(Object[] args) {
+        if (args != null && args.length > 0 && args[args.length - 1] instanceof Throwable) {
+            return (Throwable) args[args.length - 1];
+        }
+        return null;
+    }
+
+    static String stackTrace(Throwable error) {
+        StringWriter sw = new StringWriter();
+        error.printStackTrace(new PrintWriter(sw));
+        return sw.toString();
+    }
+
+    static String line(long time, Level level, String component, int instance, String message) {
+        return String.format("%s %-5s %s%s - %s", TextSink.TIME.format(Instant.ofEpochMilli(time)), level,
+            instance == NO_INSTANCE ? "" : "[#" + instance + "] ", component, message);
+    }
+
+    private static Level level(String name, Level fallback) {
+        if (name == null || name.isEmpty()) {
+            return fallback;
+        }
+        try {
+            return Level.valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+
+    // Buffered console output; only flushed when the ring runs dry, not per line like System.out
+    private static final class TextSink {
+        static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+        private final PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16), false);
+        private final PrintStream err = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.err), 1 << 14), false);
+
+        void write(long time, Level level, String component, int instance, String format, Object[] args, Throwable error) {
+            PrintStream stream = level.ordinal() >= Level.WARN.ordinal() ? err : out;
+            if (stream == err) {
+                out.flush(); // keep interleaving with stdout sensible
+            }
+            stream.println(line(time, level, component, instance, format(format, args)));
+            Throwable t = error != null ? error : trailingError(args);
+            if (t != null) {
+                t.printStackTrace(stream);
+            }
+        }
+
+        void flush() {
+            out.flush();
+            err.flush();
+        }
+    }
+
+    /**
+     * Records are written with each format string, component and thread name sent once as a dictionary
+     * entry, so an event costs a few bytes plus its arguments and is never formatted at runtime.
+     */
+    static final class BinarySink {
+        static final int MAGIC = 0x424C4F47; // "BLOG"
+        static final int VERSION = 1;
+        static final byte DEFINE = 1;
+        static final byte EVENT = 2;
+        static final byte ARG_NULL = 0, ARG_INT = 1, ARG_LONG = 2, ARG_DOUBLE = 3, ARG_BOOLEAN = 4, ARG_STRING = 5;
+        private static final int MAX_STRINGS = 8192;
+
+        private final DataOutputStream out;
+        private final Map<String, Integer> ids = new HashMap<>();
+        private boolean failed;
+
+        private BinarySink(DataOutputStream out) {
+            this.out = out;
+        }
+
+        static BinarySink open(String file) {
+            if (file == null || file.isEmpty()) {
+                return null;
+            }
+            try {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                return new BinarySink(out);
+            } catch (IOException e) {
+                System.err.println("⚠️ Couldn't open binary log " + file + ": " + e.getMessage());
+                return null;
+            }
+        }
+
+        void write(long time, Level level, String component, int instance, String thread, String format, Object[] args, Throwable error) {
+            if (failed) {
+                return;
+            }
+            try {
+                int componentId = id(component);
+                int threadId = id(thread);
+                int formatId = id(format);
+                Throwable t = error != null ? error : trailingError(args);
+                int argc = args == null ? 0 : args.length;
+
+                out.writeByte(EVENT);
+                out.writeLong(time);
+                out.writeByte(level.ordinal());
+                out.writeInt(instance);
+                out.writeInt(componentId);
+                out.writeInt(threadId);
+                out.writeInt(formatId);
+                if (formatId < 0) {
+                    writeString(format);
+                }
+                out.writeByte(argc);
+                for (int i = 0; i < argc; i++) {
+                    writeArg(args[i] instanceof Throwable ? String.valueOf(args[i]) : args[i]);
+                }
+                writeString(t == null ? "" : stackTrace(t));
+            } catch (IOException e) {
+                failed = true;
+                System.err.println("⚠️ Binary log disabled: " + e.getMessage());
+            }
+        }
+
+        // -1 once the dictionary is full; the string is then written inline
+        private int id(String s) throws IOException {
+            Integer id = ids.get(s);
+            if (id != null) {
+                return id;
+            }
+            if (ids.size() >= MAX_STRINGS) {
+                return -1;
+            }
+            int next = ids.size();
+            ids.put(s, next);
+            out.writeByte(DEFINE);
+            out.writeInt(next);
+            writeString(s);
+            return next;
+        }
+
+        private void writeArg(Object arg) throws IOException {
+            if (arg == null) {
+                out.writeByte(ARG_NULL);
+            } else if (arg instanceof Integer || arg instanceof Short || arg instanceof Byte) {
+                out.writeByte(ARG_INT);
+                out.writeInt(((Number) arg).intValue());
+            } else if (arg instanceof Long) {
+                out.writeByte(ARG_LONG);
+                out.writeLong((Long) arg);
+            } else if (arg instanceof Double) {
+                // Float isn't matched here so it goes out as text: widened to double it'd decode as 0.10000000149011612
+                out.writeByte(ARG_DOUBLE);
+                out.writeDouble(((Number) arg).doubleValue());
+            } else if (arg instanceof Boolean) {
+                out.writeByte(ARG_BOOLEAN);
+                out.writeBoolean((Boolean) arg);
+            } else {
+                out.writeByte(ARG_STRING);
+                writeString(String.valueOf(arg));
+            }
+        }
+
+        private void writeString(String s) throws IOException {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        void flush() {
+            if (!failed) {
+                try {
+                    out.flush();
+                } catch (IOException e) {
+                    failed = true;
+                }
+            }
+        }
+    }
+}
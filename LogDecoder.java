@@ -0,0 +1,109 @@
+package newgame;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns a binary log written with -Dbot.log.binary back into the text the console would have shown.
+ *
+ *   java newgame.LogDecoder bot.blog [minLevel] [instance]
+ */
+public class LogDecoder {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: LogDecoder <file> [TRACE|DEBUG|INFO|WARN|ERROR] [instance]");
+            System.exit(2);
+        }
+        Log.Level minLevel = args.length > 1 ? Log.Level.valueOf(args[1].toUpperCase()) : Log.Level.TRACE;
+        Integer onlyInstance = args.length > 2 ? Integer.valueOf(args[2]) : null;
+
+        PrintStream out = new PrintStream(new BufferedOutputStream(System.out), false, "UTF-8");
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(args[0]), 1 << 16))) {
+            long events = decode(in, minLevel, onlyInstance, out);
+            out.flush();
+            System.err.println("Decoded " + events + " events");
+        }
+    }
+
+    static long decode(DataInputStream in, Log.Level minLevel, Integer onlyInstance, PrintStream out) throws IOException {
+        if (in.readInt() != Log.BinarySink.MAGIC) {
+            throw new IOException("Not a binary bot log");
+        }
+        int version = in.readInt();
+        if (version != Log.BinarySink.VERSION) {
+            throw new IOException("Unsupported binary log version " + version);
+        }
+
+        List<String> strings = new ArrayList<>();
+        long events = 0;
+        while (true) {
+            int tag;
+            try {
+                tag = in.readByte();
+            } catch (EOFException e) {
+                return events;
+            }
+            try {
+                if (tag == Log.BinarySink.DEFINE) {
+                    int id = in.readInt();
+                    String s = readString(in);
+                    while (strings.size() <= id) {
+                        strings.add(null);
+                    }
+                    strings.set(id, s);
+                    continue;
+                }
+                if (tag != Log.BinarySink.EVENT) {
+                    throw new IOException("Corrupt record tag " + tag);
+                }
+
+                long time = in.readLong();
+                Log.Level level = Log.Level.values()[in.readByte()];
+                int instance = in.readInt();
+                String component = strings.get(in.readInt());
+                in.readInt(); // thread, kept for tooling that wants it
+                int formatId = in.readInt();
+                String format = formatId < 0 ? readString(in) : strings.get(formatId);
+                Object[] args = new Object[in.readByte()];
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = readArg(in);
+                }
+                String stackTrace = readString(in);
+
+                if (level.ordinal() < minLevel.ordinal() || (onlyInstance != null && onlyInstance != instance)) {
+                    continue;
+                }
+                events++;
+                out.println(Log.line(time, level, component, instance, Log.format(format, args)));
+                if (!stackTrace.isEmpty()) {
+                    out.print(stackTrace);
+                }
+            } catch (EOFException e) {
+                System.err.println("⚠️ Log ends with a truncated record");
+                return events;
+            }
+        }
+    }
+
+    private static Object readArg(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case Log.BinarySink.ARG_NULL: return null;
+            case Log.BinarySink.ARG_INT: return in.readInt();
+            case Log.BinarySink.ARG_LONG: return in.readLong();
+            case Log.BinarySink.ARG_DOUBLE: return in.readDouble();
+            case Log.BinarySink.ARG_BOOLEAN: return in.readBoolean();
+            case Log.BinarySink.ARG_STRING: return readString(in);
+            default: throw new IOException("Corrupt argument type " + type);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
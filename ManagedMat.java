@@ -0,0 +1,144 @@
+package newgame;
+
+import org.opencv.core.Mat;
+import java.lang.ref.Cleaner;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An OpenCV Mat owned by exactly one piece of code, for use with try-with-resources:
+ *
+ *   try (ManagedMat screen = ManagedMat.of("match", Imgcodecs.imread(path))) { ... }
+ *
+ * Live native bytes and Mat counts are tracked per subsystem ("match", "ocr", ...) and printed on shutdown.
+ * A ManagedMat that becomes unreachable without close() is released by a Cleaner and counted as leaked;
+ * with -Dbot.mat.debug=true the leak is logged with the stack of the code that allocated it.
+ */
+public final class ManagedMat implements AutoCloseable {
+    private static final Log log = Log.get(ManagedMat.class);
+    static final boolean DEBUG = Boolean.getBoolean("bot.mat.debug");
+
+    private static final Cleaner CLEANER = Cleaner.create();
+    private static final Map<String, Usage> usage = new ConcurrentHashMap<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> log.info("{}", report()), "MatReport"));
+    }
+
+    private static class Usage {
+        final AtomicLong liveBytes = new AtomicLong();
+        final AtomicLong liveMats = new AtomicLong();
+        final AtomicLong peakBytes = new AtomicLong();
+        final AtomicLong leaked = new AtomicLong();
+    }
+
+    // Everything the Cleaner needs; must not reference the ManagedMat itself
+    private static class State implements Runnable {
+        final Mat mat;
+        final String subsystem;
+        final long bytes;
+        final boolean cached;        // owned by a cache that may simply be dropped; not a leak
+        final Throwable allocatedAt; // only in debug mode
+        volatile boolean closed;
+
+        State(Mat mat, String subsystem, long bytes, boolean cached) {
+            this.mat = mat;
+            this.subsystem = subsystem;
+            this.bytes = bytes;
+            this.cached = cached;
+            this.allocatedAt = DEBUG ? new Throwable("Mat allocated here") : null;
+        }
+
+        @Override
+        public void run() {
+            Usage u = usage(subsystem);
+            u.liveBytes.addAndGet(-bytes);
+            u.liveMats.decrementAndGet();
+            if (!closed && !cached) {
+                u.leaked.incrementAndGet();
+                if (DEBUG) {
+                    log.warn("⚠️ Leaked {} byte Mat in subsystem '{}'", bytes, subsystem, allocatedAt);
+                }
+            }
+            mat.release();
+        }
+    }
+
+    private final State state;
+    private final Cleaner.Cleanable cleanable;
+
+    private ManagedMat(State state) {
+        this.state = state;
+        this.cleanable = CLEANER.register(this, state);
+    }
+
+    /**
+     * Take ownership of a Mat, e.g. the result of imread. Views (submat) count as zero bytes.
+     */
+    public static ManagedMat of(String subsystem, Mat mat) {
+        return track(new State(mat, subsystem, ownBytes(mat), false));
+    }
+
+    /**
+     * Like {@link #of}, for Mats held by a cache (e.g. per-thread buffers) that is allowed to be garbage
+     * collected without closing them.
+     */
+    public static ManagedMat cached(String subsystem, Mat mat) {
+        return track(new State(mat, subsystem, ownBytes(mat), true));
+    }
+
+    private static ManagedMat track(State state) {
+        Usage u = usage(state.subsystem);
+        long live = u.liveBytes.addAndGet(state.bytes);
+        u.liveMats.incrementAndGet();
+        u.peakBytes.accumulateAndGet(live, Math::max);
+        return new ManagedMat(state);
+    }
+
+    public Mat get() {
+        if (state.closed) {
+            throw new IllegalStateException("Mat already closed");
+        }
+        return state.mat;
+    }
+
+    public boolean empty() {
+        return state.mat.empty();
+    }
+
+    /**
+     * Release the Mat. Safe to call more than once.
+     */
+    @Override
+    public void close() {
+        state.closed = true;
+        cleanable.clean();
+    }
+
+    /**
+     * Live bytes, live Mats, peak bytes and leaks per subsystem.
+     */
+    public static String report() {
+        StringBuilder sb = new StringBuilder("=== Native Mat memory ===");
+        for (Map.Entry<String, Usage> e : new TreeMap<>(usage).entrySet()) {
+            Usage u = e.getValue();
+            sb.append(String.format("%n  %-10s live %7d KB in %3d mats, peak %7d KB, leaked %d",
+                e.getKey(), u.liveBytes.get() / 1024, u.liveMats.get(), u.peakBytes.get() / 1024, u.leaked.get()));
+        }
+        return sb.toString();
+    }
+
+    public static long liveBytes(String subsystem) {
+        return usage(subsystem).liveBytes.get();
+    }
+
+    private static Usage usage(String subsystem) {
+        return usage.computeIfAbsent(subsystem, s -> new Usage());
+    }
+
+    static long ownBytes(Mat mat) {
+        return mat.isSubmatrix() ? 0 : mat.total() * mat.elemSize();
+    }
+}
@@ -7,11 +7,16 @@ import java.awt.Point;
 import java.awt.Rectangle;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import java.util.regex.Matcher;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 public class MarchDetector {
+    private static final Log log = Log.get(MarchDetector.class);
     
     public enum MarchStatus {
         IDLE, UNLOCK, CANNOT_USE, GATHERING
@@ -22,16 +27,26 @@ public class MarchDetector {
         public final MarchStatus status;
         public final String remainingTime;
         public final String resourceInfo;
+        public final long returnsAt; // Epoch ms predicted from remainingTime, -1 if unknown
         
         public MarchInfo(int queueNumber, MarchStatus status) {
             this(queueNumber, status, null, null);
         }
         
         public MarchInfo(int queueNumber, MarchStatus status, String remainingTime, String resourceInfo) {
+            this(queueNumber, status, remainingTime, resourceInfo, System.currentTimeMillis());
+        }
+        
+        /**
+         * readAt is when the screen showing remainingTime was captured; the return is predicted from then.
+         */
+        public MarchInfo(int queueNumber, MarchStatus status, String remainingTime, String resourceInfo, long readAt) {
             this.queueNumber = queueNumber;
             this.status = status;
             this.remainingTime = remainingTime;
             this.resourceInfo = resourceInfo;
+            long remainingMs = parseDurationMillis(remainingTime);
+            this.returnsAt = remainingMs >= 0 ? readAt + remainingMs : -1;
         }
         
         @Override
@@ -79,31 +94,54 @@ public class MarchDetector {
         }
     }
     
+    // H:MM:SS or MM:SS march timers; OCR often reads the colons as dots, and amounts like 1.25M are not timers
+    private static final Pattern TIMER_PATTERN = Pattern.compile("(?<!\\d)(\\d{1,2})[:.](\\d{2})(?:[:.](\\d{2}))?(?![\\w.%])");
+    
     // Tesseract OCR path - adjust this to your installation
     private static final String TESSERACT_PATH = "C:\\Program Files\\Tesseract-OCR\\tesseract.exe";
+    private static final long OCR_TIMEOUT_MS = 30000;
+    
+    // -Dbot.ocr.capture=<dir> saves every panel's OCR text there, e.g. as benchmark input (benchmarks/ocr)
+    private static final String OCR_CAPTURE_DIR = System.getProperty("bot.ocr.capture");
+    
+    // Last panel text per instance, reused while the cropped panel is pixel for pixel the same
+    private static final Map<Integer, PanelText> ocrCache = new ConcurrentHashMap<>();
+    
+    private static final class PanelText {
+        final long fingerprint; // Of the cropped panel PNG; identical pixels encode identically
+        final String text;
+        final long readAt;      // Capture time of the frame the text was read from
+        
+        PanelText(long fingerprint, String text, long readAt) {
+            this.fingerprint = fingerprint;
+            this.text = text;
+            this.readAt = readAt;
+        }
+    }
     
     /**
      * Open the left march panel by clicking open_left.png
      */
     public static boolean openLeftPanel(int instanceIndex) {
-        System.out.println("🔍 Opening left march panel for instance " + instanceIndex);
-        
-        String screenPath = "screenshots/open_left_" + instanceIndex + ".png";
-        if (!BotUtils.takeMenuScreenshotLegacy(instanceIndex, screenPath)) {
-            System.err.println("Failed to take screenshot for opening left panel");
-            return false;
+        log.at(instanceIndex).info("🔍 Opening left march panel");
+        
+        FramePipeline pipeline = FramePipeline.forInstance(instanceIndex);
+        Point openLeftButton;
+        try (FramePipeline.Frame frame = pipeline.current()) {
+            if (frame == null) {
+                log.at(instanceIndex).error("Failed to take screenshot for opening left panel");
+                return false;
+            }
+            openLeftButton = BotUtils.findTemplate(frame.path, "open_left.png", instanceIndex);
         }
-        
-        Point openLeftButton = BotUtils.findImageOnScreenGray(screenPath, "open_left.png", 0.6);
         if (openLeftButton != null) {
-            if (BotUtils.clickMenu(instanceIndex, openLeftButton)) {
-                System.out.println("✅ Clicked open left panel button");
-                BotUtils.delay(2000); // Wait for panel to open
+            if (pipeline.tap(openLeftButton, 2000)) { // Next frame is captured once the panel has opened
+                log.at(instanceIndex).info("✅ Clicked open left panel button");
                 return true;
             }
         }
         
-        System.err.println("❌ Could not find or click open_left.png");
+        log.at(instanceIndex).error("❌ Could not find or click open_left.png");
         return false;
     }
     
@@ -111,119 +149,171 @@ public class MarchDetector {
      * Click wilderness button to access march queues
      */
     public static boolean clickWildernessButton(int instanceIndex) {
-        System.out.println("🏔️ Clicking wilderness button for instance " + instanceIndex);
-        
-        String screenPath = "screenshots/wilderness_" + instanceIndex + ".png";
-        if (!BotUtils.takeMenuScreenshotLegacy(instanceIndex, screenPath)) {
-            System.err.println("Failed to take screenshot for wilderness button");
-            return false;
+        log.at(instanceIndex).info("🏔️ Clicking wilderness button");
+        
+        FramePipeline pipeline = FramePipeline.forInstance(instanceIndex);
+        Point wildernessButton;
+        try (FramePipeline.Frame frame = pipeline.current()) {
+            if (frame == null) {
+                log.at(instanceIndex).error("Failed to take screenshot for wilderness button");
+                return false;
+            }
+            wildernessButton = BotUtils.findTemplate(frame.path, "wilderness_button.png", instanceIndex);
         }
-        
-        Point wildernessButton = BotUtils.findImageOnScreenGray(screenPath, "wilderness_button.png", 0.6);
         if (wildernessButton != null) {
-            if (BotUtils.clickMenu(instanceIndex, wildernessButton)) {
-                System.out.println("✅ Clicked wilderness button");
-                BotUtils.delay(3000); // Wait for wilderness view to load
+            if (pipeline.tap(wildernessButton, 3000)) { // Next frame is captured once the wilderness view has loaded
+                log.at(instanceIndex).info("✅ Clicked wilderness button");
                 return true;
             }
         }
         
-        System.err.println("❌ Could not find or click wilderness_button.png");
+        log.at(instanceIndex).error("❌ Could not find or click wilderness_button.png");
         return false;
     }
     
     /**
      * Read march queue statuses using simplified OCR on left panel only
      */
+    @SuppressWarnings("try")
     public static List<MarchInfo> readMarchQueues(int instanceIndex) {
-        System.out.println("[Instance " + instanceIndex + "] 📋 Reading march queues...");
-        
+        log.at(instanceIndex).info("📋 Reading march queues...");
         // Take screenshot of the whole screen first
-        String fullScreenPath = "screenshots/march_full_" + instanceIndex + ".png";
-        if (!BotUtils.takeMenuScreenshotLegacy(instanceIndex, fullScreenPath)) {
-            System.err.println("❌ Failed to take full screenshot");
-            return new ArrayList<>();
-        }
-        
-        // Extract only the left march queue panel (based on your image)
-        String leftPanelPath = extractLeftPanel(fullScreenPath, instanceIndex);
-        if (leftPanelPath == null) {
-            System.err.println("❌ Failed to extract left panel");
-            return new ArrayList<>();
-        }
-        
-        // OCR only the left panel - much cleaner text
-        String fullText = performSimpleOCR(leftPanelPath);
-        if (fullText == null || fullText.trim().isEmpty()) {
-            System.err.println("❌ OCR returned empty text");
-            return new ArrayList<>();
+        try (Trace.Span span = Trace.begin(instanceIndex, "readMarchQueues");
+             FramePipeline.Frame frame = FramePipeline.forInstance(instanceIndex).current()) {
+            if (frame == null) {
+                log.at(instanceIndex).error("❌ Failed to take full screenshot");
+                return new ArrayList<>();
+            }
+            
+            // Extract only the left march queue panel (based on your image)
+            String leftPanelPath;
+            try (Trace.Span step = Trace.begin(instanceIndex, "extractLeftPanel")) {
+                leftPanelPath = extractLeftPanel(frame.path, instanceIndex);
+            }
+            if (leftPanelPath == null) {
+                log.at(instanceIndex).error("❌ Failed to extract left panel");
+                return new ArrayList<>();
+            }
+            
+            // The panel is exactly as it was when last read, timer digits included: its text is the same too.
+            // The timers were read at the earlier capture, so the returns are predicted from then.
+            // A skip like FrameDelta's, so -Dbot.delta=false turns it off as well.
+            long fingerprint = 0;
+            if (FrameDelta.ENABLED) {
+                try {
+                    fingerprint = MatchBuffers.fingerprintOf(Files.readAllBytes(new File(leftPanelPath).toPath()));
+                } catch (IOException e) {
+                    log.at(instanceIndex).debug("Couldn't fingerprint {}: {}", leftPanelPath, e.getMessage());
+                }
+            }
+            PanelText cached = ocrCache.get(instanceIndex);
+            String fullText;
+            long readAt;
+            if (cached != null && fingerprint != 0 && cached.fingerprint == fingerprint) {
+                FrameDelta.countSkippedOcr();
+                log.at(instanceIndex).debug("📋 March panel unchanged, reusing its OCR text");
+                fullText = cached.text;
+                readAt = cached.readAt;
+            } else {
+                // OCR only the left panel - much cleaner text
+                long t = Metrics.start();
+                try (Trace.Span step = Trace.begin(instanceIndex, "ocr")) {
+                    fullText = performSimpleOCR(leftPanelPath);
+                }
+                Metrics.record(Metrics.Stage.OCR, instanceIndex, t);
+                if (fullText == null || fullText.trim().isEmpty()) {
+                    log.at(instanceIndex).error("❌ OCR returned empty text");
+                    return new ArrayList<>();
+                }
+                readAt = frame.capturedAt;
+                if (fingerprint != 0) {
+                    ocrCache.put(instanceIndex, new PanelText(fingerprint, fullText, readAt));
+                }
+            }
+            
+            log.at(instanceIndex).debug("📋 Left panel OCR text:\n--- Start OCR Text ---\n{}\n--- End OCR Text ---", fullText);
+            if (OCR_CAPTURE_DIR != null) {
+                captureOcrText(instanceIndex, fullText);
+            }
+            
+            // Parse the text to extract march queue information
+            List<MarchInfo> queues;
+            try (Trace.Span step = Trace.begin(instanceIndex, "parseMarchQueues")) {
+                queues = parseMarchQueues(fullText, readAt);
+            }
+            log.at(instanceIndex).info("📊 March queues: {}", queues);
+            return queues;
         }
-        
-        System.out.println("📋 Left panel OCR text:");
-        System.out.println("--- Start OCR Text ---");
-        System.out.println(fullText);
-        System.out.println("--- End OCR Text ---");
-        
-        // Parse the text to extract march queue information
-        return parseMarchQueues(fullText);
     }
     
     /**
      * Extract just the text area from the left march queue panel (no flag icons)
      */
-    private static String extractLeftPanel(String fullScreenPath, int instanceIndex) {
+    static String extractLeftPanel(String fullScreenPath, int instanceIndex) {
         if (!BotUtils.isOpenCvLoaded()) {
             return null;
         }
         
-        Mat fullScreen = null;
-        Mat leftPanel = null;
-        
-        try {
-            fullScreen = Imgcodecs.imread(fullScreenPath, Imgcodecs.IMREAD_COLOR);
-            if (fullScreen.empty()) {
+        try (ManagedMat screen = ManagedMat.of("ocr", Imgcodecs.imread(fullScreenPath, Imgcodecs.IMREAD_COLOR))) {
+            if (screen.empty()) {
                 return null;
             }
-            
-            // Based on your image, we need to avoid the flag icons on the left
-            // The text area starts after the flags (around x=50) and goes to about x=300
-            // Y coordinates remain the same: 190-500
-            int panelX = 50;     // Start after the flag icons (was 20)
-            int panelY = 190; 
-            int panelWidth = 230; // Narrower to avoid flags (was 280)
-            int panelHeight = 310;
-            
-            // Make sure coordinates are within bounds
-            panelX = Math.max(0, panelX);
-            panelY = Math.max(0, panelY);
-            panelWidth = Math.min(panelWidth, fullScreen.cols() - panelX);
-            panelHeight = Math.min(panelHeight, fullScreen.rows() - panelY);
-            
-            // Extract the text-only region (no flags)
-            Rect panelRect = new Rect(panelX, panelY, panelWidth, panelHeight);
-            leftPanel = new Mat(fullScreen, panelRect);
-            
-            // Save the extracted text panel
             String leftPanelPath = "screenshots/march_text_panel_" + instanceIndex + ".png";
-            Imgcodecs.imwrite(leftPanelPath, leftPanel);
+            try (ManagedMat leftPanel = ManagedMat.of("ocr", cropTextPanel(screen.get()))) {
+                // Save the extracted text panel
+                Imgcodecs.imwrite(leftPanelPath, leftPanel.get());
+            }
             
             // Print file size for debugging
             File panelFile = new File(leftPanelPath);
-            if (panelFile.exists()) {
-                System.out.println("Text panel extracted (no flags): " + leftPanelPath + " (" + panelFile.length() + " bytes)");
+            if (log.isDebugEnabled() && panelFile.exists()) {
+                log.at(instanceIndex).debug("Text panel extracted (no flags): {} ({} bytes)", leftPanelPath, panelFile.length());
             }
             
             return leftPanelPath;
             
         } catch (Exception e) {
-            System.err.println("❌ Error extracting text panel: " + e.getMessage());
+            log.at(instanceIndex).error("❌ Error extracting text panel: {}", e.getMessage());
             return null;
-        } finally {
-            if (fullScreen != null) fullScreen.release();
-            if (leftPanel != null) leftPanel.release();
+        }
+    }
+    
+    private static void captureOcrText(int instanceIndex, String text) {
+        File file = new File(OCR_CAPTURE_DIR, "ocr_" + instanceIndex + "_" + System.currentTimeMillis() + ".txt");
+        try {
+            Files.createDirectories(file.toPath().getParent());
+            Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            log.at(instanceIndex).warn("⚠️ Couldn't save OCR text to {}: {}", file, e.getMessage());
         }
     }
     
+    /**
+     * The march queue text area of a full screenshot, as a view (no pixels copied); release it when done.
+     */
+    static Mat cropTextPanel(Mat fullScreen) {
+        return new Mat(fullScreen, textPanelRect(fullScreen.cols(), fullScreen.rows()));
+    }
+    
+    static Rect textPanelRect(int screenWidth, int screenHeight) {
+        // Based on your image, we need to avoid the flag icons on the left
+        // The text area starts after the flags (around x=50) and goes to about x=300
+        // Y coordinates remain the same: 190-500
+        int panelX = 50;     // Start after the flag icons (was 20)
+        int panelY = 190; 
+        int panelWidth = 230; // Narrower to avoid flags (was 280)
+        int panelHeight = 310;
+        
+        // Make sure coordinates are within bounds
+        panelX = Math.max(0, panelX);
+        panelY = Math.max(0, panelY);
+        panelWidth = Math.min(panelWidth, screenWidth - panelX);
+        panelHeight = Math.min(panelHeight, screenHeight - panelY);
+        
+        // The text-only region (no flags)
+        return new Rect(panelX, panelY, panelWidth, panelHeight);
+    }
+    
     /**
      * Perform optimized OCR on the clean text panel using better settings
      */
@@ -252,7 +342,7 @@ public class MarchDetector {
                 String result = runTesseractOCR(imagePath, configArray);
                 int score = scoreOCRQuality(result);
                 
-                System.out.println("🔍 OCR Config " + configArray[1] + ": Score " + score + " - '" + result.replaceAll("\n", " | ").trim() + "'");
+                log.debug(() -> "🔍 OCR Config " + configArray[1] + ": Score " + score + " - '" + result.replace("\n", " | ").trim() + "'");
                 
                 if (score > bestScore) {
                     bestScore = score;
@@ -260,11 +350,11 @@ public class MarchDetector {
                 }
             }
             
-            System.out.println("✅ Best OCR result (score: " + bestScore + ")");
+            log.debug("✅ Best OCR result (score: {})", bestScore);
             return bestResult;
             
         } catch (Exception e) {
-            System.err.println("❌ OCR failed: " + e.getMessage());
+            log.error("❌ OCR failed: {}", e.getMessage());
             return "";
         }
     }
@@ -272,7 +362,7 @@ public class MarchDetector {
     /**
      * Score OCR quality based on expected patterns
      */
-    private static int scoreOCRQuality(String text) {
+    static int scoreOCRQuality(String text) {
         if (text == null || text.trim().isEmpty()) {
             return 0;
         }
@@ -313,7 +403,14 @@ public class MarchDetector {
     /**
      * Parse the left panel OCR text to extract march queue information
      */
-    private static List<MarchInfo> parseMarchQueues(String ocrText) {
+    static List<MarchInfo> parseMarchQueues(String ocrText) {
+        return parseMarchQueues(ocrText, System.currentTimeMillis());
+    }
+    
+    /**
+     * Parse panel text read from a screen captured at readAt (epoch ms), which timers count down from
+     */
+    static List<MarchInfo> parseMarchQueues(String ocrText, long readAt) {
         List<MarchInfo> queues = new ArrayList<>();
         
         // Split text into lines and clean up
@@ -329,7 +426,7 @@ public class MarchDetector {
             }
         }
         
-        System.out.println("📋 Cleaned lines: " + cleanLines);
+        log.debug("📋 Cleaned lines: {}", cleanLines);
         
         // Track current queue number for gathering detection
         int expectedQueueNumber = 1;
@@ -340,9 +437,9 @@ public class MarchDetector {
             
             // Check for gathering march (appears without "March Queue X" header)
             if (line.contains("gathering") || line.contains("lv") || line.contains("mill") || line.contains("quarry") || line.contains("mine")) {
-                MarchInfo gatheringQueue = new MarchInfo(expectedQueueNumber, MarchStatus.GATHERING, null, extractResourceFromGathering(line));
+                MarchInfo gatheringQueue = new MarchInfo(expectedQueueNumber, MarchStatus.GATHERING, extractTimer(line), extractResourceFromGathering(line), readAt);
                 queues.add(gatheringQueue);
-                System.out.println("📊 March Queue " + expectedQueueNumber + ": GATHERING - " + extractResourceFromGathering(line));
+                log.debug("📊 March Queue {}: GATHERING - {}", expectedQueueNumber, gatheringQueue.resourceInfo);
                 expectedQueueNumber++;
                 continue;
             }
@@ -364,6 +461,7 @@ public class MarchDetector {
                 
                 // Look at the next line for status
                 MarchStatus status = MarchStatus.IDLE; // default
+                String remainingTime = null;
                 if (i + 1 < cleanLines.size()) {
                     String statusLine = cleanLines.get(i + 1).toLowerCase();
                     
@@ -380,6 +478,7 @@ public class MarchDetector {
                                statusLine.contains("mine") ||
                                statusLine.matches(".*\\d{2}[:\\.]\\d{2}.*")) { // Any timer pattern
                         status = MarchStatus.GATHERING;
+                        remainingTime = extractTimer(statusLine);
                     }
                     
                     // Skip the status line in next iteration
@@ -392,9 +491,9 @@ public class MarchDetector {
                     .anyMatch(q -> q.queueNumber == finalQueueNumber);
                 
                 if (!alreadyExists) {
-                    MarchInfo queue = new MarchInfo(queueNumber, status);
+                    MarchInfo queue = new MarchInfo(queueNumber, status, remainingTime, null, readAt);
                     queues.add(queue);
-                    System.out.println("📊 March Queue " + queueNumber + ": " + status);
+                    log.debug("📊 March Queue {}: {}", queueNumber, status);
                 }
                 
                 expectedQueueNumber = Math.max(expectedQueueNumber, queueNumber + 1);
@@ -403,7 +502,7 @@ public class MarchDetector {
         
         // If no queues found, try alternate parsing approach
         if (queues.isEmpty()) {
-            queues = parseByLines(cleanLines);
+            queues = parseByLines(cleanLines, readAt);
         }
         
         // Sort queues by number to ensure correct order
@@ -415,9 +514,9 @@ public class MarchDetector {
     /**
      * Alternative parsing approach - look for status keywords directly
      */
-    private static List<MarchInfo> parseByLines(List<String> lines) {
+    static List<MarchInfo> parseByLines(List<String> lines, long readAt) {
         List<MarchInfo> queues = new ArrayList<>();
-        System.out.println("🔍 Trying alternate parsing approach...");
+        log.debug("🔍 Trying alternate parsing approach...");
         
         int queueNumber = 1;
         for (String line : lines) {
@@ -431,28 +530,61 @@ public class MarchDetector {
             // Look for status keywords
             if (lowerLine.contains("idle")) {
                 queues.add(new MarchInfo(queueNumber++, MarchStatus.IDLE));
-                System.out.println("📊 Found Queue " + (queueNumber-1) + ": IDLE");
+                log.debug("📊 Found Queue {}: IDLE", queueNumber - 1);
             } else if (lowerLine.contains("unlock")) {
                 queues.add(new MarchInfo(queueNumber++, MarchStatus.UNLOCK));
-                System.out.println("📊 Found Queue " + (queueNumber-1) + ": UNLOCK");
+                log.debug("📊 Found Queue {}: UNLOCK", queueNumber - 1);
             } else if (lowerLine.contains("cannot") || lowerLine.contains("use")) {
                 queues.add(new MarchInfo(queueNumber++, MarchStatus.CANNOT_USE));
-                System.out.println("📊 Found Queue " + (queueNumber-1) + ": CANNOT_USE");
+                log.debug("📊 Found Queue {}: CANNOT_USE", queueNumber - 1);
             } else if (lowerLine.contains("gathering") || lowerLine.matches(".*\\d{1,2}:\\d{2}.*")) {
-                queues.add(new MarchInfo(queueNumber++, MarchStatus.GATHERING));
-                System.out.println("📊 Found Queue " + (queueNumber-1) + ": GATHERING");
+                queues.add(new MarchInfo(queueNumber++, MarchStatus.GATHERING, extractTimer(line), null, readAt));
+                log.debug("📊 Found Queue {}: GATHERING", queueNumber - 1);
             }
         }
         
         return queues;
     }
     
+    /**
+     * The first march timer in a line, normalized to "H:MM:SS", or null
+     */
+    static String extractTimer(String line) {
+        Matcher m = TIMER_PATTERN.matcher(line);
+        if (!m.find()) {
+            return null;
+        }
+        if (m.group(3) != null) {
+            return Integer.parseInt(m.group(1)) + ":" + m.group(2) + ":" + m.group(3);
+        }
+        return "0:" + m.group(1) + ":" + m.group(2); // MM:SS
+    }
+    
+    /**
+     * "H:MM:SS" to milliseconds, or -1 if it isn't a timer
+     */
+    static long parseDurationMillis(String timer) {
+        if (timer == null) {
+            return -1;
+        }
+        String[] parts = timer.split(":");
+        if (parts.length != 3) {
+            return -1;
+        }
+        try {
+            long seconds = Long.parseLong(parts[0]) * 3600 + Long.parseLong(parts[1]) * 60 + Long.parseLong(parts[2]);
+            return seconds * 1000;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+    
     /**
      * Create default queues when OCR fails to detect patterns
      */
     private static List<MarchInfo> createDefaultQueues(List<String> lines) {
         List<MarchInfo> queues = new ArrayList<>();
-        System.out.println("🔧 Creating default queue structure (OCR detection failed)");
+        log.info("🔧 Creating default queue structure (OCR detection failed)");
         
         // Create 6 default queues based on typical game structure
         for (int i = 1; i <= 6; i++) {
@@ -466,7 +598,7 @@ public class MarchDetector {
             }
             
             queues.add(new MarchInfo(i, status));
-            System.out.println("📊 Default Queue " + i + ": " + status);
+            log.debug("📊 Default Queue {}: {}", i, status);
         }
         
         return queues;
@@ -475,51 +607,31 @@ public class MarchDetector {
     /**
      * Run Tesseract OCR with specific configuration
      */
+    @SuppressWarnings("try")
     private static String runTesseractOCR(String imagePath, String[] config) {
-        try {
-            // Check if Tesseract is available
-            File tesseractExe = new File(TESSERACT_PATH);
-            if (!tesseractExe.exists()) {
-                System.err.println("Tesseract not found at: " + TESSERACT_PATH);
-                return "";
-            }
-            
-            // Build command with provided configuration
-            List<String> command = new ArrayList<>();
-            command.add(TESSERACT_PATH);
-            command.add(imagePath);
-            command.add("stdout");
-            
-            // Add configuration parameters
-            for (String param : config) {
-                command.add(param);
-            }
-            
-            ProcessBuilder pb = new ProcessBuilder(command);
-            Process process = pb.start();
-            
-            // Read output
-            StringBuilder output = new StringBuilder();
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            String line;
-            while ((line = reader.readLine()) != null) {
-                output.append(line).append("\n");
-            }
-            reader.close();
-            
-            // Wait for completion
-            int exitCode = process.waitFor();
-            if (exitCode != 0) {
-                System.err.println("⚠️ Tesseract OCR failed with exit code: " + exitCode);
-                return "";
-            }
-            
-            return output.toString();
-            
-        } catch (Exception e) {
-            System.err.println("❌ Tesseract OCR exception: " + e.getMessage());
+        // Check if Tesseract is available
+        if (!CommandRunner.isAvailable(TESSERACT_PATH)) {
+            log.error("Tesseract not found at: {}", TESSERACT_PATH);
             return "";
         }
+        
+        // Build command with provided configuration
+        String[] command = new String[config.length + 3];
+        command[0] = TESSERACT_PATH;
+        command[1] = imagePath;
+        command[2] = "stdout";
+        System.arraycopy(config, 0, command, 3, config.length);
+        
+        CommandRunner.CommandResult result;
+        try (Trace.Span span = Trace.begin("tesseract")) {
+            result = CommandRunner.run(OCR_TIMEOUT_MS, command);
+        }
+        if (!result.ok()) {
+            log.warn("⚠️ Tesseract OCR failed with {}", result.describeFailure());
+            return "";
+        }
+        
+        return result.stdout.replace("\r\n", "\n");
     }
     
     /**
@@ -541,21 +653,26 @@ public class MarchDetector {
     /**
      * Analyze current march status and determine what actions are needed
      */
-    public static void analyzeGatheringNeeds(List<MarchInfo> currentQueues, AutoGatherSettings settings) {
-        System.out.println("🔍 Analyzing gathering needs with settings:");
+    public static void analyzeGatheringNeeds(int instanceIndex, List<MarchInfo> currentQueues, AutoGatherSettings settings) {
+        Log out = log.at(instanceIndex);
+        if (!out.isEnabled(Log.Level.INFO)) {
+            return; // Nothing but the report below comes out of this
+        }
+        
+        // One event, so reports from different instances don't interleave
+        StringBuilder report = new StringBuilder("🔍 Analyzing gathering needs with settings:");
         for (MarchSetting setting : settings.marchSettings) {
-            System.out.println("  " + setting);
+            report.append("\n  ").append(setting);
         }
-        System.out.println();
         
         // Track which marches are assigned
         boolean[] marchAssigned = new boolean[settings.numberOfMarches + 1]; // 1-based indexing
         
         // First pass: Check what's already gathering
-        System.out.println("📊 Current queue status:");
+        report.append("\n📊 Current queue status:");
         for (MarchInfo queue : currentQueues) {
-            System.out.println("  Queue " + queue.queueNumber + ": " + queue.status + 
-                             (queue.resourceInfo != null ? " (" + queue.resourceInfo + ")" : ""));
+            report.append("\n  Queue ").append(queue.queueNumber).append(": ").append(queue.status)
+                  .append(queue.resourceInfo != null ? " (" + queue.resourceInfo + ")" : "");
             
             if (queue.status == MarchStatus.GATHERING && queue.resourceInfo != null) {
                 // Try to match this gathering march to a setting
@@ -564,35 +681,33 @@ public class MarchDetector {
                     if (!marchAssigned[setting.marchNumber] && 
                         queue.resourceInfo.equals(setting.resourceType)) {
                         marchAssigned[setting.marchNumber] = true;
-                        System.out.println("  ✅ March " + setting.marchNumber + " is active: " + 
-                                         queue.resourceInfo + " (Queue " + queue.queueNumber + ")");
+                        report.append("\n  ✅ March ").append(setting.marchNumber).append(" is active: ")
+                              .append(queue.resourceInfo).append(" (Queue ").append(queue.queueNumber).append(")");
                         break;
                     }
                 }
             }
         }
         
-        System.out.println();
-        
         // Second pass: Determine what needs to be started
-        System.out.println("🎯 Required actions:");
+        report.append("\n🎯 Required actions:");
         for (MarchSetting setting : settings.marchSettings) {
             if (!marchAssigned[setting.marchNumber]) {
                 // This march needs to be started
                 MarchInfo availableQueue = findAvailableQueue(currentQueues);
                 if (availableQueue != null) {
-                    System.out.println("  🚀 Start March " + setting.marchNumber + ": " + 
-                                     setting.resourceType + " Lv." + setting.level + 
-                                     " on Queue " + availableQueue.queueNumber);
+                    report.append("\n  🚀 Start March ").append(setting.marchNumber).append(": ")
+                          .append(setting.resourceType).append(" Lv.").append(setting.level)
+                          .append(" on Queue ").append(availableQueue.queueNumber);
                 } else {
-                    System.out.println("  ⏳ March " + setting.marchNumber + ": " + 
-                                     setting.resourceType + " Lv." + setting.level + 
-                                     " (waiting for available queue)");
+                    report.append("\n  ⏳ March ").append(setting.marchNumber).append(": ")
+                          .append(setting.resourceType).append(" Lv.").append(setting.level)
+                          .append(" (waiting for available queue)");
                 }
             }
         }
         
-        System.out.println();
+        out.info("{}", report);
     }
     
     /**
@@ -627,9 +742,7 @@ public class MarchDetector {
         List<MarchInfo> queues = readMarchQueues(instanceIndex);
         
         if (!queues.isEmpty() && settings != null) {
-            System.out.println("═══════════════════════════════════════");
-            analyzeGatheringNeeds(queues, settings);
-            System.out.println("═══════════════════════════════════════");
+            analyzeGatheringNeeds(instanceIndex, queues, settings);
         }
         
         return queues;
@@ -651,20 +764,27 @@ public class MarchDetector {
     /**
      * Setup march panel view (open left panel + click wilderness)
      */
+    @SuppressWarnings("try")
     public static boolean setupMarchView(int instanceIndex) {
-        System.out.println("🔧 Setting up march view for instance " + instanceIndex);
-        
-        // Step 1: Open left panel
-        if (!openLeftPanel(instanceIndex)) {
-            return false;
-        }
-        
-        // Step 2: Click wilderness button
-        if (!clickWildernessButton(instanceIndex)) {
-            return false;
+        try (Trace.Span span = Trace.begin(instanceIndex, "setupMarchView")) {
+            log.at(instanceIndex).info("🔧 Setting up march view");
+            
+            // Step 1: Open left panel
+            try (Trace.Span step = Trace.begin(instanceIndex, "openLeftPanel")) {
+                if (!openLeftPanel(instanceIndex)) {
+                    return false;
+                }
+            }
+            
+            // Step 2: Click wilderness button
+            try (Trace.Span step = Trace.begin(instanceIndex, "clickWildernessButton")) {
+                if (!clickWildernessButton(instanceIndex)) {
+                    return false;
+                }
+            }
+            
+            log.at(instanceIndex).info("✅ March view setup complete");
+            return true;
         }
-        
-        System.out.println("✅ March view setup complete");
-        return true;
     }
 }
\ No newline at end of file
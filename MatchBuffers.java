@@ -0,0 +1,217 @@
+package newgame;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-thread native buffers for the template matching hot path.
+ *
+ * A bot step usually matches several templates against one screenshot (game icon, three close buttons,
+ * launcher...). The last decoded screenshot is kept per thread, keyed by path, size and mtime, so only the
+ * first match on a frame decodes it; a path written again must be reported with {@link #rewritten}, since a
+ * same-size rewrite within the filesystem's mtime resolution looks unchanged. The file's bytes are read once and {@link #fingerprint fingerprinted} for
+ * {@link MatchMemo}, and decoded from memory only when a match actually needs the pixels. Coarse checks get a
+ * {@link #reducedScreen reduced} grayscale decode instead, or a downsample of the full one if it's already
+ * there. Result Mats are kept per shape (the {@value #MAX_RESULT_SHAPES} most recently used shapes per thread),
+ * and matchTemplate writes into a Mat of the right shape in place, so steady-state matching does no native
+ * allocation at all. These are the only reused match Mats; nothing is shared between threads.
+ *
+ * Buffers belong to the calling thread: don't hand the returned Mats to other threads or release them.
+ */
+public final class MatchBuffers {
+    private static final int MAX_RESULT_SHAPES = 16;
+    private static final ThreadLocal<MatchBuffers> BUFFERS = ThreadLocal.withInitial(MatchBuffers::new);
+    private static final AtomicLong allocations = new AtomicLong(); // decodes + new result Mats, all threads
+    private static final AtomicLong writes = new AtomicLong();
+    private static final Map<String, Long> rewrites = new ConcurrentHashMap<>(); // path -> last write stamp
+
+    private String screenPath;
+    private long screenSize;
+    private long screenModified;
+    private long screenWrite;
+    private byte[] screenBytes;     // Read for the fingerprint, dropped once decoded
+    private long fingerprint;
+    private boolean fingerprinted;
+    private ManagedMat screen;      // Null until a match needs the pixels
+    private ManagedMat reduced;     // Null until a coarse check needs them
+    private int reducedFactor;
+
+    private final Map<Long, ManagedMat> results = new LinkedHashMap<>(MAX_RESULT_SHAPES, 0.75f, true);
+
+    private MatchBuffers() {
+    }
+
+    public static MatchBuffers current() {
+        return BUFFERS.get();
+    }
+
+    /**
+     * Grayscale screenshot, decoded only if the file changed since this thread last asked for it.
+     * Empty if it can't be decoded.
+     */
+    public Mat screen(String path) {
+        select(path);
+        if (screen == null) {
+            // Neither imread nor imdecode can decode into an existing Mat, so each new frame costs one allocation
+            if (screenBytes != null) {
+                MatOfByte buffer = new MatOfByte(screenBytes);
+                screen = ManagedMat.cached("match", Imgcodecs.imdecode(buffer, Imgcodecs.IMREAD_GRAYSCALE));
+                buffer.release();
+                screenBytes = null;
+            } else {
+                screen = ManagedMat.cached("match", Imgcodecs.imread(path, Imgcodecs.IMREAD_GRAYSCALE));
+            }
+            allocations.incrementAndGet();
+        }
+        return screen.get();
+    }
+
+    /**
+     * Grayscale screenshot at 1/factor size (2, 4 or 8), for checks that don't need a precise location.
+     * Decoded straight to reduced grayscale, or downsampled from the full decode if this thread has it.
+     * Empty if it can't be decoded.
+     */
+    public Mat reducedScreen(String path, int factor) {
+        select(path);
+        if (reduced == null || reducedFactor != factor) {
+            if (reduced != null) {
+                reduced.close();
+            }
+            if (screen != null && !screen.empty()) {
+                Mat small = new Mat();
+                Imgproc.resize(screen.get(), small, new Size(), 1.0 / factor, 1.0 / factor, Imgproc.INTER_AREA);
+                reduced = ManagedMat.cached("match", small);
+            } else if (screenBytes != null) {
+                // Keep the bytes: a precise match may still need the full decode
+                MatOfByte buffer = new MatOfByte(screenBytes);
+                reduced = ManagedMat.cached("match", Imgcodecs.imdecode(buffer, reducedFlag(factor)));
+                buffer.release();
+            } else {
+                reduced = ManagedMat.cached("match", Imgcodecs.imread(path, reducedFlag(factor)));
+            }
+            reducedFactor = factor;
+            allocations.incrementAndGet();
+        }
+        return reduced.get();
+    }
+
+    private static int reducedFlag(int factor) {
+        switch (factor) {
+            case 2: return Imgcodecs.IMREAD_REDUCED_GRAYSCALE_2;
+            case 4: return Imgcodecs.IMREAD_REDUCED_GRAYSCALE_4;
+            case 8: return Imgcodecs.IMREAD_REDUCED_GRAYSCALE_8;
+            default: throw new IllegalArgumentException("Unsupported reduction factor " + factor);
+        }
+    }
+
+    /**
+     * 64-bit hash of the screenshot file's bytes, computed once per file version; 0 if it can't be read.
+     * Screenshots of identical pixels encode to identical PNGs, so equal fingerprints mean the same screen.
+     */
+    public long fingerprint(String path) {
+        select(path);
+        if (!fingerprinted) {
+            try {
+                byte[] bytes = Files.readAllBytes(new File(path).toPath());
+                fingerprint = fingerprintOf(bytes);
+                if (screen == null) {
+                    screenBytes = bytes;
+                }
+            } catch (IOException e) {
+                fingerprint = 0;
+            }
+            fingerprinted = true;
+        }
+        return fingerprint;
+    }
+
+    // Forget the previous frame if path names a different file, or the same file rewritten
+    private void select(String path) {
+        long write = rewrites.getOrDefault(path, 0L);
+        File file = new File(path);
+        long size = file.length();
+        long modified = file.lastModified();
+        if (path.equals(screenPath) && write == screenWrite && size == screenSize && modified == screenModified) {
+            return;
+        }
+        invalidateScreen();
+        screenPath = path;
+        screenWrite = write;
+        screenSize = size;
+        screenModified = modified;
+    }
+
+    /**
+     * Call after writing over an existing file at path: every thread's buffers and fingerprint of it are
+     * dropped on their next use. Paths written only once (FramePipeline frames) don't need it.
+     */
+    public static void rewritten(String path) {
+        rewrites.put(path, writes.incrementAndGet());
+    }
+
+    static long fingerprintOf(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        long h = 0x9E3779B97F4A7C15L ^ bytes.length;
+        while (buffer.remaining() >= 8) {
+            h = Long.rotateLeft(h ^ buffer.getLong() * 0xC2B2AE3D27D4EB4FL, 31) * 0x9E3779B97F4A7C15L;
+        }
+        while (buffer.hasRemaining()) {
+            h = (h ^ (buffer.get() & 0xFF)) * 0x100000001B3L;
+        }
+        return h ^ (h >>> 29);
+    }
+
+    /**
+     * CV_32FC1 buffer for a matchTemplate result of the given shape.
+     */
+    public Mat result(int rows, int cols) {
+        long key = ((long) rows << 32) | (cols & 0xFFFFFFFFL);
+        ManagedMat result = results.get(key);
+        if (result == null) {
+            if (results.size() >= MAX_RESULT_SHAPES) {
+                Iterator<ManagedMat> eldest = results.values().iterator();
+                eldest.next().close();
+                eldest.remove();
+            }
+            result = ManagedMat.cached("match", new Mat(rows, cols, CvType.CV_32FC1));
+            allocations.incrementAndGet();
+            results.put(key, result);
+        }
+        return result.get();
+    }
+
+    /**
+     * Forget the cached screenshot, e.g. when the caller knows the file was rewritten in place.
+     */
+    public void invalidateScreen() {
+        if (screen != null) {
+            screen.close();
+            screen = null;
+        }
+        if (reduced != null) {
+            reduced.close();
+            reduced = null;
+        }
+        screenPath = null;
+        screenBytes = null;
+        fingerprinted = false;
+    }
+
+    public static long allocations() {
+        return allocations.get();
+    }
+}
@@ -0,0 +1,174 @@
+package newgame;
+
+import org.opencv.core.Rect;
+import java.awt.Point;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Template match results keyed by the exact content of the frame (see {@link MatchBuffers#fingerprint}),
+ * the template, its threshold and search region, so asking the same question about the same pixels again
+ * costs a hash lookup: the final game check on a frame already checked, back-to-back setupMarchView calls
+ * on a screen that hasn't moved, a screen the bot keeps coming back to.
+ *
+ * Misses are remembered too. Bounded LRU of -Dbot.memo.size entries (default 4096); -Dbot.memo.ttl=ms
+ * additionally expires entries by age (default 0, never); -Dbot.memo=false turns it off. Hits, misses,
+ * evictions and expiries show in the metrics report and on /metrics.
+ */
+public final class MatchMemo {
+    public static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("bot.memo"));
+    private static final int MAX_ENTRIES = Math.max(16, Integer.getInteger("bot.memo.size", 4096));
+    private static final long TTL_MS = Long.getLong("bot.memo.ttl", 0L);
+    private static final MatchMemo SHARED = new MatchMemo(MAX_ENTRIES, TTL_MS);
+
+    private final int maxEntries;
+    private final long ttlMs;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expiries = new LongAdder();
+
+    // Access-ordered, so the eldest entry is the least recently used; lookups are short enough for one lock
+    private final Map<Key, Entry> entries;
+
+    MatchMemo(int maxEntries, long ttlMs) {
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+        this.entries = new LinkedHashMap<Key, Entry>(maxEntries * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > MatchMemo.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    static final class Key {
+        final long fingerprint;
+        final String template;
+        final double threshold;
+        final Rect region;
+
+        Key(long fingerprint, String template, double threshold, Rect region) {
+            this.fingerprint = fingerprint;
+            this.template = template;
+            this.threshold = threshold;
+            this.region = region;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return fingerprint == k.fingerprint && threshold == k.threshold && template.equals(k.template)
+                && Objects.equals(region, k.region);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(fingerprint) * 31 + template.hashCode();
+        }
+    }
+
+    /**
+     * A memoized result; point is null when the template wasn't found, confidence is the best score either way.
+     */
+    static final class Entry {
+        final Point point;
+        final double confidence;
+        final long storedAt;
+
+        Entry(Point point, double confidence, long storedAt) {
+            this.point = point;
+            this.confidence = confidence;
+            this.storedAt = storedAt;
+        }
+    }
+
+    static Key key(long fingerprint, String template, double threshold, Rect region) {
+        return new Key(fingerprint, template, threshold, region);
+    }
+
+    /**
+     * The remembered result, or null if this question hasn't been answered for these pixels.
+     */
+    static Entry get(Key key) {
+        return ENABLED ? SHARED.get(key, System.currentTimeMillis()) : null;
+    }
+
+    static void put(Key key, Point point, double confidence) {
+        if (ENABLED) {
+            SHARED.put(key, point, confidence, System.currentTimeMillis());
+        }
+    }
+
+    Entry get(Key key, long now) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && ttlMs > 0 && now - entry.storedAt > ttlMs) {
+                entries.remove(key);
+                expiries.increment();
+                entry = null;
+            }
+        }
+        if (entry != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return entry;
+    }
+
+    void put(Key key, Point point, double confidence, long now) {
+        Entry entry = new Entry(point != null ? new Point(point) : null, confidence, now);
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    public static void clear() {
+        synchronized (SHARED.entries) {
+            SHARED.entries.clear();
+        }
+    }
+
+    public static int size() {
+        return SHARED.entries();
+    }
+
+    public static long hits() {
+        return SHARED.hits.sum();
+    }
+
+    public static long misses() {
+        return SHARED.misses.sum();
+    }
+
+    public static long evictions() {
+        return SHARED.evictions.sum();
+    }
+
+    public static long expiries() {
+        return SHARED.expiries.sum();
+    }
+
+    int entries() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public static String summary() {
+        long h = hits(), m = misses();
+        return String.format("%d hits, %d misses (%.1f%%), %d evicted, %d expired, %d/%d entries",
+            h, m, h + m == 0 ? 0.0 : h * 100.0 / (h + m), evictions(), expiries(), size(), MAX_ENTRIES);
+    }
+}
@@ -1,14 +1,14 @@
 package newgame;
 
 import javax.swing.*;
-import java.io.IOException;
-import java.util.concurrent.TimeUnit;
 
 public class MemuActions {
     // Standard resolution settings
     private static final int TARGET_WIDTH = 400;
     private static final int TARGET_HEIGHT = 652;
     private static final int TARGET_DPI = 133;
+    private static final long MEMU_COMMAND_TIMEOUT_MS = 120000; // start/stop can take a while on a loaded host
+    private static final Log log = Log.get(MemuActions.class);
     
     public static void startInstance(JFrame parent, int index, Runnable onSuccess) {
         executeCommand(parent, "start", index, onSuccess);
@@ -21,18 +21,18 @@ public class MemuActions {
     public static void optimizeInstanceInBackground(int index, Runnable onComplete) {
         new Thread(() -> {
             try {
-                System.out.println("Auto-optimizing instance " + index + " in background...");
+                log.at(index).info("Auto-optimizing instance in background...");
                 
                 // Check if instance is already stopped to avoid unnecessary restart
-                boolean wasRunning = isInstanceRunning(index);
+                boolean wasRunning = BotUtils.isInstanceRunning(index);
                 
                 // Stop instance first to change resolution (only if running)
                 if (wasRunning) {
-                    System.out.println("Stopping running instance " + index + " for optimization...");
+                    log.at(index).info("Stopping running instance for optimization...");
                     executeMemuCommand("stop", "-i", String.valueOf(index));
                     Thread.sleep(3000); // Wait for stop
                 } else {
-                    System.out.println("Instance " + index + " already stopped, proceeding with optimization...");
+                    log.at(index).info("Instance already stopped, proceeding with optimization...");
                 }
                 
                 // Set resolution to 400x652 with 133 DPI
@@ -48,15 +48,15 @@ public class MemuActions {
                 executeMemuCommand("setconfigex", "-i", String.valueOf(index), "fps", "30");
                 Thread.sleep(1000);
                 
-                System.out.println("Instance " + index + " optimized to " + TARGET_WIDTH + "x" + TARGET_HEIGHT + " @ " + TARGET_DPI + " DPI");
-                System.out.println("Note: Instance will be started separately after optimization");
+                log.at(index).info("Instance optimized to {}x{} @ {} DPI", TARGET_WIDTH, TARGET_HEIGHT, TARGET_DPI);
+                log.at(index).info("Note: Instance will be started separately after optimization");
                 
                 if (onComplete != null) {
                     SwingUtilities.invokeLater(onComplete);
                 }
                 
             } catch (Exception e) {
-                System.err.println("Background optimization failed for instance " + index + ": " + e.getMessage());
+                log.at(index).error("Background optimization failed: {}", e.getMessage());
                 if (onComplete != null) {
                     SwingUtilities.invokeLater(onComplete);
                 }
@@ -70,46 +70,45 @@ public class MemuActions {
     public static void ensureCorrectResolution(JFrame parent, int index, Runnable onComplete) {
         new SwingWorker<Boolean, Void>() {
             protected Boolean doInBackground() throws Exception {
-                // Check current resolution by taking a screenshot
-                if (BotUtils.takeMenuScreenshotLegacy(index, "screenshots/resolution_check_" + index + ".png")) {
+                // Check current resolution on a fresh capture; a buffered frame may predate a restart or reconfiguration
+                int currentWidth = -1;
+                int currentHeight = -1;
+                try (FramePipeline.Frame frame = FramePipeline.forInstance(index).acquire()) {
                     // Load image to check dimensions
-                    if (BotUtils.isOpenCvLoaded()) {
-                        org.opencv.core.Mat screen = org.opencv.imgcodecs.Imgcodecs.imread(
-                            "screenshots/resolution_check_" + index + ".png");
-                        
-                        if (!screen.empty()) {
-                            int currentWidth = screen.cols();
-                            int currentHeight = screen.rows();
-                            screen.release();
-                            
-                            System.out.println("Instance " + index + " current resolution: " + 
-                                             currentWidth + "x" + currentHeight);
-                            
-                            // Check if resolution matches target
-                            if (currentWidth != TARGET_WIDTH || currentHeight != TARGET_HEIGHT) {
-                                System.out.println("Resolution mismatch! Correcting to " + 
-                                                 TARGET_WIDTH + "x" + TARGET_HEIGHT);
-                                
-                                // Stop, fix resolution, start
-                                executeMemuCommand("stop", "-i", String.valueOf(index));
-                                Thread.sleep(3000);
-                                
-                                executeMemuCommand("setconfigex", "-i", String.valueOf(index), 
-                                    "resolution", TARGET_WIDTH + "," + TARGET_HEIGHT + "," + TARGET_DPI);
-                                Thread.sleep(1000);
-                                
-                                executeMemuCommand("start", "-i", String.valueOf(index));
-                                Thread.sleep(5000);
-                                
-                                return true; // Resolution was corrected
-                            } else {
-                                System.out.println("Resolution is correct: " + 
-                                                 currentWidth + "x" + currentHeight);
-                                return false; // No correction needed
-                            }
+                    if (frame != null && BotUtils.isOpenCvLoaded()) {
+                        try (ManagedMat screen = ManagedMat.of("capture", org.opencv.imgcodecs.Imgcodecs.imread(frame.path))) {
+                            currentWidth = screen.empty() ? -1 : screen.get().cols();
+                            currentHeight = screen.empty() ? -1 : screen.get().rows();
                         }
                     }
                 }
+                
+                if (currentWidth > 0) {
+                    
+                    log.at(index).info("Current resolution: {}x{}", currentWidth, currentHeight);
+                    
+                    // Check if resolution matches target
+                    if (currentWidth != TARGET_WIDTH || currentHeight != TARGET_HEIGHT) {
+                        log.at(index).info("Resolution mismatch! Correcting to {}x{}", TARGET_WIDTH, TARGET_HEIGHT);
+                        
+                        // Stop, fix resolution, start
+                        executeMemuCommand("stop", "-i", String.valueOf(index));
+                        FrameBus.forInstance(index).invalidate(); // Frames from before the restart have the old size
+                        Thread.sleep(3000);
+                        
+                        executeMemuCommand("setconfigex", "-i", String.valueOf(index), 
+                            "resolution", TARGET_WIDTH + "," + TARGET_HEIGHT + "," + TARGET_DPI);
+                        Thread.sleep(1000);
+                        
+                        executeMemuCommand("start", "-i", String.valueOf(index));
+                        Thread.sleep(5000);
+                        
+                        return true; // Resolution was corrected
+                    } else {
+                        log.at(index).info("Resolution is correct: {}x{}", currentWidth, currentHeight);
+                        return false; // No correction needed
+                    }
+                }
                 return false;
             }
             
@@ -117,13 +116,13 @@ public class MemuActions {
                 try {
                     Boolean corrected = get();
                     if (corrected) {
-                        System.out.println("Resolution corrected for instance " + index);
+                        log.at(index).info("Resolution corrected");
                     }
                     if (onComplete != null) {
                         SwingUtilities.invokeLater(onComplete);
                     }
                 } catch (Exception e) {
-                    System.err.println("Resolution check failed: " + e.getMessage());
+                    log.at(index).error("Resolution check failed: {}", e.getMessage());
                     if (onComplete != null) {
                         SwingUtilities.invokeLater(onComplete);
                     }
@@ -138,8 +137,7 @@ public class MemuActions {
     public static void forceSetResolution(JFrame parent, int index, Runnable onComplete) {
         new SwingWorker<Void, Void>() {
             protected Void doInBackground() throws Exception {
-                System.out.println("Force setting resolution for instance " + index + 
-                                 " to " + TARGET_WIDTH + "x" + TARGET_HEIGHT);
+                log.at(index).info("Force setting resolution to {}x{}", TARGET_WIDTH, TARGET_HEIGHT);
                 
                 executeMemuCommand("stop", "-i", String.valueOf(index));
                 Thread.sleep(3000);
@@ -157,7 +155,7 @@ public class MemuActions {
             protected void done() {
                 try {
                     get();
-                    System.out.println("Resolution force-set completed for instance " + index);
+                    log.at(index).info("Resolution force-set completed");
                     if (onComplete != null) {
                         SwingUtilities.invokeLater(onComplete);
                     }
@@ -170,35 +168,6 @@ public class MemuActions {
         }.execute();
     }
 
-    /**
-     * Check if an instance is currently running
-     */
-    private static boolean isInstanceRunning(int index) {
-        try {
-            Process p = Runtime.getRuntime().exec(new String[]{
-                Main.MEMUC_PATH, "isvmrunning", "-i", String.valueOf(index)
-            });
-            
-            boolean finished = p.waitFor(5, java.util.concurrent.TimeUnit.SECONDS);
-            if (!finished) {
-                p.destroyForcibly();
-                return false;
-            }
-            
-            try (java.io.BufferedReader reader = new java.io.BufferedReader(
-                    new java.io.InputStreamReader(p.getInputStream()))) {
-                String output = reader.readLine();
-                if (output != null) {
-                    String trimmed = output.trim();
-                    return trimmed.equals("1") || trimmed.equalsIgnoreCase("Running");
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Error checking if instance " + index + " is running: " + e.getMessage());
-        }
-        return false;
-    }
-
     private static void executeCommand(JFrame parent, String command, int index, Runnable onSuccess) {
         new SwingWorker<Void, Void>() {
             protected Void doInBackground() throws Exception {
@@ -222,15 +191,14 @@ public class MemuActions {
     }
     
     private static void executeMemuCommand(String... args) throws Exception {
-        String[] fullCommand = new String[args.length + 1];
-        fullCommand[0] = Main.MEMUC_PATH;
-        System.arraycopy(args, 0, fullCommand, 1, args.length);
-        
-        Process p = Runtime.getRuntime().exec(fullCommand);
-        int exitCode = p.waitFor();
+        CommandRunner.CommandResult result = CommandRunner.memuc(MEMU_COMMAND_TIMEOUT_MS, args);
+        if ("start".equals(args[0]) || "stop".equals(args[0])) {
+            InstanceInventory.invalidate(); // Next status read must see the new state
+            StateJournal.recordGame(Integer.parseInt(args[2]), false); // Not running again until verified
+        }
         
-        if (exitCode != 0) {
-            throw new Exception("MEmu command failed with exit code: " + exitCode);
+        if (!result.ok()) {
+            throw new Exception("MEmu command failed with " + result.describeFailure());
         }
     }
     
@@ -1,55 +1,165 @@
 package newgame;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * A MEmu instance. All mutable state lives in an immutable {@link InstanceSnapshot} that is swapped
+ * atomically, so readers get a consistent view without locking and writers use compare-and-set.
+ */
 public class MemuInstance {
+
+    public interface Listener {
+        /**
+         * Called on the thread that made the change, after it is visible to readers. Changes made at the same
+         * time on different threads can be delivered out of order; where order matters, compare
+         * current.version with the last one seen (versions only go up) or read the latest snapshot().
+         */
+        void onChange(InstanceSnapshot previous, InstanceSnapshot current);
+    }
+
     public final int index;
-    public String name;
-    public String deviceSerial;
-    public String status;
-    volatile String state = "Idle";
-    private volatile boolean autoStartGameRunning = false;
-    volatile boolean autoGatherRunning = false;
+    private final AtomicReference<InstanceSnapshot> snapshot;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
 
     public MemuInstance(int index, String name, String status, String deviceSerial) {
         this.index = index;
-        this.name = (name != null && !name.isEmpty()) ? name : "Instance " + index;
-        this.status = (status != null) ? status : "Unknown";
-        this.deviceSerial = (deviceSerial != null) ? deviceSerial : "N/A";
+        this.snapshot = new AtomicReference<>(new InstanceSnapshot(index,
+            (name != null && !name.isEmpty()) ? name : "Instance " + index,
+            (status != null) ? status : "Unknown",
+            (deviceSerial != null) ? deviceSerial : "N/A",
+            "Idle", false, false, 0));
+    }
+
+    public InstanceSnapshot snapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Install {@code updated} only if the current snapshot is still {@code expected}.
+     */
+    public boolean compareAndSet(InstanceSnapshot expected, InstanceSnapshot updated) {
+        return install(expected, updated) != null;
+    }
+
+    /**
+     * Apply a transition, retrying on contention. Returns the snapshot that was installed.
+     */
+    public InstanceSnapshot update(UnaryOperator<InstanceSnapshot> transition) {
+        while (true) {
+            InstanceSnapshot current = snapshot.get();
+            InstanceSnapshot installed = install(current, transition.apply(current));
+            if (installed != null) {
+                return installed;
+            }
+        }
+    }
+
+    // The snapshot now current if expected was, with the version assigned once per swap; null if it wasn't
+    private InstanceSnapshot install(InstanceSnapshot expected, InstanceSnapshot updated) {
+        if (expected == updated) {
+            return snapshot.get() == expected ? expected : null;
+        }
+        InstanceSnapshot next = updated.withVersion(expected.version + 1);
+        if (!snapshot.compareAndSet(expected, next)) {
+            return null;
+        }
+        fireChanged(expected, next);
+        return next;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public String getName() {
+        return snapshot().name;
+    }
+
+    public void setName(String name) {
+        update(s -> s.withName(name));
+    }
+
+    public String getDeviceSerial() {
+        return snapshot().deviceSerial;
+    }
+
+    public void setState(String state) {
+        update(s -> s.withState(state));
+    }
+
+    public String getState() {
+        return snapshot().state;
+    }
+
+    public void setStatus(String status) {
+        update(s -> s.withStatus(status));
     }
 
-    public synchronized void setState(String state) {
-        this.state = (state != null) ? state : "Idle";
+    public String getStatus() {
+        return snapshot().status;
     }
 
-    public synchronized String getState() {
-        return this.state;
+    public boolean isAutoStartGameRunning() {
+        return snapshot().autoStartGameRunning;
     }
 
-    public synchronized void setStatus(String status) {
-        this.status = (status != null) ? status : "Unknown";
+    /**
+     * Claim the auto-start-game slot. Returns false if a task already holds it.
+     */
+    public boolean tryStartAutoStartGame() {
+        while (true) {
+            InstanceSnapshot current = snapshot();
+            if (current.autoStartGameRunning) {
+                return false;
+            }
+            if (compareAndSet(current, current.withAutoStartGameRunning(true))) {
+                return true;
+            }
+        }
     }
 
-    public synchronized String getStatus() {
-        return this.status;
+    public void setAutoStartGameRunning(boolean running) {
+        update(s -> s.withAutoStartGameRunning(running));
     }
 
-    public synchronized boolean isAutoStartGameRunning() {
-        return autoStartGameRunning;
+    public boolean isAutoGatherRunning() {
+        return snapshot().autoGatherRunning;
     }
 
-    public synchronized void setAutoStartGameRunning(boolean running) {
-        this.autoStartGameRunning = running;
+    /**
+     * Claim the auto-gather slot. Returns false if a task already holds it.
+     */
+    public boolean tryStartAutoGather() {
+        while (true) {
+            InstanceSnapshot current = snapshot();
+            if (current.autoGatherRunning) {
+                return false;
+            }
+            if (compareAndSet(current, current.withAutoGatherRunning(true))) {
+                return true;
+            }
+        }
     }
 
-    public synchronized boolean isAutoGatherRunning() {
-        return autoGatherRunning;
+    public void setAutoGatherRunning(boolean running) {
+        update(s -> s.withAutoGatherRunning(running));
     }
 
-    public synchronized void setAutoGatherRunning(boolean running) {
-        this.autoGatherRunning = running;
+    private void fireChanged(InstanceSnapshot previous, InstanceSnapshot current) {
+        for (Listener listener : listeners) {
+            listener.onChange(previous, current);
+        }
     }
 
     @Override
     public String toString() {
-        return String.format("MemuInstance[%d: %s (%s)]", index, name, status);
+        return snapshot().toString();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,215 @@
+package newgame;
+
+import com.sun.net.httpserver.HttpServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Latency histograms per bot stage and instance.
+ *
+ *   long t = Metrics.start();
+ *   ...
+ *   Metrics.record(Metrics.Stage.CAPTURE, index, t);
+ *
+ * {@link #expose()} publishes them over JMX (newgame:type=Metrics) and, on -Dbot.metrics.port (default 9464,
+ * 0 to disable), as Prometheus text at http://127.0.0.1:port/metrics. The recent window is
+ * -Dbot.metrics.window seconds (default 60). -Dbot.metrics=false turns recording off entirely.
+ */
+public class Metrics implements MetricsMXBean {
+    private static final Log log = Log.get(Metrics.class);
+    public static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("bot.metrics"));
+
+    private static final int PORT = Integer.getInteger("bot.metrics.port", 9464);
+    private static final long WINDOW_SECONDS = Long.getLong("bot.metrics.window", 60L);
+    public static final int FLEET = -1;
+
+    public enum Stage {
+        CAPTURE, MATCH, OCR, CLICK, MEMUC, GATHER_CYCLE;
+
+        public String label() {
+            return name().toLowerCase();
+        }
+    }
+
+    private static final Map<String, LatencyRecorder> recorders = new ConcurrentSkipListMap<>();
+    private static final ScheduledExecutorService rotator = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "MetricsWindow");
+        t.setDaemon(true);
+        return t;
+    });
+    private static volatile boolean exposed;
+
+    static {
+        rotator.scheduleAtFixedRate(() -> recorders.values().forEach(LatencyRecorder::rotate),
+            WINDOW_SECONDS, WINDOW_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Start timestamp for {@link #record}; free when metrics are disabled.
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    public static void record(Stage stage, int instance, long startNanos) {
+        if (ENABLED) {
+            recorder(stage, instance).recordNanos(System.nanoTime() - startNanos);
+        }
+    }
+
+    public static void recordMillis(Stage stage, int instance, long millis) {
+        if (ENABLED) {
+            recorder(stage, instance).recordMillis(millis);
+        }
+    }
+
+    public static LatencyRecorder recorder(Stage stage, int instance) {
+        // Keys sort by stage, then instance (offset so -1 sorts first)
+        String key = String.format("%s/%06d", stage.label(), instance + 1);
+        return recorders.computeIfAbsent(key, k -> new LatencyRecorder());
+    }
+
+    /**
+     * Register the MXBean and start the /metrics endpoint. Safe to call more than once.
+     */
+    public static synchronized void expose() {
+        if (exposed || !ENABLED) {
+            return;
+        }
+        exposed = true;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> log.info("{}", report()), "MetricsReport"));
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Metrics(), new ObjectName("newgame:type=Metrics"));
+        } catch (Exception e) {
+            log.warn("⚠️ Couldn't register metrics MXBean: {}", e.getMessage());
+        }
+        if (PORT > 0) {
+            try {
+                HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), PORT), 0);
+                server.createContext("/metrics", exchange -> {
+                    byte[] body = prometheusText().getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                    exchange.sendResponseHeaders(200, body.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(body);
+                    }
+                });
+                server.createContext("/trace", Trace::handle);
+                server.setExecutor(Executors.newSingleThreadExecutor(r -> {
+                    Thread t = new Thread(r, "MetricsHttp");
+                    t.setDaemon(true);
+                    return t;
+                }));
+                server.start();
+                log.info("📈 Metrics at http://127.0.0.1:{}/metrics", PORT);
+            } catch (IOException e) {
+                log.warn("⚠️ Couldn't start metrics endpoint on port {}: {}", PORT, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public List<StageStats> getStages() {
+        List<StageStats> stats = new ArrayList<>();
+        for (Map.Entry<String, LatencyRecorder> e : recorders.entrySet()) {
+            String[] key = e.getKey().split("/");
+            stats.add(new StageStats(key[0], Integer.parseInt(key[1]) - 1, e.getValue()));
+        }
+        return stats;
+    }
+
+    @Override
+    public String getReport() {
+        return report();
+    }
+
+    /**
+     * One line per stage and instance, for logs.
+     */
+    public static String report() {
+        StringBuilder sb = new StringBuilder("=== Stage latency (ms) ===");
+        for (StageStats s : new Metrics().getStages()) {
+            sb.append(String.format("%n  %-12s %-6s n=%-7d p50 %8.1f  p90 %8.1f  p99 %8.1f  max %8.1f  recent p99 %8.1f (%.1f/min)",
+                s.getStage(), s.getInstance() == FLEET ? "fleet" : "#" + s.getInstance(), s.getCount(),
+                s.getP50Millis(), s.getP90Millis(), s.getP99Millis(), s.getMaxMillis(),
+                s.getRecentP99Millis(), s.getRecentPerMinute()));
+        }
+        if (!FrameBus.all().isEmpty()) {
+            sb.append(String.format("%n=== Frames ==="));
+            for (FrameBus bus : FrameBus.all().values()) {
+                sb.append(String.format("%n  %s", bus));
+            }
+            sb.append(String.format("%n  unchanged regions skipped %d matches and %d OCR reads",
+                FrameDelta.skippedMatches(), FrameDelta.skippedOcr()));
+        }
+        if (MatchMemo.ENABLED && MatchMemo.hits() + MatchMemo.misses() > 0) {
+            sb.append(String.format("%n=== Match memo ===%n  %s", MatchMemo.summary()));
+        }
+        return sb.toString();
+    }
+
+    static String prometheusText() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("# HELP bot_stage_latency_ms Latency of a bot stage since start\n");
+        sb.append("# TYPE bot_stage_latency_ms summary\n");
+        List<StageStats> stages = new Metrics().getStages();
+        for (StageStats s : stages) {
+            String labels = "stage=\"" + s.getStage() + "\",instance=\"" + s.getInstance() + "\"";
+            sb.append(line("bot_stage_latency_ms", labels + ",quantile=\"0.5\"", s.getP50Millis()));
+            sb.append(line("bot_stage_latency_ms", labels + ",quantile=\"0.9\"", s.getP90Millis()));
+            sb.append(line("bot_stage_latency_ms", labels + ",quantile=\"0.99\"", s.getP99Millis()));
+            sb.append(line("bot_stage_latency_ms_count", labels, s.getCount()));
+            sb.append(line("bot_stage_latency_ms_sum", labels, s.getMeanMillis() * s.getCount()));
+        }
+        sb.append("# HELP bot_stage_latency_max_ms Slowest recording of a bot stage since start\n");
+        sb.append("# TYPE bot_stage_latency_max_ms gauge\n");
+        for (StageStats s : stages) {
+            sb.append(line("bot_stage_latency_max_ms", "stage=\"" + s.getStage() + "\",instance=\"" + s.getInstance() + "\"", s.getMaxMillis()));
+        }
+        sb.append("# HELP bot_stage_recent_p99_ms p99 latency over the last complete window\n");
+        sb.append("# TYPE bot_stage_recent_p99_ms gauge\n");
+        for (StageStats s : stages) {
+            sb.append(line("bot_stage_recent_p99_ms", "stage=\"" + s.getStage() + "\",instance=\"" + s.getInstance() + "\"", s.getRecentP99Millis()));
+        }
+        sb.append("# HELP bot_stage_recent_per_minute Throughput over the last complete window\n");
+        sb.append("# TYPE bot_stage_recent_per_minute gauge\n");
+        for (StageStats s : stages) {
+            sb.append(line("bot_stage_recent_per_minute", "stage=\"" + s.getStage() + "\",instance=\"" + s.getInstance() + "\"", s.getRecentPerMinute()));
+        }
+        sb.append("# HELP bot_frame_captures_total Frames captured and published on the frame bus\n");
+        sb.append("# TYPE bot_frame_captures_total counter\n");
+        for (Map.Entry<Integer, FrameBus> e : FrameBus.all().entrySet()) {
+            sb.append(line("bot_frame_captures_total", "instance=\"" + e.getKey() + "\"", e.getValue().captures()));
+        }
+        sb.append("# HELP bot_frame_captures_saved_total Captures avoided by reusing the latest frame\n");
+        sb.append("# TYPE bot_frame_captures_saved_total counter\n");
+        for (Map.Entry<Integer, FrameBus> e : FrameBus.all().entrySet()) {
+            sb.append(line("bot_frame_captures_saved_total", "instance=\"" + e.getKey() + "\"", e.getValue().capturesSaved()));
+        }
+        sb.append("# HELP bot_analysis_skipped_total Matches and OCR reads answered from an earlier frame with the same pixels\n");
+        sb.append("# TYPE bot_analysis_skipped_total counter\n");
+        sb.append(line("bot_analysis_skipped_total", "kind=\"match\"", FrameDelta.skippedMatches()));
+        sb.append(line("bot_analysis_skipped_total", "kind=\"ocr\"", FrameDelta.skippedOcr()));
+        sb.append("# HELP bot_match_memo_total Match memo lookups and removals\n");
+        sb.append("# TYPE bot_match_memo_total counter\n");
+        sb.append(line("bot_match_memo_total", "event=\"hit\"", MatchMemo.hits()));
+        sb.append(line("bot_match_memo_total", "event=\"miss\"", MatchMemo.misses()));
+        sb.append(line("bot_match_memo_total", "event=\"eviction\"", MatchMemo.evictions()));
+        sb.append(line("bot_match_memo_total", "event=\"expiry\"", MatchMemo.expiries()));
+        sb.append("# HELP bot_match_memo_entries Results currently memoized\n");
+        sb.append("# TYPE bot_match_memo_entries gauge\n");
+        sb.append(line("bot_match_memo_entries", "", MatchMemo.size()));
+        return sb.toString();
+    }
+
+    private static String line(String name, String labels, double value) {
+        return name + "{" + labels + "} " + String.format(Locale.ROOT, "%.3f", value) + "\n";
+    }
+}
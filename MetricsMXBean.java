@@ -0,0 +1,55 @@
+package newgame;
+
+import java.util.List;
+
+/**
+ * JMX view of {@link Metrics}, registered as newgame:type=Metrics.
+ */
+public interface MetricsMXBean {
+
+    /**
+     * One stage on one instance (instance -1 is fleet-wide work such as listvms).
+     */
+    class StageStats {
+        private final String stage;
+        private final int instance;
+        private final long count;
+        private final double meanMillis;
+        private final double p50Millis;
+        private final double p90Millis;
+        private final double p99Millis;
+        private final double maxMillis;
+        private final double recentP99Millis;
+        private final double recentPerMinute;
+
+        StageStats(String stage, int instance, LatencyRecorder recorder) {
+            LatencyRecorder.Histogram total = recorder.total();
+            LatencyRecorder.Histogram recent = recorder.recent();
+            this.stage = stage;
+            this.instance = instance;
+            this.count = total.count();
+            this.meanMillis = total.meanMillis();
+            this.p50Millis = total.percentileMillis(50);
+            this.p90Millis = total.percentileMillis(90);
+            this.p99Millis = total.percentileMillis(99);
+            this.maxMillis = total.maxMillis();
+            this.recentP99Millis = recent.percentileMillis(99);
+            this.recentPerMinute = recent.ratePerMinute();
+        }
+
+        public String getStage() { return stage; }
+        public int getInstance() { return instance; }
+        public long getCount() { return count; }
+        public double getMeanMillis() { return meanMillis; }
+        public double getP50Millis() { return p50Millis; }
+        public double getP90Millis() { return p90Millis; }
+        public double getP99Millis() { return p99Millis; }
+        public double getMaxMillis() { return maxMillis; }
+        public double getRecentP99Millis() { return recentP99Millis; }
+        public double getRecentPerMinute() { return recentPerMinute; }
+    }
+
+    List<StageStats> getStages();
+
+    String getReport();
+}
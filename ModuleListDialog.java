@@ -10,7 +10,7 @@ public class ModuleListDialog extends JDialog {
     private final Map<String, JCheckBox> checkboxes = new LinkedHashMap<>();
 
     public ModuleListDialog(Main main, MemuInstance instance) {
-        super(main, "Module Configuration - " + instance.name, true);
+        super(main, "Module Configuration - " + instance.getName(), true);
         this.main = main;
         this.instance = instance;
         initializeUI();
@@ -26,8 +26,8 @@ public class ModuleListDialog extends JDialog {
         modulePanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
         // Auto Start Game and Auto Gather Resources modules
-        String[] modules = {"Auto Start Game", "Auto Gather Resources"};
-        Map<String, ModuleState<?>> instanceModules = Main.instanceModules
+        String[] modules = ModuleRunner.MODULES;
+        Map<String, ModuleState<?>> instanceModules = SettingsStore.instanceModules
             .getOrDefault(instance.index, new HashMap<>());
 
         for (String module : modules) {
@@ -56,21 +56,22 @@ public class ModuleListDialog extends JDialog {
 
     private void executeGathering() {
         // Start the new gathering task
-        new GatherResourcesTask(instance).execute();
+        ModuleRunner.startGathering(instance);
         dispose();
     }
 
     private void saveSettings() {
         Map<String, ModuleState<?>> modules = new HashMap<>();
         checkboxes.forEach((name, cb) -> {
-            ModuleState<?> current = Main.instanceModules
+            ModuleState<?> current = SettingsStore.instanceModules
                 .getOrDefault(instance.index, new HashMap<>())
                 .get(name);
-            modules.put(name, new ModuleState<>(cb.isSelected(), 
-                current != null ? current.settings : null));
+            Object settings = current != null && current.settings != null
+                ? current.settings : ModuleRunner.defaultSettings(name);
+            modules.put(name, new ModuleState<>(cb.isSelected(), settings));
         });
         
-        Main.instanceModules.put(instance.index, modules);
+        SettingsStore.instanceModules.put(instance.index, modules);
         main.saveSettings();
         dispose();
     }
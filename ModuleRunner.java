@@ -0,0 +1,112 @@
+package newgame;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Starts and stops the bot modules enabled for an instance. Used by both the Swing UI and {@link BotDaemon},
+ * so it must not touch Swing.
+ */
+public class ModuleRunner {
+    private static final Log log = Log.get(ModuleRunner.class);
+    public static final String AUTO_START_GAME = "Auto Start Game";
+    public static final String AUTO_GATHER = "Auto Gather Resources";
+    public static final String[] MODULES = {AUTO_START_GAME, AUTO_GATHER};
+
+    private static final int BOOT_WAIT_MS = 7000; // Give Android time to come up after "memuc start"
+    private static final int GAME_START_ATTEMPTS = 10;
+
+    private static final Map<Integer, AutoStartGameTask> autoStartTasks = new ConcurrentHashMap<>();
+    private static final Map<Integer, GatherResourcesTask> gatherTasks = new ConcurrentHashMap<>();
+
+    /**
+     * Fresh settings object for a module, or null if the module has no settings.
+     */
+    public static Object defaultSettings(String module) {
+        if (AUTO_GATHER.equals(module)) {
+            return new MarchDetector.AutoGatherSettings();
+        }
+        return null;
+    }
+
+    public static boolean hasEnabledModules(int index) {
+        for (String module : MODULES) {
+            if (SettingsStore.isEnabled(index, module)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The instance was just started: wait for it to boot, then run its enabled modules.
+     */
+    public static void onInstanceStarted(MemuInstance inst) {
+        if (!hasEnabledModules(inst.index)) {
+            return;
+        }
+        Thread starter = new Thread(() -> {
+            if (BotUtils.delay(BOOT_WAIT_MS)) {
+                startModules(inst);
+            }
+        }, "ModuleStarter-" + inst.index);
+        starter.setDaemon(true);
+        starter.start();
+    }
+
+    /**
+     * Run the enabled modules on an instance that is already up. Auto Start Game runs first
+     * and hands over to Auto Gather Resources when it finishes.
+     */
+    public static void startModules(MemuInstance inst) {
+        int index = inst.index;
+        boolean gather = SettingsStore.isEnabled(index, AUTO_GATHER);
+
+        StateJournal.InstanceState saved = StateJournal.recoverCurrentBoot(index);
+        if (saved != null && saved.gameRunning && gather) {
+            // Same VM boot as when the game was last confirmed running: skip the launcher sweep
+            log.at(index).info("Game already running per state journal, resuming gathering");
+            startGathering(inst);
+        } else if (SettingsStore.isEnabled(index, AUTO_START_GAME)) {
+            log.at(index).info("Starting AutoStartGameTask");
+            AutoStartGameTask task = new AutoStartGameTask(inst, GAME_START_ATTEMPTS, () -> {
+                autoStartTasks.remove(index);
+                log.at(index).info("AutoStartGameTask completed");
+                if (gather) {
+                    startGathering(inst);
+                }
+            });
+            autoStartTasks.put(index, task);
+            task.execute();
+        } else if (gather) {
+            startGathering(inst);
+        }
+    }
+
+    public static void startGathering(MemuInstance inst) {
+        GatherResourcesTask task = new GatherResourcesTask(inst);
+        if (task.execute()) {
+            gatherTasks.put(inst.index, task);
+        }
+    }
+
+    public static void stopModules(int index) {
+        AutoStartGameTask autoStart = autoStartTasks.remove(index);
+        if (autoStart != null) {
+            autoStart.stop();
+        }
+        GatherResourcesTask gather = gatherTasks.remove(index);
+        if (gather != null) {
+            gather.stopGathering();
+        }
+    }
+
+    public static void stopAll() {
+        for (Integer index : autoStartTasks.keySet()) {
+            stopModules(index);
+        }
+        for (Integer index : gatherTasks.keySet()) {
+            stopModules(index);
+        }
+    }
+}
@@ -3,40 +3,91 @@ package newgame;
 import com.google.gson.*;
 import com.google.gson.stream.*;
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Streams a {@link ModuleState} as {"enabled": true, "type": "autoGather", "settings": {...}}.
+ *
+ * The "type" discriminator names the settings class through {@link #register}, so typed settings
+ * round-trip without reflection on class names. Unknown types and pre-typed files (where settings
+ * was a toString() dump) load with null settings instead of failing the whole file.
+ */
 public class ModuleStateAdapter extends TypeAdapter<ModuleState<?>> {
+    private static final Log log = Log.get(ModuleStateAdapter.class);
+    private static final Map<String, Class<?>> TYPES = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, String> IDS = new ConcurrentHashMap<>();
+
+    static {
+        register("autoGather", MarchDetector.AutoGatherSettings.class);
+    }
+
+    private final Gson gson; // used for the settings payload only
+
+    public ModuleStateAdapter(Gson gson) {
+        this.gson = gson;
+    }
+
+    public static void register(String typeId, Class<?> settingsClass) {
+        TYPES.put(typeId, settingsClass);
+        IDS.put(settingsClass, typeId);
+    }
+
     @Override
     public void write(JsonWriter out, ModuleState<?> value) throws IOException {
         out.beginObject();
         out.name("enabled").value(value.enabled);
-        
+
         if (value.settings != null) {
-            out.name("settings");
-            // For now, we'll just write a simple string representation
-            // You can expand this when you add new module types
-            out.value(value.settings.toString());
+            String typeId = IDS.get(value.settings.getClass());
+            if (typeId != null) {
+                out.name("type").value(typeId);
+                out.name("settings");
+                writeSettings(out, value.settings);
+            } else {
+                log.warn("⚠️ No settings type registered for {}, not saved", value.settings.getClass().getName());
+            }
         }
         out.endObject();
     }
 
+    @SuppressWarnings("unchecked")
+    private <T> void writeSettings(JsonWriter out, T settings) throws IOException {
+        gson.getAdapter((Class<T>) settings.getClass()).write(out, settings);
+    }
+
     @Override
     public ModuleState<?> read(JsonReader in) throws IOException {
         boolean enabled = false;
-        String settings = null;
-        
+        String typeId = null;
+        Object settings = null;
+        JsonElement pending = null; // settings seen before their "type"
+
         in.beginObject();
         while (in.hasNext()) {
             String name = in.nextName();
             if (name.equals("enabled")) {
                 enabled = in.nextBoolean();
+            } else if (name.equals("type")) {
+                typeId = in.nextString();
             } else if (name.equals("settings")) {
-                settings = in.nextString();
+                Class<?> type = typeId != null ? TYPES.get(typeId) : null;
+                if (type != null && in.peek() == JsonToken.BEGIN_OBJECT) {
+                    settings = gson.getAdapter(type).read(in);
+                } else if (typeId == null && in.peek() == JsonToken.BEGIN_OBJECT) {
+                    pending = JsonParser.parseReader(in);
+                } else {
+                    in.skipValue(); // Legacy string dump or unknown type
+                }
+            } else {
+                in.skipValue();
             }
         }
         in.endObject();
-        
-        // For now, just return with null settings since we removed GatherResourcesDialog
-        // You can expand this when you add new module types
-        return new ModuleState<>(enabled, null);
+
+        if (pending != null && typeId != null && TYPES.containsKey(typeId)) {
+            settings = gson.fromJson(pending, TYPES.get(typeId));
+        }
+        return new ModuleState<>(enabled, settings);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,195 @@
+package newgame;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Central admission control for every external process the bot spawns (memuc, adb via memuc, tesseract).
+ *
+ * Each command class gets its own fair concurrency limit and token bucket, so a burst of screenshots
+ * from 30 instances can't starve the UI's status queries or an "Optimize All" run and vice versa.
+ * Limits can be overridden with -Dbot.spawn.&lt;class&gt;.concurrency / -Dbot.spawn.&lt;class&gt;.rate (per second).
+ */
+public class ProcessGovernor {
+    private static final Log log = Log.get(ProcessGovernor.class);
+
+    public enum CommandClass {
+        QUERY(4, 20),     // listvms, isvmrunning
+        CONFIG(4, 20),    // getconfigex, setconfigex: "Optimize All" runs bot.optimize.parallelism of these at once
+        CONTROL(2, 5),    // start, stop
+        ADB(8, 40),       // screencap, pull, input tap
+        OCR(2, 10);       // tesseract
+
+        final int defaultConcurrency;
+        final double defaultRate;
+
+        CommandClass(int defaultConcurrency, double defaultRate) {
+            this.defaultConcurrency = defaultConcurrency;
+            this.defaultRate = defaultRate;
+        }
+    }
+
+    private static final long SLOW_ADMISSION_MS = 2000; // Log when a spawn waited longer than this
+
+    private static final Map<CommandClass, Lane> lanes = new EnumMap<>(CommandClass.class);
+
+    static {
+        for (CommandClass cls : CommandClass.values()) {
+            String prefix = "bot.spawn." + cls.name().toLowerCase() + ".";
+            int concurrency = Integer.getInteger(prefix + "concurrency", cls.defaultConcurrency);
+            double rate = Double.parseDouble(System.getProperty(prefix + "rate", String.valueOf(cls.defaultRate)));
+            lanes.put(cls, new Lane(cls, concurrency, rate));
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> log.info("=== Process spawns ===\n{}", report()),
+            "ProcessGovernor-report"));
+    }
+
+    /**
+     * Start a process once its command class admits it. The permit is held until the process exits.
+     */
+    public static Process start(ProcessBuilder builder) throws IOException, InterruptedException {
+        return start(classify(builder.command()), builder);
+    }
+
+    public static Process start(CommandClass cls, ProcessBuilder builder) throws IOException, InterruptedException {
+        Lane lane = lanes.get(cls);
+        lane.admit();
+        try {
+            Process process = builder.start();
+            process.onExit().whenComplete((p, e) -> lane.release());
+            return process;
+        } catch (IOException | RuntimeException e) {
+            lane.release();
+            throw e;
+        }
+    }
+
+    public static CommandClass classify(List<String> command) {
+        String exe = command.isEmpty() ? "" : command.get(0).toLowerCase();
+        if (exe.contains("tesseract")) {
+            return CommandClass.OCR;
+        }
+        String verb = command.size() > 1 ? command.get(1).toLowerCase() : "";
+        switch (verb) {
+            case "adb":
+                return CommandClass.ADB;
+            case "listvms":
+            case "isvmrunning":
+                return CommandClass.QUERY;
+            case "getconfigex":
+            case "setconfigex":
+                return CommandClass.CONFIG;
+            default:
+                return CommandClass.CONTROL;
+        }
+    }
+
+    /**
+     * One line per command class: active/limit, queued, started and wait times.
+     */
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        for (Lane lane : lanes.values()) {
+            sb.append(lane).append('\n');
+        }
+        return sb.toString();
+    }
+
+    public static int queued(CommandClass cls) {
+        return lanes.get(cls).queued.get();
+    }
+
+    public static int active(CommandClass cls) {
+        return lanes.get(cls).active.get();
+    }
+
+    private static class Lane {
+        final CommandClass cls;
+        final int concurrency;
+        final Semaphore permits;
+        final TokenBucket bucket;
+        final AtomicInteger queued = new AtomicInteger();
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicLong started = new AtomicLong();
+        final AtomicLong totalWaitMs = new AtomicLong();
+        final AtomicLong maxWaitMs = new AtomicLong();
+
+        Lane(CommandClass cls, int concurrency, double ratePerSecond) {
+            this.cls = cls;
+            this.concurrency = Math.max(1, concurrency);
+            this.permits = new Semaphore(this.concurrency, true);
+            this.bucket = new TokenBucket(Math.max(1, this.concurrency), ratePerSecond);
+        }
+
+        void admit() throws InterruptedException {
+            long waitStart = System.nanoTime();
+            queued.incrementAndGet();
+            try {
+                bucket.take();
+                permits.acquire();
+            } finally {
+                queued.decrementAndGet();
+            }
+            active.incrementAndGet();
+            started.incrementAndGet();
+
+            long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waitStart);
+            totalWaitMs.addAndGet(waitedMs);
+            maxWaitMs.accumulateAndGet(waitedMs, Math::max);
+            if (waitedMs > SLOW_ADMISSION_MS) {
+                log.info("⏳ {} spawn waited {}ms for admission ({} still queued)", cls, waitedMs, queued.get());
+            }
+        }
+
+        void release() {
+            active.decrementAndGet();
+            permits.release();
+        }
+
+        @Override
+        public String toString() {
+            long n = started.get();
+            return String.format("%-7s active %d/%d, queued %d, started %d, avg wait %dms, max wait %dms",
+                cls, active.get(), concurrency, queued.get(), n, n > 0 ? totalWaitMs.get() / n : 0, maxWaitMs.get());
+        }
+    }
+
+    private static class TokenBucket {
+        private final double capacity;
+        private final double refillPerNano;
+        private double tokens;
+        private long lastRefill = System.nanoTime();
+
+        TokenBucket(double capacity, double ratePerSecond) {
+            this.capacity = capacity;
+            this.refillPerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.tokens = capacity;
+        }
+
+        void take() throws InterruptedException {
+            if (refillPerNano <= 0) {
+                return; // Rate limiting disabled
+            }
+            while (true) {
+                long waitNanos;
+                synchronized (this) {
+                    long now = System.nanoTime();
+                    tokens = Math.min(capacity, tokens + (now - lastRefill) * refillPerNano);
+                    lastRefill = now;
+                    if (tokens >= 1) {
+                        tokens -= 1;
+                        return;
+                    }
+                    waitNanos = (long) Math.ceil((1 - tokens) / refillPerNano);
+                }
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package newgame;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Plays a {@link SessionRecorder} session back as if the recorded instances were running, so the bot's
+ * tasks run offline and deterministically:
+ *
+ *   -Dbot.backend=replay -Dbot.replay=sessions/run1.session [-Dbot.replay.speed=1.0]
+ *
+ * Each instance is a device walking its recorded timeline of screenshots and input actions. A pull
+ * serves the next recorded screenshot until the timeline reaches an action, then keeps serving the last
+ * one; the screen only moves past an action when the bot performs it. A tap matches a recorded tap within
+ * {@link #TAP_TOLERANCE} pixels, looking a few actions ahead so a skipped optional tap doesn't derail the
+ * run; an action with no match is counted as a divergence and changes nothing.
+ *
+ * Tesseract answers by the content of the image it is given (falling back to recorded order for that
+ * configuration), and every other command replays its recorded results in order, repeating the last.
+ * Calls take their recorded duration scaled by bot.replay.speed; 0 answers immediately.
+ *
+ *   java newgame.ReplayBackend <session>   prints what a session contains
+ */
+public class ReplayBackend implements CommandRunner.Backend {
+    private static final Log log = Log.get(ReplayBackend.class);
+
+    static final int TAP_TOLERANCE = 10;
+    private static final int LOOKAHEAD_ACTIONS = 3;
+
+    static final class Call {
+        final long offsetMs;
+        final long durationMs;
+        final int exitCode;
+        final boolean timedOut;
+        final List<String> tokens;
+        final String stdout;
+        final String stderr;
+        final String frame;
+
+        Call(long offsetMs, long durationMs, int exitCode, boolean timedOut, List<String> tokens,
+             String stdout, String stderr, String frame) {
+            this.offsetMs = offsetMs;
+            this.durationMs = durationMs;
+            this.exitCode = exitCode;
+            this.timedOut = timedOut;
+            this.tokens = tokens;
+            this.stdout = stdout;
+            this.stderr = stderr;
+            this.frame = frame;
+        }
+    }
+
+    private final class Device {
+        final int instance;
+        final List<Call> timeline = new ArrayList<>(); // Pulls and input actions, in recorded order
+        int cursor;
+        Call screen;
+        int divergences;
+
+        Device(int instance) {
+            this.instance = instance;
+        }
+
+        synchronized Call pull() {
+            // Consecutive pulls with no action between them are the game moving on its own
+            if (cursor < timeline.size() && SessionRecorder.isPull(timeline.get(cursor).tokens)) {
+                screen = timeline.get(cursor++);
+            } else if (screen == null) {
+                for (Call call : timeline) {
+                    if (SessionRecorder.isPull(call.tokens)) {
+                        screen = call;
+                        break;
+                    }
+                }
+            }
+            return screen;
+        }
+
+        synchronized Call act(List<String> tokens) {
+            int actions = 0;
+            for (int i = cursor; i < timeline.size() && actions < LOOKAHEAD_ACTIONS; i++) {
+                Call call = timeline.get(i);
+                if (SessionRecorder.isPull(call.tokens)) {
+                    continue;
+                }
+                actions++;
+                if (sameAction(call.tokens, tokens)) {
+                    for (int j = cursor; j < i; j++) {
+                        if (SessionRecorder.isPull(timeline.get(j).tokens)) {
+                            screen = timeline.get(j);
+                        }
+                    }
+                    cursor = i + 1;
+                    return call;
+                }
+            }
+            divergences++;
+            log.at(instance).warn("⚠️ Replay diverged at step {}/{}: {} wasn't recorded here",
+                cursor, timeline.size(), String.join(" ", tokens.subList(5, tokens.size())));
+            return null;
+        }
+    }
+
+    private final Path file;
+    private final Map<String, byte[]> frames = new HashMap<>();
+    private final Map<Integer, Device> devices = new TreeMap<>();
+    private final Map<String, Deque<Call>> responses = new HashMap<>();
+    private final Map<String, Call> ocrByImage = new HashMap<>();
+    private final double speed;
+    private long calls;
+    private long sessionMs;
+
+    private ReplayBackend(Path file, double speed) {
+        this.file = file;
+        this.speed = speed;
+    }
+
+    public static ReplayBackend load(Path file, double speed) throws IOException {
+        ReplayBackend replay = new ReplayBackend(file, speed);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != SessionRecorder.MAGIC) {
+                throw new IOException(file + " is not a session file");
+            }
+            int version = in.readInt();
+            if (version != SessionRecorder.VERSION) {
+                throw new IOException(file + " has unsupported session version " + version);
+            }
+            while (true) {
+                int type = in.read();
+                if (type < 0) {
+                    break;
+                }
+                if (type == SessionRecorder.FRAME) {
+                    String hash = in.readUTF();
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    replay.frames.put(hash, bytes);
+                } else if (type == SessionRecorder.CALL) {
+                    replay.add(readCall(in));
+                } else {
+                    throw new IOException(file + " is corrupt (record type " + type + ")");
+                }
+            }
+        } catch (EOFException e) {
+            // A recording cut short by a crash: keep what was completely written
+            log.warn("⚠️ Session {} ends mid-record, replaying the {} complete calls", file, replay.calls);
+        }
+        return replay;
+    }
+
+    /**
+     * The replay for -Dbot.backend=replay; fails fast since falling back to the real backend would be a surprise.
+     */
+    static ReplayBackend fromProperties() {
+        String path = System.getProperty("bot.replay");
+        if (path == null || path.isEmpty()) {
+            throw new IllegalStateException("-Dbot.backend=replay needs -Dbot.replay=<session file>");
+        }
+        double speed = Double.parseDouble(System.getProperty("bot.replay.speed", "1.0"));
+        try {
+            ReplayBackend replay = load(Paths.get(path), speed);
+            log.info("▶️ Replaying {}: {}", path, replay.describe());
+            Runtime.getRuntime().addShutdownHook(new Thread(replay::report, "ReplayReport"));
+            return replay;
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't load session " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static Call readCall(DataInputStream in) throws IOException {
+        long offset = in.readLong();
+        long duration = in.readLong();
+        int exitCode = in.readInt();
+        boolean timedOut = in.readBoolean();
+        int count = in.readUnsignedShort();
+        List<String> tokens = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tokens.add(in.readUTF());
+        }
+        String stdout = SessionRecorder.readString(in);
+        String stderr = SessionRecorder.readString(in);
+        String frame = in.readUTF();
+        return new Call(offset, duration, exitCode, timedOut, Collections.unmodifiableList(tokens), stdout, stderr,
+            frame.isEmpty() ? null : frame);
+    }
+
+    private void add(Call call) {
+        calls++;
+        sessionMs = Math.max(sessionMs, call.offsetMs + call.durationMs);
+        List<String> tokens = call.tokens;
+        if (SessionRecorder.isPull(tokens) || SessionRecorder.isInput(tokens)) {
+            int instance = FakeCommandBackend.instanceArg(tokens);
+            devices.computeIfAbsent(instance, Device::new).timeline.add(call);
+        } else if (SessionRecorder.isTesseract(tokens)) {
+            if (call.frame != null) {
+                ocrByImage.putIfAbsent(ocrKey(call.frame, tokens), call);
+            }
+            responses.computeIfAbsent(ocrKey("", tokens), k -> new ArrayDeque<>()).add(call);
+        } else {
+            responses.computeIfAbsent(String.join(" ", tokens), k -> new ArrayDeque<>()).add(call);
+        }
+    }
+
+    // The image path differs between runs, so tesseract calls are keyed by image content and configuration
+    private static String ocrKey(String frame, List<String> tokens) {
+        return frame + " " + String.join(" ", tokens.subList(2, tokens.size()));
+    }
+
+    @Override
+    public CompletableFuture<CommandRunner.CommandResult> run(List<String> command, long timeoutMs) {
+        List<String> tokens = FakeCommandBackend.normalize(command);
+        Call recorded = answer(tokens);
+        long delay = recorded == null ? 0 : (long) (recorded.durationMs * speed);
+        Executor executor = delay > 0 ? CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS) : Runnable::run;
+        return CompletableFuture.supplyAsync(() -> respond(command, tokens, recorded), executor);
+    }
+
+    @Override
+    public boolean isAvailable(String executable) {
+        return true;
+    }
+
+    private Call answer(List<String> tokens) {
+        Device device = devices.get(FakeCommandBackend.instanceArg(tokens));
+        if (SessionRecorder.isPull(tokens)) {
+            return device != null ? device.pull() : null;
+        }
+        if (SessionRecorder.isInput(tokens)) {
+            return device != null ? device.act(tokens) : null;
+        }
+        if (SessionRecorder.isTesseract(tokens)) {
+            byte[] image = SessionRecorder.readQuietly(tokens.get(1));
+            Call call = image != null ? ocrByImage.get(ocrKey(TemplateStore.sha256(image), tokens)) : null;
+            return call != null ? call : next(ocrKey("", tokens));
+        }
+        return next(String.join(" ", tokens));
+    }
+
+    private Call next(String key) {
+        Deque<Call> queue = responses.get(key);
+        if (queue == null) {
+            return null;
+        }
+        synchronized (queue) {
+            return queue.size() > 1 ? queue.poll() : queue.peek();
+        }
+    }
+
+    private CommandRunner.CommandResult respond(List<String> command, List<String> tokens, Call recorded) {
+        if (recorded == null) {
+            // An unmatched action is still delivered; the device just doesn't react to it
+            if (SessionRecorder.isInput(tokens)) {
+                return new CommandRunner.CommandResult(command, 0, "", "", 0, false);
+            }
+            return CommandRunner.CommandResult.failed(command, "not in session: " + String.join(" ", tokens), 0);
+        }
+        if (SessionRecorder.isPull(tokens)) {
+            byte[] bytes = frames.get(recorded.frame);
+            if (bytes == null) {
+                return CommandRunner.CommandResult.failed(command, "session has no image " + recorded.frame, 0);
+            }
+            try {
+                Files.write(Paths.get(tokens.get(tokens.size() - 1)), bytes);
+            } catch (IOException e) {
+                return CommandRunner.CommandResult.failed(command, e.getMessage(), 0);
+            }
+        }
+        return new CommandRunner.CommandResult(command, recorded.exitCode, recorded.stdout, recorded.stderr,
+            recorded.durationMs, recorded.timedOut);
+    }
+
+    String describe() {
+        StringBuilder text = new StringBuilder();
+        text.append(calls).append(" calls over ").append(sessionMs / 1000).append("s, ")
+            .append(frames.size()).append(" distinct images");
+        for (Device device : devices.values()) {
+            long pulls = device.timeline.stream().filter(c -> SessionRecorder.isPull(c.tokens)).count();
+            text.append("; instance ").append(device.instance).append(": ").append(pulls).append(" screenshots, ")
+                .append(device.timeline.size() - pulls).append(" actions");
+        }
+        return text.toString();
+    }
+
+    /**
+     * How far each device got and how often the bot did something the recording didn't.
+     */
+    void report() {
+        for (Device device : devices.values()) {
+            synchronized (device) {
+                log.at(device.instance).info("▶️ Replay of {} reached step {}/{} with {} divergent actions",
+                    file.getFileName(), device.cursor, device.timeline.size(), device.divergences);
+            }
+        }
+    }
+
+    static boolean sameAction(List<String> recorded, List<String> actual) {
+        if (recorded.size() != actual.size()) {
+            return false;
+        }
+        boolean tap = recorded.size() == 9 && "tap".equals(recorded.get(6)) && "tap".equals(actual.get(6));
+        for (int i = 5; i < recorded.size(); i++) {
+            if (tap && i >= 7) {
+                try {
+                    if (Math.abs(Integer.parseInt(recorded.get(i)) - Integer.parseInt(actual.get(i))) > TAP_TOLERANCE) {
+                        return false;
+                    }
+                    continue;
+                } catch (NumberFormatException ignored) {
+                    // Fall through to an exact comparison
+                }
+            }
+            if (!recorded.get(i).equals(actual.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: ReplayBackend <session file>");
+            System.exit(2);
+        }
+        System.out.println(load(Paths.get(args[0]), 0).describe());
+    }
+}
@@ -0,0 +1,226 @@
+package newgame;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Records what the bot sees and does into a session file that {@link ReplayBackend} plays back offline.
+ *
+ *   -Dbot.record=sessions/run1.session [-Dbot.record.instance=0]
+ *
+ * Wraps whichever backend is active and writes every command with its start offset, duration and result.
+ * Pulled screenshots and tesseract input images are stored once per distinct content (SHA-256), so a
+ * session of a mostly static screen stays small. Fleet-wide commands (listvms, tesseract) are always kept,
+ * per-instance ones only for bot.record.instance when it is set.
+ *
+ * The file is gzipped, with the header and each call (and any image it brings) finished as a gzip member
+ * of its own. Concatenated members read back as one stream, so a crash loses at most the call being
+ * written and {@link ReplayBackend} keeps everything before it.
+ *
+ * Format, after the gzip layer: MAGIC, VERSION, then records until EOF
+ *   FRAME hash bytes                   first time a screenshot or OCR image is seen
+ *   CALL  offsetMs durationMs exitCode timedOut tokens stdout stderr frameHash
+ * with the command tokens normalized as {@link FakeCommandBackend#normalize} does and frameHash ""
+ * for calls that don't carry an image.
+ */
+public class SessionRecorder implements CommandRunner.Backend {
+    private static final Log log = Log.get(SessionRecorder.class);
+
+    static final int MAGIC = 0x42534553; // "BSES"
+    static final int VERSION = 1;
+    static final byte FRAME = 1;
+    static final byte CALL = 2;
+
+    private final CommandRunner.Backend delegate;
+    private final Path file;
+    private final Integer onlyInstance;
+    private final OutputStream fileOut;
+    private DataOutputStream out; // Gzip member of the record being written, null between records
+    private final Set<String> framesWritten = new HashSet<>();
+    private final long startedAt = System.currentTimeMillis();
+    private int calls;
+    private boolean closed;
+
+    private SessionRecorder(CommandRunner.Backend delegate, Path file, Integer onlyInstance) throws IOException {
+        this.delegate = delegate;
+        this.file = file;
+        this.onlyInstance = onlyInstance;
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        fileOut = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16);
+        out = startMember();
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        finishMember();
+    }
+
+    /**
+     * Start recording around delegate; the file is closed by a shutdown hook, though every call is
+     * readable as soon as it has been recorded.
+     */
+    public static SessionRecorder start(CommandRunner.Backend delegate, Path file, Integer onlyInstance) throws IOException {
+        SessionRecorder recorder = new SessionRecorder(delegate, file, onlyInstance);
+        Runtime.getRuntime().addShutdownHook(new Thread(recorder::close, "SessionRecorderClose"));
+        log.info("🎥 Recording session to {}{}", file, onlyInstance != null ? " (instance " + onlyInstance + ")" : "");
+        return recorder;
+    }
+
+    /**
+     * The backend wrapped for -Dbot.record, or the backend itself when not recording.
+     */
+    static CommandRunner.Backend fromProperties(CommandRunner.Backend delegate) {
+        String path = System.getProperty("bot.record");
+        if (path == null || path.isEmpty()) {
+            return delegate;
+        }
+        try {
+            return start(delegate, Paths.get(path), Integer.getInteger("bot.record.instance"));
+        } catch (IOException e) {
+            log.warn("⚠️ Couldn't record session to {}: {}", path, e.getMessage());
+            return delegate;
+        }
+    }
+
+    @Override
+    public CompletableFuture<CommandRunner.CommandResult> run(List<String> command, long timeoutMs) {
+        List<String> tokens = FakeCommandBackend.normalize(command);
+        int instance = FakeCommandBackend.instanceArg(tokens);
+        if (onlyInstance != null && instance >= 0 && instance != onlyInstance) {
+            return delegate.run(command, timeoutMs);
+        }
+        long offset = System.currentTimeMillis() - startedAt;
+        // Tesseract reads its input before we'd see the result, and the bot overwrites the file per read
+        byte[] ocrImage = isTesseract(tokens) ? readQuietly(tokens.get(1)) : null;
+        CompletableFuture<CommandRunner.CommandResult> running = delegate.run(command, timeoutMs);
+        return CommandRunner.cancelling(running, running.thenApply(result -> {
+            byte[] image = ocrImage;
+            if (isPull(tokens) && result.ok()) {
+                image = readQuietly(tokens.get(tokens.size() - 1));
+            }
+            record(offset, tokens, result, image);
+            return result;
+        }));
+    }
+
+    @Override
+    public boolean isAvailable(String executable) {
+        return delegate.isAvailable(executable);
+    }
+
+    private synchronized void record(long offset, List<String> tokens, CommandRunner.CommandResult result, byte[] image) {
+        if (closed) {
+            return;
+        }
+        try {
+            out = startMember();
+            String hash = "";
+            if (image != null) {
+                hash = TemplateStore.sha256(image);
+                if (framesWritten.add(hash)) {
+                    out.writeByte(FRAME);
+                    out.writeUTF(hash);
+                    out.writeInt(image.length);
+                    out.write(image);
+                }
+            }
+            out.writeByte(CALL);
+            out.writeLong(offset);
+            out.writeLong(result.durationMs);
+            out.writeInt(result.exitCode);
+            out.writeBoolean(result.timedOut);
+            out.writeShort(tokens.size());
+            for (String token : tokens) {
+                out.writeUTF(token);
+            }
+            writeString(out, result.stdout);
+            writeString(out, result.stderr);
+            out.writeUTF(hash);
+            finishMember();
+            calls++;
+        } catch (IOException e) {
+            log.warn("⚠️ Session recording stopped: {}", e.getMessage());
+            closeQuietly();
+        }
+    }
+
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closeQuietly();
+        log.info("🎥 Recorded {} calls and {} distinct images to {}", calls, framesWritten.size(), file);
+    }
+
+    private void closeQuietly() {
+        closed = true;
+        try {
+            fileOut.close();
+        } catch (IOException ignored) {}
+    }
+
+    private DataOutputStream startMember() throws IOException {
+        // Closing a member must finish it without closing the file
+        OutputStream shielded = new FilterOutputStream(fileOut) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                fileOut.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+        return new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(shielded, 1 << 12), 1 << 16));
+    }
+
+    // Writes the member's gzip trailer and pushes it to the file
+    private void finishMember() throws IOException {
+        out.close();
+        out = null;
+    }
+
+    static boolean isPull(List<String> tokens) {
+        return tokens.size() > 4 && "memuc".equals(tokens.get(0)) && "adb".equals(tokens.get(1))
+            && "pull".equals(tokens.get(4));
+    }
+
+    static boolean isInput(List<String> tokens) {
+        return tokens.size() > 5 && "memuc".equals(tokens.get(0)) && "adb".equals(tokens.get(1))
+            && "shell".equals(tokens.get(4)) && "input".equals(tokens.get(5));
+    }
+
+    static boolean isTesseract(List<String> tokens) {
+        return tokens.size() > 1 && "tesseract".equals(tokens.get(0));
+    }
+
+    static byte[] readQuietly(String path) {
+        try {
+            return Files.readAllBytes(Paths.get(path));
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    // writeUTF caps at 64KB, which tesseract and listvms output can approach
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
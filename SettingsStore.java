@@ -0,0 +1,161 @@
+package newgame;
+
+import com.google.gson.*;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Per-instance module configuration (settings.json), shared by the Swing UI and the headless daemon.
+ *
+ * {@link #requestSave()} is debounced: bursts of edits are coalesced into one write on a background
+ * thread after -Dbot.settings.debounce ms (default 500). Writes go to a temp file that is then renamed
+ * over settings.json, so a crash mid-save never leaves a truncated file, and are skipped entirely when
+ * the serialized content hasn't changed. Pending saves are flushed on shutdown.
+ */
+public class SettingsStore {
+    private static final Log log = Log.get(SettingsStore.class);
+    public static final String SETTINGS_FILE = "settings.json";
+
+    public static Map<Integer, Map<String, ModuleState<?>>> instanceModules = new ConcurrentHashMap<>();
+
+    private static final long DEBOUNCE_MS = Long.getLong("bot.settings.debounce", 500L);
+
+    private static final java.lang.reflect.Type SETTINGS_TYPE =
+        new TypeToken<Map<Integer, Map<String, ModuleState<?>>>>(){}.getType();
+    private static final Gson GSON = new GsonBuilder()
+        .registerTypeAdapter(new TypeToken<ModuleState<?>>(){}.getType(), new ModuleStateAdapter(new Gson()))
+        .setPrettyPrinting()
+        .create();
+
+    private static final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "SettingsWriter");
+        t.setDaemon(true);
+        return t;
+    });
+    private static ScheduledFuture<?> pendingWrite;        // guarded by SettingsStore.class
+    private static CompletableFuture<Void> pendingResult;  // guarded by SettingsStore.class
+    private static String lastWritten;                     // only touched while holding WRITE_LOCK
+    private static final Object WRITE_LOCK = new Object();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(SettingsStore::flush, "SettingsFlush"));
+    }
+
+    /**
+     * Schedule a save. Calls within the debounce window share one write and one result.
+     */
+    public static synchronized CompletableFuture<Void> requestSave() {
+        // Push a still-waiting write back; callers already holding its result are completed by the new one
+        boolean coalesced = pendingWrite != null && pendingWrite.cancel(false);
+        if (!coalesced) {
+            pendingResult = new CompletableFuture<>();
+        }
+        CompletableFuture<Void> result = pendingResult;
+        pendingWrite = writer.schedule(() -> writeFor(result), DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+        return result;
+    }
+
+    /**
+     * Write any pending save now, on the calling thread.
+     */
+    public static void flush() {
+        CompletableFuture<Void> result;
+        synchronized (SettingsStore.class) {
+            if (pendingWrite == null || !pendingWrite.cancel(false)) {
+                return; // Nothing pending, or the writer already picked it up
+            }
+            result = pendingResult;
+        }
+        writeFor(result);
+    }
+
+    private static void writeFor(CompletableFuture<Void> result) {
+        synchronized (SettingsStore.class) {
+            if (pendingResult == result) {
+                pendingWrite = null;
+                pendingResult = null;
+            }
+        }
+        try {
+            save();
+            result.complete(null);
+        } catch (IOException | RuntimeException ex) {
+            log.error("❌ Failed to save settings: {}", ex.getMessage());
+            result.completeExceptionally(ex);
+        }
+    }
+
+    /**
+     * Write settings.json now, atomically.
+     */
+    public static void save() throws IOException {
+        synchronized (WRITE_LOCK) {
+            String content = toJson(instanceModules);
+            if (content.equals(lastWritten)) {
+                return;
+            }
+            Path target = Paths.get(SETTINGS_FILE).toAbsolutePath();
+            Path temp = target.resolveSibling(SETTINGS_FILE + ".tmp");
+            Files.write(temp, content.getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            lastWritten = content;
+        }
+    }
+
+    public static void load() {
+        File file = new File(SETTINGS_FILE);
+        if (file.exists()) {
+            try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                Map<Integer, Map<String, ModuleState<?>>> loaded = fromJson(reader);
+                instanceModules = loaded != null ? new ConcurrentHashMap<>(loaded) : new ConcurrentHashMap<>();
+            } catch (IOException | JsonParseException ex) {
+                log.warn("⚠️ Couldn't read {}: {}", SETTINGS_FILE, ex.getMessage());
+                instanceModules = new ConcurrentHashMap<>();
+            }
+        } else {
+            instanceModules = new ConcurrentHashMap<>();
+        }
+    }
+
+    /**
+     * settings.json content for these modules.
+     */
+    static String toJson(Map<Integer, Map<String, ModuleState<?>>> modules) throws IOException {
+        StringWriter buffer = new StringWriter();
+        try (JsonWriter json = GSON.newJsonWriter(buffer)) {
+            GSON.toJson(modules, SETTINGS_TYPE, json);
+        }
+        return buffer.toString();
+    }
+
+    static Map<Integer, Map<String, ModuleState<?>>> fromJson(Reader reader) {
+        return GSON.fromJson(reader, SETTINGS_TYPE);
+    }
+
+    public static Map<String, ModuleState<?>> modulesFor(int index) {
+        return instanceModules.getOrDefault(index, new HashMap<>());
+    }
+
+    public static boolean isEnabled(int index, String module) {
+        ModuleState<?> state = modulesFor(index).get(module);
+        return state != null && state.enabled;
+    }
+
+    /**
+     * Typed settings for a module, or null if none are saved (or they are of another type).
+     */
+    public static <T> T settingsFor(int index, String module, Class<T> type) {
+        ModuleState<?> state = modulesFor(index).get(module);
+        return state != null && type.isInstance(state.settings) ? type.cast(state.settings) : null;
+    }
+}
@@ -0,0 +1,496 @@
+package newgame;
+
+import org.opencv.core.Rect;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A fleet of simulated MEmu instances for scale and load testing, standing in for memuc (listvms,
+ * isvmrunning, start/stop, get/setconfigex, adb screencap/pull/input) and tesseract:
+ *
+ *   -Dbot.backend=sim -Dbot.sim.instances=200
+ *
+ * Every VM runs a scripted game: a set of screens, each showing some templates from src/images, with taps
+ * on a template or time spent on a screen moving to another one. Screens are rendered once onto a noisy
+ * 480x800 background so pulls return realistic PNGs the matcher can work on. On an ocr screen the march
+ * text of simulated queues that go out gathering and come back on their own is drawn into the panel
+ * MarchDetector crops, as of the screencap, and tesseract answers with the text of the last capture, so the
+ * crop changes whenever the queues or their timers do. See {@link #DEFAULT_SCRIPT}
+ * for the format; -Dbot.sim.script=<file> replaces it.
+ *
+ * Calls take bot.sim.latency ms (default 40, +/- bot.sim.jitter, default 0.5), tesseract bot.sim.ocr.latency
+ * (default 250) and start bot.sim.boot (default 3000). bot.sim.failure (default 0.01) is the chance a
+ * memuc call fails and bot.sim.hang (default 0.001) the chance it hangs until its timeout. bot.sim.seed
+ * makes runs repeatable.
+ */
+public class SimulatedFleet implements CommandRunner.Backend {
+    private static final Log log = Log.get(SimulatedFleet.class);
+
+    static final String[] DEFAULT_SCRIPT = {
+        "# <screen>.show = templates visible, <screen>.tap.<template> = screen after tapping it,",
+        "# <screen>.after = ms,screen to move on by itself, <screen>.ocr = marches to answer tesseract",
+        "# with the march queues; start = screens a boot may land on (one picked at random)",
+        "start=launcher,launcher,popup",
+        "popup.show=game_launcher.png,close_x.png",
+        "popup.tap.close_x.png=launcher",
+        "launcher.show=game_launcher.png",
+        "launcher.tap.game_launcher.png=loading",
+        "loading.after=6000,city",
+        "city.show=game_icon.png,open_left.png",
+        "city.tap.open_left.png=panel",
+        "panel.show=game_icon.png,wilderness_button.png",
+        "panel.tap.wilderness_button.png=marches",
+        "marches.show=game_icon.png,open_left.png",
+        "marches.tap.open_left.png=panel",
+        "marches.ocr=marches",
+    };
+
+    private static final int WIDTH = 480;
+    private static final int HEIGHT = 800;
+    private static final int ROWS = 5; // March queue rows in the panel, unlocked or not
+    private static final Pattern PANEL_INSTANCE = Pattern.compile("_(\\d+)\\.png$");
+    private static final String[] RESOURCES = {"Mill", "Lumberyard", "Quarry", "Iron Mine"};
+
+    // What a screencap saw: the screen, and on an ocr screen the march text drawn into its panel
+    private static final class Shot {
+        final Screen screen;
+        final String marches;
+        volatile byte[] png;
+
+        Shot(Screen screen, String marches) {
+            this.screen = screen;
+            this.marches = marches;
+        }
+
+        boolean same(Screen screen, String marches) {
+            return this.screen == screen && Objects.equals(this.marches, marches);
+        }
+    }
+
+    private static final class Screen {
+        final String name;
+        final List<String> shows = new ArrayList<>();
+        final Map<String, String> taps = new LinkedHashMap<>();
+        long afterMs;
+        String afterScreen;
+        boolean ocr;
+
+        Screen(String name) {
+            this.name = name;
+        }
+    }
+
+    private final class Vm {
+        final int index;
+        final Random random;
+        final Map<String, String> config = new HashMap<>();
+        final long[] queueUntil = new long[ROWS];   // End of the current idle or gathering phase
+        final boolean[] gathering = new boolean[ROWS];
+        final int[] level = new int[ROWS];
+        boolean running;
+        Screen screen;
+        long enteredAt;
+        Shot captured; // What the last screencap saw, served by the next pull
+
+        Vm(int index) {
+            this.index = index;
+            this.random = new Random(seed * 31 + index);
+        }
+
+        // Timed transitions happen lazily, whenever someone looks
+        Screen current(long now) {
+            while (screen != null && screen.afterScreen != null && now - enteredAt >= screen.afterMs) {
+                enteredAt += screen.afterMs;
+                screen = screens.get(screen.afterScreen);
+            }
+            return screen;
+        }
+
+        void boot(long now) {
+            running = true;
+            screen = screens.get(startScreens.get(random.nextInt(startScreens.size())));
+            enteredAt = now;
+            captured = null;
+            for (int q = 0; q < ROWS; q++) {
+                gathering[q] = false;
+                queueUntil[q] = now + random.nextInt((int) idleMs + 1);
+            }
+        }
+
+        String marchText(long now) {
+            StringBuilder text = new StringBuilder();
+            for (int q = 0; q < ROWS; q++) {
+                text.append("March Queue ").append(q + 1).append('\n');
+                if (q >= queues) {
+                    text.append(q == queues ? "Unlock" : "Cannot use").append('\n');
+                    continue;
+                }
+                while (queueUntil[q] <= now) {
+                    gathering[q] = !gathering[q];
+                    level[q] = 1 + random.nextInt(8);
+                    queueUntil[q] += gathering[q] ? gatherMinMs + (long) (random.nextDouble() * (gatherMaxMs - gatherMinMs)) : idleMs;
+                }
+                if (gathering[q]) {
+                    long left = (queueUntil[q] - now) / 1000;
+                    text.append("Gathering Lv").append(level[q]).append(' ').append(RESOURCES[(index + q) % RESOURCES.length])
+                        .append('\n').append(String.format("%02d %02d %02d", left / 3600, left / 60 % 60, left % 60)).append('\n');
+                } else {
+                    text.append("Idle\n");
+                }
+            }
+            return text.toString();
+        }
+    }
+
+    private final FakeCommandBackend rules = new FakeCommandBackend();
+    private final Map<String, Screen> screens = new LinkedHashMap<>();
+    private final List<String> startScreens = new ArrayList<>();
+    private final Map<String, Rect> placements = new HashMap<>();
+    private final Map<String, byte[]> rendered = new ConcurrentHashMap<>();
+    private final Map<String, BufferedImage> templates = new HashMap<>();
+    private final Vm[] vms;
+
+    private final long seed = Long.getLong("bot.sim.seed", 1L);
+    private final long latencyMs = Long.getLong("bot.sim.latency", 40L);
+    private final double jitter = Double.parseDouble(System.getProperty("bot.sim.jitter", "0.5"));
+    private final long ocrLatencyMs = Long.getLong("bot.sim.ocr.latency", 250L);
+    private final long bootMs = Long.getLong("bot.sim.boot", 3000L);
+    private final double failureRate = Double.parseDouble(System.getProperty("bot.sim.failure", "0.01"));
+    private final double hangRate = Double.parseDouble(System.getProperty("bot.sim.hang", "0.001"));
+    private final int queues = Integer.getInteger("bot.sim.queues", 2);
+    private final long idleMs = Long.getLong("bot.sim.idle", 120000L);
+    private final long gatherMinMs = Long.getLong("bot.sim.gather.min", 10 * 60000L);
+    private final long gatherMaxMs = Long.getLong("bot.sim.gather.max", 60 * 60000L);
+    private final Random faults = new Random(seed);
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong hangs = new AtomicLong();
+
+    public SimulatedFleet(int instances, Properties script) {
+        vms = new Vm[instances];
+        for (int i = 0; i < instances; i++) {
+            vms[i] = new Vm(i);
+        }
+        loadScript(script);
+        registerRules();
+    }
+
+    static SimulatedFleet fromProperties() {
+        int instances = Integer.getInteger("bot.sim.instances", 100);
+        String path = System.getProperty("bot.sim.script");
+        Properties script = new Properties();
+        try {
+            if (path != null) {
+                try (Reader in = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+                    script.load(in);
+                }
+            } else {
+                script.load(new StringReader(String.join("\n", DEFAULT_SCRIPT)));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't read simulator script " + path + ": " + e.getMessage(), e);
+        }
+        SimulatedFleet fleet = new SimulatedFleet(instances, script);
+        log.info("🧪 Simulating {} instances with screens {}", instances, fleet.screens.keySet());
+        return fleet;
+    }
+
+    private void loadScript(Properties script) {
+        for (String key : script.stringPropertyNames()) {
+            if (!key.equals("start")) {
+                String name = key.substring(0, key.indexOf('.') < 0 ? key.length() : key.indexOf('.'));
+                screens.computeIfAbsent(name, Screen::new);
+            }
+        }
+        for (String key : new TreeSet<>(script.stringPropertyNames())) {
+            String value = script.getProperty(key).trim();
+            if (key.equals("start")) {
+                startScreens.addAll(Arrays.asList(value.split("\\s*,\\s*")));
+                continue;
+            }
+            int dot = key.indexOf('.');
+            Screen screen = screens.get(key.substring(0, dot < 0 ? key.length() : dot));
+            String attribute = dot < 0 ? "" : key.substring(dot + 1);
+            if (attribute.equals("show")) {
+                screen.shows.addAll(Arrays.asList(value.split("\\s*,\\s*")));
+            } else if (attribute.startsWith("tap.")) {
+                screen.taps.put(attribute.substring("tap.".length()), value);
+            } else if (attribute.equals("after")) {
+                String[] parts = value.split("\\s*,\\s*");
+                screen.afterMs = Long.parseLong(parts[0]);
+                screen.afterScreen = parts[1];
+            } else if (attribute.equals("ocr")) {
+                screen.ocr = true;
+            } else {
+                throw new IllegalArgumentException("Unknown simulator script key " + key);
+            }
+        }
+        if (startScreens.isEmpty()) {
+            throw new IllegalArgumentException("Simulator script has no start screen");
+        }
+        for (String name : startScreens) {
+            if (!screens.containsKey(name)) {
+                throw new IllegalArgumentException("Simulator start screen " + name + " is not defined");
+            }
+        }
+        for (Screen screen : screens.values()) {
+            for (String target : screen.taps.values()) {
+                if (!screens.containsKey(target)) {
+                    throw new IllegalArgumentException("Screen " + screen.name + " taps to undefined " + target);
+                }
+            }
+            if (screen.afterScreen != null && !screens.containsKey(screen.afterScreen)) {
+                throw new IllegalArgumentException("Screen " + screen.name + " moves on to undefined " + screen.afterScreen);
+            }
+        }
+
+        // Templates sit in their search region when they have one, else on a grid so they don't overlap
+        int slot = 0;
+        for (Screen screen : screens.values()) {
+            for (String name : screen.shows) {
+                if (placements.containsKey(name)) {
+                    continue;
+                }
+                BufferedImage image = readTemplate(name);
+                int w = image != null ? image.getWidth() : 60;
+                int h = image != null ? image.getHeight() : 60;
+                Rect region = TemplateStore.meta(name).region;
+                int x = region != null ? region.x : 20 + (slot % 4) * 110;
+                int y = region != null ? region.y : 100 + (slot / 4) * 150;
+                placements.put(name, new Rect(Math.min(x, WIDTH - w), Math.min(y, HEIGHT - h), w, h));
+                slot++;
+            }
+        }
+    }
+
+    private BufferedImage readTemplate(String name) {
+        File file = new File(TemplateStore.IMAGES_DIR, name);
+        try {
+            BufferedImage image = file.exists() ? ImageIO.read(file) : null;
+            if (image == null) {
+                log.warn("⚠️ Simulator has no image for {}, the matcher won't find it", name);
+            } else {
+                templates.put(name, image);
+            }
+            return image;
+        } catch (IOException e) {
+            log.warn("⚠️ Simulator couldn't read {}: {}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    private void registerRules() {
+        rules.on("memuc listvms", args -> {
+            StringBuilder out = new StringBuilder();
+            for (Vm vm : vms) {
+                boolean up;
+                synchronized (vm) {
+                    up = vm.running;
+                }
+                out.append(vm.index).append(",Sim ").append(vm.index).append(",0,").append(up ? 1 : 0).append(',')
+                   .append(up ? 20000 + vm.index : 0).append('\n');
+            }
+            return rules.ok(out.toString());
+        });
+        rules.on("memuc isvmrunning", args -> withVm(args, vm -> rules.ok(vm.running ? "Running" : "Not Running")));
+        rules.on("memuc start", args -> withVm(args, vm -> {
+            vm.boot(System.currentTimeMillis());
+            return rules.ok("SUCCESS: start vm finished.");
+        }));
+        rules.on("memuc stop", args -> withVm(args, vm -> {
+            vm.running = false;
+            vm.screen = null;
+            return rules.ok("SUCCESS: stop vm finished.");
+        }));
+        rules.on("memuc setconfigex", args -> withVm(args, vm -> {
+            int keyAt = args.indexOf("-i") + 2;
+            vm.config.put(args.get(keyAt), String.join(" ", args.subList(keyAt + 1, args.size())));
+            return rules.ok("SUCCESS: set configex finished.");
+        }));
+        rules.on("memuc getconfigex", args -> withVm(args, vm ->
+            rules.ok("Value: " + vm.config.getOrDefault(args.get(args.indexOf("-i") + 2), ""))));
+        rules.on("memuc adb * * shell screencap", args -> withRunningVm(args, vm -> {
+            long now = System.currentTimeMillis();
+            Screen screen = vm.current(now);
+            String marches = screen.ocr ? vm.marchText(now) : null;
+            // An identical capture keeps the PNG already rendered for it
+            if (vm.captured == null || !vm.captured.same(screen, marches)) {
+                vm.captured = new Shot(screen, marches);
+            }
+            return rules.ok("");
+        }));
+        rules.on("memuc adb * * shell input", args -> withRunningVm(args, vm -> rules.ok("")));
+        rules.on("memuc adb * * shell input tap", args -> withRunningVm(args, vm -> {
+            tap(vm, Integer.parseInt(args.get(7)), Integer.parseInt(args.get(8)));
+            return rules.ok("");
+        }));
+        rules.on("memuc adb * * pull", args -> {
+            Shot shot = withVm(args, vm -> vm.running ? vm.captured : null);
+            if (shot == null) {
+                return rules.fail(1, "adb: device offline or no screencap taken");
+            }
+            try {
+                Files.write(Paths.get(args.get(args.size() - 1)), render(shot));
+                return rules.ok("1 file pulled.");
+            } catch (IOException e) {
+                return rules.fail(1, e.getMessage());
+            }
+        });
+        rules.on("tesseract", args -> {
+            Matcher m = PANEL_INSTANCE.matcher(args.get(1).replace('\\', '/'));
+            int index = m.find() ? Integer.parseInt(m.group(1)) : -1;
+            if (index < 0 || index >= vms.length) {
+                return rules.ok("");
+            }
+            Vm vm = vms[index];
+            synchronized (vm) {
+                // The panel was cropped from the last pull, which shows the last capture
+                Shot shot = vm.running ? vm.captured : null;
+                return rules.ok(shot != null && shot.marches != null ? shot.marches : "");
+            }
+        });
+    }
+
+    private <T> T withVm(List<String> args, Function<Vm, T> action) {
+        int index = FakeCommandBackend.instanceArg(args);
+        if (index < 0 || index >= vms.length) {
+            throw new IllegalArgumentException("no simulated VM " + index);
+        }
+        Vm vm = vms[index];
+        synchronized (vm) {
+            return action.apply(vm);
+        }
+    }
+
+    private CommandRunner.CommandResult withRunningVm(List<String> args, Function<Vm, CommandRunner.CommandResult> action) {
+        return withVm(args, vm -> vm.running ? action.apply(vm) : rules.fail(1, "adb: device offline"));
+    }
+
+    private void tap(Vm vm, int x, int y) {
+        long now = System.currentTimeMillis();
+        Screen screen = vm.current(now);
+        for (Map.Entry<String, String> tap : screen.taps.entrySet()) {
+            Rect at = placements.get(tap.getKey());
+            if (at != null && x >= at.x && x < at.x + at.width && y >= at.y && y < at.y + at.height) {
+                vm.screen = screens.get(tap.getValue());
+                vm.enteredAt = now;
+                return;
+            }
+        }
+    }
+
+    private byte[] render(Shot shot) throws IOException {
+        byte[] png = shot.marches != null ? shot.png : rendered.get(shot.screen.name);
+        if (png != null) {
+            return png;
+        }
+        Screen screen = shot.screen;
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] noise = new byte[WIDTH * HEIGHT];
+        new Random(screen.name.hashCode()).nextBytes(noise);
+        for (int i = 0; i < noise.length; i++) {
+            noise[i] = (byte) (noise[i] & 0xF0); // Coarse noise compresses like real map art, not like static
+        }
+        image.getRaster().setDataElements(0, 0, WIDTH, HEIGHT, noise);
+        Graphics2D g = image.createGraphics();
+        for (String name : screen.shows) {
+            BufferedImage template = templates.get(name);
+            if (template != null) {
+                Rect at = placements.get(name);
+                g.drawImage(template, at.x, at.y, null);
+            }
+        }
+        if (shot.marches != null) {
+            Rect panel = MarchDetector.textPanelRect(WIDTH, HEIGHT);
+            g.setColor(Color.WHITE);
+            g.fillRect(panel.x, panel.y, panel.width, panel.height);
+            g.setColor(Color.BLACK);
+            g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 14));
+            int y = panel.y + 16;
+            for (String line : shot.marches.split("\n")) {
+                g.drawString(line, panel.x + 4, y);
+                y += 18;
+            }
+        }
+        g.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256 * 1024);
+        ImageIO.write(image, "png", out);
+        png = out.toByteArray();
+        if (shot.marches != null) {
+            shot.png = png;
+        } else {
+            rendered.put(screen.name, png);
+        }
+        return png;
+    }
+
+    @Override
+    public CompletableFuture<CommandRunner.CommandResult> run(List<String> command, long timeoutMs) {
+        calls.incrementAndGet();
+        List<String> tokens = FakeCommandBackend.normalize(command);
+        boolean memuc = "memuc".equals(tokens.get(0));
+        double roll;
+        long delay;
+        synchronized (faults) {
+            roll = faults.nextDouble();
+            long base = !memuc ? ocrLatencyMs : tokens.size() > 1 && "start".equals(tokens.get(1)) ? bootMs : latencyMs;
+            delay = Math.max(0, (long) (base * (1 + jitter * (2 * faults.nextDouble() - 1))));
+        }
+        if (memuc && roll < hangRate) {
+            hangs.incrementAndGet();
+            return CompletableFuture.supplyAsync(
+                () -> new CommandRunner.CommandResult(command, -1, "", "", timeoutMs, true),
+                CompletableFuture.delayedExecutor(timeoutMs, TimeUnit.MILLISECONDS));
+        }
+        boolean fail = memuc && roll < hangRate + failureRate;
+        long took = delay;
+        // The command takes effect when it completes, like a tap landing at the end of the adb round trip
+        return CompletableFuture.supplyAsync(() -> {
+            if (fail) {
+                failures.incrementAndGet();
+                return new CommandRunner.CommandResult(command, 1, "", "error: device busy", took, false);
+            }
+            CommandRunner.CommandResult result = rules.run(command, timeoutMs).join();
+            if (!result.ok()) {
+                failures.incrementAndGet();
+            }
+            return new CommandRunner.CommandResult(command, result.exitCode, result.stdout, result.stderr, took, false);
+        }, CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    public boolean isAvailable(String executable) {
+        return true;
+    }
+
+    public int size() {
+        return vms.length;
+    }
+
+    public long calls() {
+        return calls.get();
+    }
+
+    public long failures() {
+        return failures.get();
+    }
+
+    public long hangs() {
+        return hangs.get();
+    }
+}
@@ -0,0 +1,333 @@
+package newgame;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only, per-instance journal of what the bot last knew about each VM: its status and pid,
+ * whether the game was confirmed running, and the march queues with their predicted return times.
+ *
+ * Every transition is one JSON line appended to state/journal_&lt;index&gt;.log, so a crash loses at
+ * most the line being written (a torn last line is ignored on replay, and the file is compacted so the
+ * next append starts on a fresh line). After -Dbot.journal.compactAfter
+ * appends (default 500) the file is rewritten as the few lines needed to reproduce the current state.
+ * On startup {@link #recover} replays it, letting tasks resume their schedules without probing from scratch.
+ */
+public class StateJournal {
+    private static final Log log = Log.get(StateJournal.class);
+    public static final String JOURNAL_DIR = "state";
+
+    private static final int COMPACT_AFTER = Integer.getInteger("bot.journal.compactAfter", 500);
+    private static final Gson GSON = new Gson();
+
+    private static final String KIND_VM = "vm";
+    private static final String KIND_GAME = "game";
+    private static final String KIND_MARCHES = "marches";
+
+    public static class MarchRecord {
+        public int queue;
+        public String status;    // MarchDetector.MarchStatus name
+        public long returnsAt;   // epoch ms, -1 if unknown
+        public String resource;
+
+        MarchRecord(int queue, String status, long returnsAt, String resource) {
+            this.queue = queue;
+            this.status = status;
+            this.returnsAt = returnsAt;
+            this.resource = resource;
+        }
+    }
+
+    /**
+     * The state folded from an instance's journal.
+     */
+    public static class InstanceState {
+        public final int index;
+        public String vmStatus;
+        public int pid;
+        public boolean gameRunning;
+        public List<MarchRecord> marches = new ArrayList<>();
+        public long marchesAt;   // when the marches were read
+        public long updatedAt;
+
+        InstanceState(int index) {
+            this.index = index;
+        }
+
+        InstanceState copy() {
+            InstanceState c = new InstanceState(index);
+            c.vmStatus = vmStatus;
+            c.pid = pid;
+            c.gameRunning = gameRunning;
+            c.marches = new ArrayList<>(marches);
+            c.marchesAt = marchesAt;
+            c.updatedAt = updatedAt;
+            return c;
+        }
+
+        /**
+         * True if the journal was written during the VM boot that has this pid, so its game and march
+         * state still apply.
+         */
+        public boolean isSameBoot(int currentPid) {
+            return currentPid > 0 && pid == currentPid && "Running".equals(vmStatus);
+        }
+
+        public boolean hasIdleQueue() {
+            for (MarchRecord m : marches) {
+                if (MarchDetector.MarchStatus.IDLE.name().equals(m.status)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Earliest predicted return of a gathering march, or -1 if none is known.
+         */
+        public long nextReturnAt() {
+            long next = -1;
+            for (MarchRecord m : marches) {
+                if (m.returnsAt > 0 && (next < 0 || m.returnsAt < next)) {
+                    next = m.returnsAt;
+                }
+            }
+            return next;
+        }
+    }
+
+    // One line of the journal; unused fields stay null and are left out
+    private static class Entry {
+        long t;
+        String kind;
+        String status;
+        Integer pid;
+        Boolean running;
+        List<MarchRecord> marches;
+    }
+
+    private static class Journal {
+        final Path path;
+        final InstanceState state;
+        int appends;
+
+        Journal(Path path, InstanceState state) {
+            this.path = path;
+            this.state = state;
+        }
+    }
+
+    private static final Map<Integer, Journal> journals = new ConcurrentHashMap<>();
+
+    /**
+     * What the journal says about an instance; an empty state if it has none.
+     */
+    public static InstanceState recover(int index) {
+        Journal journal = journal(index);
+        synchronized (journal) {
+            return journal.state.copy();
+        }
+    }
+
+    /**
+     * The journaled state if it was written during the VM's current boot (same pid), otherwise null.
+     */
+    public static InstanceState recoverCurrentBoot(int index) {
+        InstanceState state = recover(index);
+        try {
+            InstanceInventory.VmInfo vm = InstanceInventory.find(index);
+            return vm != null && vm.running && state.isSameBoot(vm.pid) ? state : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public static void recordVmStatus(int index, String status, int pid) {
+        Journal journal = journal(index);
+        synchronized (journal) {
+            if (Objects.equals(journal.state.vmStatus, status) && journal.state.pid == pid) {
+                return;
+            }
+            Entry e = entry(KIND_VM);
+            e.status = status;
+            e.pid = pid;
+            append(journal, e);
+        }
+    }
+
+    public static void recordGame(int index, boolean running) {
+        Journal journal = journal(index);
+        synchronized (journal) {
+            if (journal.state.gameRunning == running) {
+                return;
+            }
+            Entry e = entry(KIND_GAME);
+            e.running = running;
+            append(journal, e);
+        }
+    }
+
+    public static void recordMarches(int index, List<MarchDetector.MarchInfo> queues) {
+        Entry e = entry(KIND_MARCHES);
+        e.marches = new ArrayList<>();
+        for (MarchDetector.MarchInfo q : queues) {
+            e.marches.add(new MarchRecord(q.queueNumber, q.status.name(), q.returnsAt, q.resourceInfo));
+        }
+        Journal journal = journal(index);
+        synchronized (journal) {
+            append(journal, e);
+        }
+    }
+
+    /**
+     * Journal every VM status transition the monitor sees.
+     */
+    public static void attach(StatusMonitor monitor) {
+        monitor.addListener(changes -> {
+            for (StatusMonitor.StatusChange change : changes) {
+                if (!change.isRemoved()) {
+                    recordVmStatus(change.index, change.newStatus, change.pid);
+                }
+            }
+        });
+    }
+
+    private static Entry entry(String kind) {
+        Entry e = new Entry();
+        e.t = System.currentTimeMillis();
+        e.kind = kind;
+        return e;
+    }
+
+    private static Journal journal(int index) {
+        return journals.computeIfAbsent(index, i -> {
+            Path path = Paths.get(JOURNAL_DIR, "journal_" + i + ".log");
+            Journal journal = new Journal(path, new InstanceState(i));
+            if (!replay(journal)) {
+                // Appending after a torn line would glue the next entry onto it
+                try {
+                    compact(journal);
+                } catch (IOException e) {
+                    log.at(i).warn("⚠️ Couldn't repair state journal: {}", e.getMessage());
+                }
+            }
+            return journal;
+        });
+    }
+
+    /**
+     * Fold the journal into its state. False if the file ends in a torn or unreadable line.
+     */
+    private static boolean replay(Journal journal) {
+        if (!Files.exists(journal.path)) {
+            return true;
+        }
+        InstanceState state = journal.state;
+        boolean clean = true;
+        try {
+            String text = new String(Files.readAllBytes(journal.path), StandardCharsets.UTF_8);
+            clean = text.isEmpty() || text.endsWith("\n");
+            for (String line : text.split("\n")) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                try {
+                    Entry e = GSON.fromJson(line, Entry.class);
+                    if (e != null && e.kind != null) {
+                        apply(state, e);
+                        journal.appends++;
+                    }
+                } catch (JsonParseException torn) {
+                    // Partial line from a crash mid-append
+                    clean = false;
+                }
+            }
+            log.at(state.index).info("📓 Recovered state from {} journal entries", journal.appends);
+        } catch (IOException e) {
+            log.warn("⚠️ Couldn't replay {}: {}", journal.path, e.getMessage());
+        }
+        return clean;
+    }
+
+    private static void apply(InstanceState state, Entry e) {
+        switch (e.kind) {
+            case KIND_VM:
+                if (state.pid != (e.pid != null ? e.pid : 0)) {
+                    // A new boot invalidates everything we knew about the game
+                    state.gameRunning = false;
+                    state.marches = new ArrayList<>();
+                    state.marchesAt = 0;
+                }
+                state.vmStatus = e.status;
+                state.pid = e.pid != null ? e.pid : 0;
+                break;
+            case KIND_GAME:
+                state.gameRunning = Boolean.TRUE.equals(e.running);
+                break;
+            case KIND_MARCHES:
+                state.marches = e.marches != null ? new ArrayList<>(e.marches) : new ArrayList<>();
+                state.marchesAt = e.t;
+                break;
+            default:
+                return;
+        }
+        state.updatedAt = e.t;
+    }
+
+    // Caller holds the journal's lock
+    private static void append(Journal journal, Entry e) {
+        apply(journal.state, e);
+        try {
+            Files.createDirectories(journal.path.getParent());
+            if (++journal.appends > COMPACT_AFTER) {
+                compact(journal);
+            } else {
+                Files.write(journal.path, (GSON.toJson(e) + "\n").getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+        } catch (IOException ex) {
+            log.at(journal.state.index).warn("⚠️ Couldn't write state journal: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Rewrite the journal as the minimal entries reproducing the current state, via temp file + rename.
+     */
+    private static void compact(Journal journal) throws IOException {
+        InstanceState s = journal.state;
+        List<String> lines = new ArrayList<>();
+
+        Entry vm = entry(KIND_VM);
+        vm.t = s.updatedAt;
+        vm.status = s.vmStatus;
+        vm.pid = s.pid;
+        lines.add(GSON.toJson(vm));
+
+        Entry game = entry(KIND_GAME);
+        game.t = s.updatedAt;
+        game.running = s.gameRunning;
+        lines.add(GSON.toJson(game));
+
+        if (s.marchesAt > 0) {
+            Entry marches = entry(KIND_MARCHES);
+            marches.t = s.marchesAt;
+            marches.marches = s.marches;
+            lines.add(GSON.toJson(marches));
+        }
+
+        Files.createDirectories(journal.path.getParent());
+        Path temp = journal.path.resolveSibling(journal.path.getFileName() + ".tmp");
+        Files.write(temp, lines, StandardCharsets.UTF_8);
+        try {
+            Files.move(temp, journal.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, journal.path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        journal.appends = lines.size();
+    }
+}
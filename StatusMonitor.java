@@ -0,0 +1,131 @@
+package newgame;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background poller that keeps track of every VM's running status.
+ *
+ * Each poll reads the whole fleet with one {@link InstanceInventory} query, diffs it against the previous
+ * snapshot and hands listeners only the VMs whose status changed (or that appeared/disappeared) as one batch.
+ * Listeners are called on the monitor thread - UI listeners must hop to the EDT themselves.
+ */
+public class StatusMonitor {
+    private static final Log log = Log.get(StatusMonitor.class);
+
+    public static class StatusChange {
+        public final int index;
+        public final String name;
+        public final String oldStatus; // null if the VM just appeared
+        public final String newStatus; // null if the VM disappeared
+        public final int pid;          // 0 unless the VM is running
+
+        StatusChange(int index, String name, String oldStatus, String newStatus, int pid) {
+            this.index = index;
+            this.name = name;
+            this.oldStatus = oldStatus;
+            this.newStatus = newStatus;
+            this.pid = pid;
+        }
+
+        public boolean isAdded() {
+            return oldStatus == null;
+        }
+
+        public boolean isRemoved() {
+            return newStatus == null;
+        }
+
+        @Override
+        public String toString() {
+            return "Instance " + index + ": " + oldStatus + " -> " + newStatus;
+        }
+    }
+
+    public interface Listener {
+        void onStatusChanges(List<StatusChange> changes);
+    }
+
+    private final long periodMs;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "StatusMonitor");
+        t.setDaemon(true);
+        return t;
+    });
+    private Map<Integer, InstanceInventory.VmInfo> previous = new HashMap<>(); // only touched on the monitor thread
+    private ScheduledFuture<?> task;
+
+    public StatusMonitor(long periodMs) {
+        this.periodMs = periodMs;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public synchronized void start() {
+        if (task == null) {
+            task = scheduler.scheduleWithFixedDelay(this::poll, 0, periodMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+    }
+
+    /**
+     * Ask for an extra poll as soon as possible, e.g. after a start/stop command.
+     */
+    public void pollNow() {
+        scheduler.execute(this::poll);
+    }
+
+    private void poll() {
+        List<InstanceInventory.VmInfo> current;
+        try {
+            current = InstanceInventory.snapshot();
+        } catch (IOException e) {
+            log.error("Status poll failed: {}", e.getMessage());
+            return;
+        }
+
+        Map<Integer, InstanceInventory.VmInfo> next = new HashMap<>();
+        List<StatusChange> changes = new ArrayList<>();
+        for (InstanceInventory.VmInfo vm : current) {
+            next.put(vm.index, vm);
+            InstanceInventory.VmInfo old = previous.get(vm.index);
+            if (old == null || old.running != vm.running) {
+                changes.add(new StatusChange(vm.index, vm.title, old != null ? old.status() : null, vm.status(), vm.running ? vm.pid : 0));
+            }
+        }
+        for (InstanceInventory.VmInfo old : previous.values()) {
+            if (!next.containsKey(old.index)) {
+                changes.add(new StatusChange(old.index, old.title, old.status(), null, 0));
+            }
+        }
+        previous = next;
+
+        if (!changes.isEmpty()) {
+            for (Listener listener : listeners) {
+                try {
+                    listener.onStatusChanges(Collections.unmodifiableList(changes));
+                } catch (RuntimeException e) {
+                    log.error("Status listener failed", e);
+                }
+            }
+        }
+    }
+}
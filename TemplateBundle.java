@@ -0,0 +1,243 @@
+package newgame;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * All templates packed into one file of pre-decoded 8-bit grayscale pixels plus their metadata.
+ *
+ *   java -cp ... newgame.TemplateBundle [imagesDir] [bundleFile]
+ *
+ * builds the bundle from the PNGs and templates.properties in src/images, which stay the source of truth.
+ * At runtime the file is memory-mapped and every template is a Mat over its slice of the mapping, so
+ * startup decodes nothing and the pixels are shared through the page cache. Each entry records the size
+ * and mtime of its PNG, letting {@link TemplateStore} fall back to the PNG when it has changed since the build.
+ *
+ * Layout (big-endian): magic, version, metadata properties text, entry count, entries
+ * (name, size, mtime, rows, cols, offset), then the pixel data, each image starting on a 64-byte boundary.
+ */
+public class TemplateBundle {
+    private static final Log log = Log.get(TemplateBundle.class);
+    public static final String BUNDLE_FILE = System.getProperty("bot.templates.bundle", "templates.bundle");
+
+    private static final int MAGIC = 0x54504C42; // "TPLB"
+    private static final int VERSION = 1;
+    private static final int ALIGNMENT = 64;
+
+    public static class Entry {
+        public final String name;
+        public final long size;
+        public final long mtime;
+        public final int rows;
+        public final int cols;
+        final long offset;
+
+        Entry(String name, long size, long mtime, int rows, int cols, long offset) {
+            this.name = name;
+            this.size = size;
+            this.mtime = mtime;
+            this.rows = rows;
+            this.cols = cols;
+            this.offset = offset;
+        }
+
+        /**
+         * True if the PNG is the one this entry was built from.
+         */
+        public boolean matches(File png) {
+            return png.length() == size && png.lastModified() == mtime;
+        }
+    }
+
+    private final MappedByteBuffer mapped; // Mats point into this; it must stay reachable while they are used
+    private final Map<String, Entry> entries;
+    private final Properties metadata;
+
+    private TemplateBundle(MappedByteBuffer mapped, Map<String, Entry> entries, Properties metadata) {
+        this.mapped = mapped;
+        this.entries = entries;
+        this.metadata = metadata;
+    }
+
+    /**
+     * Map the bundle, or return null if there is none.
+     */
+    public static TemplateBundle openIfPresent() {
+        Path path = Paths.get(BUNDLE_FILE);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try {
+            return open(path);
+        } catch (IOException e) {
+            log.warn("⚠️ Ignoring unreadable template bundle {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    public static TemplateBundle open(Path path) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // Stays valid after close
+        }
+
+        ByteBuffer header = mapped.duplicate();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("not a version " + VERSION + " template bundle");
+        }
+        Properties metadata = new Properties();
+        metadata.load(new StringReader(readString(header)));
+
+        int count = header.getInt();
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String name = readString(header);
+            long size = header.getLong();
+            long mtime = header.getLong();
+            int rows = header.getInt();
+            int cols = header.getInt();
+            long offset = header.getLong();
+            if (offset + (long) rows * cols > mapped.capacity()) {
+                throw new IOException("entry " + name + " runs past the end of the bundle");
+            }
+            entries.put(name, new Entry(name, size, mtime, rows, cols, offset));
+        }
+        return new TemplateBundle(mapped, entries, metadata);
+    }
+
+    public Entry entry(String name) {
+        return entries.get(name);
+    }
+
+    public Collection<Entry> entries() {
+        return Collections.unmodifiableCollection(entries.values());
+    }
+
+    public Properties metadata() {
+        return metadata;
+    }
+
+    /**
+     * A CV_8UC1 Mat over the entry's pixels in the mapping - no copy, and read-only.
+     */
+    public Mat mat(Entry entry) {
+        ByteBuffer pixels = mapped.duplicate();
+        pixels.position((int) entry.offset);
+        pixels.limit((int) (entry.offset + (long) entry.rows * entry.cols));
+        return new Mat(entry.rows, entry.cols, CvType.CV_8UC1, pixels.slice());
+    }
+
+    public static void main(String[] args) throws IOException {
+        File imagesDir = new File(args.length > 0 ? args[0] : TemplateStore.IMAGES_DIR);
+        Path output = Paths.get(args.length > 1 ? args[1] : BUNDLE_FILE);
+        if (!BotUtils.isOpenCvLoaded()) {
+            log.error("❌ OpenCV is required to build the template bundle");
+            System.exit(1);
+        }
+        build(imagesDir, output);
+    }
+
+    public static void build(File imagesDir, Path output) throws IOException {
+        File[] files = imagesDir.listFiles((dir, name) -> name.toLowerCase().endsWith(".png"));
+        if (files == null) {
+            throw new FileNotFoundException(imagesDir.getPath());
+        }
+        Arrays.sort(files);
+
+        File metadataFile = new File(imagesDir, TemplateStore.METADATA_FILE);
+        String metadata = metadataFile.exists()
+            ? new String(Files.readAllBytes(metadataFile.toPath()), StandardCharsets.ISO_8859_1) : "";
+
+        List<File> sources = new ArrayList<>();
+        List<byte[]> pixels = new ArrayList<>();
+        List<int[]> sizes = new ArrayList<>();
+        for (File file : files) {
+            Mat mat = Imgcodecs.imread(file.getAbsolutePath(), Imgcodecs.IMREAD_GRAYSCALE);
+            if (mat.empty()) {
+                log.warn("⚠️ Skipping {}: OpenCV cannot load it", file.getName());
+                continue;
+            }
+            Mat continuous = mat.isContinuous() ? mat : mat.clone();
+            byte[] data = new byte[mat.rows() * mat.cols()];
+            continuous.get(0, 0, data);
+            sources.add(file);
+            pixels.add(data);
+            sizes.add(new int[]{mat.rows(), mat.cols()});
+            if (continuous != mat) {
+                continuous.release();
+            }
+            mat.release();
+        }
+
+        // Header first, to learn where the pixel data starts
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(headerBytes);
+        header.writeInt(MAGIC);
+        header.writeInt(VERSION);
+        writeString(header, metadata);
+        header.writeInt(sources.size());
+        long headerSize = headerBytes.size();
+        for (File file : sources) {
+            headerSize += 2 + file.getName().getBytes(StandardCharsets.UTF_8).length + 8 + 8 + 4 + 4 + 8;
+        }
+
+        long offset = align(headerSize);
+        for (int i = 0; i < sources.size(); i++) {
+            File file = sources.get(i);
+            writeString(header, file.getName());
+            header.writeLong(file.length());
+            header.writeLong(file.lastModified());
+            header.writeInt(sizes.get(i)[0]);
+            header.writeInt(sizes.get(i)[1]);
+            header.writeLong(offset);
+            offset = align(offset + pixels.get(i).length);
+        }
+        header.flush();
+
+        Path temp = output.toAbsolutePath().resolveSibling(output.getFileName() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+            out.write(headerBytes.toByteArray());
+            long written = headerBytes.size();
+            for (byte[] data : pixels) {
+                written = pad(out, written);
+                out.write(data);
+                written += data.length;
+            }
+        }
+        Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING);
+        log.info("✅ Bundled {} templates into {} ({} bytes)", sources.size(), output, Files.size(output));
+    }
+
+    private static long align(long position) {
+        return (position + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    private static long pad(OutputStream out, long position) throws IOException {
+        long aligned = align(position);
+        for (long i = position; i < aligned; i++) {
+            out.write(0);
+        }
+        return aligned;
+    }
+
+    // Length-prefixed UTF-8; Properties text and names are well under 64KB
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
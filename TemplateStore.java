@@ -0,0 +1,388 @@
+package newgame;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.Rect;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+import java.io.*;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory store of grayscale template Mats, shared by every matcher.
+ *
+ * {@link #loadAll()} runs at startup: new or changed PNGs are hashed and decoded in parallel, straight into
+ * the store. A manifest (state/templates.manifest) remembers size, mtime and SHA-256 of every template that
+ * decoded fine, so on later starts unchanged files skip validation and are only decoded on first use.
+ * If a {@link TemplateBundle} has been built, templates whose PNG is unchanged since the build are taken
+ * from its memory mapping instead, with no decoding at all.
+ *
+ * Per-template matching metadata (threshold, search region, scales) comes from src/images/templates.properties,
+ * or from the copy embedded in the bundle when the PNG directory isn't deployed.
+ * Templates are shared and must not be released by callers.
+ */
+public class TemplateStore {
+    private static final Log log = Log.get(TemplateStore.class);
+    public static final String IMAGES_DIR = "src/images";
+    public static final String MANIFEST_FILE = StateJournal.JOURNAL_DIR + "/templates.manifest";
+    public static final String METADATA_FILE = "templates.properties";
+    public static final double DEFAULT_THRESHOLD = 0.8;
+
+    private static final int LOAD_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private static final Map<String, Mat> templates = new ConcurrentHashMap<>();
+    private static final Map<String, Mat> scaledTemplates = new ConcurrentHashMap<>(); // "name@scale"
+    private static final Map<String, File> known = new ConcurrentHashMap<>(); // validated, decoded on first get()
+    private static final Map<String, TemplateMeta> metas = new ConcurrentHashMap<>();
+    private static volatile Properties metadata = new Properties();
+    private static volatile TemplateBundle bundle; // Keeps the mapping behind bundled Mats alive
+    private static final List<ManagedMat> decoded = new CopyOnWriteArrayList<>(); // Held for life, for accounting
+
+    /**
+     * How a template should be matched.
+     */
+    public static class TemplateMeta {
+        public final double threshold;
+        public final Rect region;     // Search area on the screen, null for the whole screen
+        public final double[] scales; // Template scales to try, best match wins
+
+        TemplateMeta(double threshold, Rect region, double[] scales) {
+            this.threshold = threshold;
+            this.region = region;
+            this.scales = scales;
+        }
+    }
+
+    /**
+     * Startup load results, for the timing report.
+     */
+    public static class LoadReport {
+        public final int total;
+        public final int bundled;
+        public final int validated;
+        public final int unchanged;
+        public final int failed;
+        public final long elapsedMs;
+
+        LoadReport(int total, int bundled, int validated, int unchanged, int failed, long elapsedMs) {
+            this.total = total;
+            this.bundled = bundled;
+            this.validated = validated;
+            this.unchanged = unchanged;
+            this.failed = failed;
+            this.elapsedMs = elapsedMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d templates in %dms (%d bundled, %d validated, %d unchanged, %d failed)",
+                total, elapsedMs, bundled, validated, unchanged, failed);
+        }
+    }
+
+    public static LoadReport loadAll() {
+        long start = System.nanoTime();
+        File imagesDir = new File(IMAGES_DIR);
+        TemplateBundle opened = BotUtils.isOpenCvLoaded() ? TemplateBundle.openIfPresent() : null;
+        bundle = opened;
+        loadMetadata(new File(imagesDir, METADATA_FILE), opened);
+
+        File[] files = imagesDir.listFiles((dir, name) -> name.toLowerCase().endsWith(".png"));
+        if (files == null) {
+            if (opened == null) {
+                log.error("❌ {} directory not found", IMAGES_DIR);
+                return new LoadReport(0, 0, 0, 0, 0, 0);
+            }
+            // Deployed without PNGs: the bundle is all we have
+            for (TemplateBundle.Entry entry : opened.entries()) {
+                templates.put(entry.name, opened.mat(entry));
+            }
+            int count = opened.entries().size();
+            return new LoadReport(count, count, 0, 0, 0, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+
+        Properties manifest = readManifest();
+        Properties updated = new Properties();
+        AtomicInteger bundled = new AtomicInteger();
+        AtomicInteger validated = new AtomicInteger();
+        AtomicInteger unchanged = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(LOAD_THREADS, Math.max(1, files.length)), r -> {
+            Thread t = new Thread(r, "TemplateLoader");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<?>> jobs = new ArrayList<>();
+            for (File file : files) {
+                jobs.add(pool.submit(() -> {
+                    String name = file.getName();
+                    String entry = manifest.getProperty(name);
+                    String stamp = file.length() + "," + file.lastModified();
+
+                    TemplateBundle.Entry packed = opened != null ? opened.entry(name) : null;
+                    if (packed != null && packed.matches(file)) {
+                        templates.put(name, opened.mat(packed));
+                        if (entry != null) {
+                            updated.setProperty(name, entry);
+                        }
+                        bundled.incrementAndGet();
+                        return;
+                    }
+
+                    if (entry != null && entry.startsWith(stamp + ",")) {
+                        known.put(name, file);
+                        updated.setProperty(name, entry);
+                        unchanged.incrementAndGet();
+                        return;
+                    }
+
+                    if (!BotUtils.isOpenCvLoaded()) {
+                        known.put(name, file); // Can't validate without OpenCV, keep whatever the manifest said
+                        if (entry != null) {
+                            updated.setProperty(name, entry);
+                        }
+                        return;
+                    }
+
+                    try {
+                        byte[] bytes = Files.readAllBytes(file.toPath());
+                        String hash = sha256(bytes);
+                        if (entry != null && entry.endsWith("," + hash)) {
+                            // Touched but identical content
+                            known.put(name, file);
+                            updated.setProperty(name, stamp + "," + hash);
+                            unchanged.incrementAndGet();
+                            return;
+                        }
+
+                        Mat mat = decode(bytes);
+                        if (mat.empty()) {
+                            log.error("    ❌ OpenCV cannot load: {}", name);
+                            mat.release();
+                            failed.incrementAndGet();
+                            return;
+                        }
+                        templates.put(name, mat);
+                        decoded.add(ManagedMat.of("templates", mat));
+                        log.debug("    ✅ Loaded template {} ({}x{})", name, mat.cols(), mat.rows());
+                        known.put(name, file);
+                        updated.setProperty(name, stamp + "," + hash);
+                        validated.incrementAndGet();
+                    } catch (IOException e) {
+                        log.error("    ❌ Error loading {}: {}", name, e.getMessage());
+                        failed.incrementAndGet();
+                    }
+                }));
+            }
+            for (Future<?> job : jobs) {
+                job.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.error("Template loading failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        if (!updated.equals(manifest)) {
+            writeManifest(updated);
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return new LoadReport(files.length, bundled.get(), validated.get(), unchanged.get(), failed.get(), elapsedMs);
+    }
+
+    /**
+     * Matching metadata for a template; defaults (threshold {@value #DEFAULT_THRESHOLD}, whole screen, scale 1)
+     * for anything not listed.
+     */
+    public static TemplateMeta meta(String name) {
+        return metas.computeIfAbsent(name, n -> {
+            Properties props = metadata;
+            double threshold = parseDouble(props.getProperty(n + ".threshold",
+                props.getProperty("default.threshold")), DEFAULT_THRESHOLD);
+            Rect region = parseRegion(props.getProperty(n + ".region"));
+            double[] scales = parseScales(props.getProperty(n + ".scales"));
+            return new TemplateMeta(threshold, region, scales);
+        });
+    }
+
+    private static void loadMetadata(File file, TemplateBundle fromBundle) {
+        Properties props = new Properties();
+        if (file.exists()) {
+            try (InputStream in = new FileInputStream(file)) {
+                props.load(in);
+            } catch (IOException e) {
+                log.warn("⚠️ Couldn't read {}: {}", file, e.getMessage());
+            }
+        } else if (fromBundle != null) {
+            props = fromBundle.metadata();
+        }
+        metadata = props;
+        metas.clear();
+    }
+
+    private static double parseDouble(String value, double fallback) {
+        try {
+            return value != null ? Double.parseDouble(value.trim()) : fallback;
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static Rect parseRegion(String value) {
+        if (value == null) {
+            return null;
+        }
+        String[] parts = value.split(",");
+        if (parts.length != 4) {
+            return null;
+        }
+        try {
+            return new Rect(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()),
+                Integer.parseInt(parts[2].trim()), Integer.parseInt(parts[3].trim()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static double[] parseScales(String value) {
+        if (value == null) {
+            return new double[]{1.0};
+        }
+        List<Double> scales = new ArrayList<>();
+        for (String part : value.split(",")) {
+            double scale = parseDouble(part, -1);
+            if (scale > 0) {
+                scales.add(scale);
+            }
+        }
+        return scales.isEmpty() ? new double[]{1.0} : scales.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    /**
+     * Names of every template loaded or known to be loadable, sorted.
+     */
+    public static Set<String> names() {
+        Set<String> names = new TreeSet<>(templates.keySet());
+        names.addAll(known.keySet());
+        return names;
+    }
+
+    /**
+     * Grayscale template by file name, or null if it can't be found or decoded.
+     */
+    public static Mat get(String name) {
+        Mat mat = templates.get(name);
+        if (mat != null) {
+            return mat;
+        }
+        return templates.computeIfAbsent(name, n -> {
+            File file = known.containsKey(n) ? known.get(n) : findImageFile(n);
+            if (file == null) {
+                return null;
+            }
+            Mat loaded = Imgcodecs.imread(file.getAbsolutePath(), Imgcodecs.IMREAD_GRAYSCALE);
+            if (loaded.empty()) {
+                loaded.release();
+                return null;
+            }
+            decoded.add(ManagedMat.of("templates", loaded));
+            return loaded;
+        });
+    }
+
+    /**
+     * A template resized by scale, cached after the first request. Scale 1 is the template itself.
+     */
+    public static Mat scaled(String name, double scale) {
+        Mat template = get(name);
+        if (template == null || scale == 1.0) {
+            return template;
+        }
+        return scaledTemplates.computeIfAbsent(name + "@" + scale, key -> {
+            Mat resized = new Mat();
+            Imgproc.resize(template, resized, new Size(), scale, scale, Imgproc.INTER_AREA);
+            decoded.add(ManagedMat.of("templates", resized));
+            return resized;
+        });
+    }
+
+    public static File findImageFile(String imageName) {
+        // Look in src/images first
+        File srcImagesFile = new File(IMAGES_DIR + "/" + imageName);
+        if (srcImagesFile.exists()) {
+            return srcImagesFile;
+        }
+
+        // Look in current directory
+        File currentDirFile = new File(imageName);
+        if (currentDirFile.exists()) {
+            return currentDirFile;
+        }
+
+        // Look in images subdirectory
+        File imagesSubdirFile = new File("images/" + imageName);
+        if (imagesSubdirFile.exists()) {
+            return imagesSubdirFile;
+        }
+
+        return null;
+    }
+
+    private static Mat decode(byte[] bytes) {
+        MatOfByte buffer = new MatOfByte(bytes);
+        try {
+            return Imgcodecs.imdecode(buffer, Imgcodecs.IMREAD_GRAYSCALE);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    static String sha256(byte[] bytes) {
+        try {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(bytes)) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Properties readManifest() {
+        Properties manifest = new Properties();
+        File file = new File(MANIFEST_FILE);
+        if (file.exists()) {
+            try (InputStream in = new FileInputStream(file)) {
+                manifest.load(in);
+            } catch (IOException e) {
+                log.warn("⚠️ Couldn't read {}, revalidating all templates: {}", MANIFEST_FILE, e.getMessage());
+            }
+        }
+        return manifest;
+    }
+
+    private static void writeManifest(Properties manifest) {
+        try {
+            Path target = Paths.get(MANIFEST_FILE);
+            Files.createDirectories(target.getParent());
+            Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                manifest.store(out, "name=size,mtime,sha256 of templates that decoded successfully");
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.warn("⚠️ Couldn't write {}: {}", MANIFEST_FILE, e.getMessage());
+        }
+    }
+}
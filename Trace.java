@@ -0,0 +1,227 @@
+package newgame;
+
+import com.google.gson.stream.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Span tracing of bot steps, exported in the Chrome trace format (chrome://tracing, ui.perfetto.dev).
+ *
+ *   try (Trace.Span span = Trace.begin(index, "readMarchQueues")) {
+ *       ...
+ *   }
+ *
+ * The span is only there to be closed, which -Xlint:try reports; methods that open one carry
+ * {@code @SuppressWarnings("try")}.
+ *
+ * Each instance shows up as a process and each bot thread as a track, so a slow gather cycle can be split
+ * into capture, matching, OCR, memuc calls and sleeps. Spans begun without an instance inherit it from the
+ * enclosing span on the same thread.
+ *
+ * Off unless -Dbot.trace=true; begin() then returns a shared no-op span and costs one branch. Finished
+ * spans go to a ring of -Dbot.trace.capacity entries (default 65536), oldest overwritten. Export with
+ * {@link #export}, GET /trace[?instance=N] on the metrics port, or -Dbot.trace.file=trace.json to write
+ * the whole fleet on shutdown.
+ */
+public final class Trace {
+    private static final Log log = Log.get(Trace.class);
+
+    public static final boolean ENABLED = Boolean.getBoolean("bot.trace");
+    public static final int FLEET = Metrics.FLEET;
+
+    private static final int CAPACITY = Math.max(1024, Integer.getInteger("bot.trace.capacity", 65536));
+    private static final String EXPORT_FILE = System.getProperty("bot.trace.file");
+
+    private static final AtomicReferenceArray<Span> ring = new AtomicReferenceArray<>(ENABLED ? CAPACITY : 0);
+    private static final AtomicLong written = new AtomicLong();
+    private static final ThreadLocal<Span> current = new ThreadLocal<>();
+    private static final long originNanos = System.nanoTime();
+    private static final long originMicros = System.currentTimeMillis() * 1000;
+
+    private static final Span NOOP = new Span(null, null, FLEET, null);
+
+    static {
+        if (ENABLED && EXPORT_FILE != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    export(Paths.get(EXPORT_FILE), null);
+                    log.info("🧵 Wrote {} spans to {}", Math.min(written.get(), CAPACITY), EXPORT_FILE);
+                } catch (IOException e) {
+                    log.warn("⚠️ Couldn't write trace {}: {}", EXPORT_FILE, e.getMessage());
+                }
+            }, "TraceExport"));
+        }
+    }
+
+    public static final class Span implements AutoCloseable {
+        final String name;
+        final String detail;
+        final int instance;
+        final Span parent;
+        final long threadId;
+        final String threadName;
+        final long startNanos;
+        long endNanos;
+
+        private Span(String name, String detail, int instance, Span parent) {
+            this.name = name;
+            this.detail = detail;
+            this.instance = instance;
+            this.parent = parent;
+            Thread thread = Thread.currentThread();
+            this.threadId = thread.getId();
+            this.threadName = thread.getName();
+            this.startNanos = System.nanoTime();
+        }
+
+        @Override
+        public void close() {
+            if (this == NOOP) {
+                return;
+            }
+            endNanos = System.nanoTime();
+            current.set(parent);
+            ring.set((int) (written.getAndIncrement() % CAPACITY), this);
+        }
+    }
+
+    public static Span begin(int instance, String name) {
+        return ENABLED ? open(instance, name, null) : NOOP;
+    }
+
+    /**
+     * Detail is shown after the name ("memuc adb"); pass the raw value so nothing is built when disabled.
+     */
+    public static Span begin(int instance, String name, Object detail) {
+        return ENABLED ? open(instance, name, detail == null ? null : String.valueOf(detail)) : NOOP;
+    }
+
+    /**
+     * A span on the instance of the enclosing span, for code that doesn't know its instance.
+     */
+    public static Span begin(String name) {
+        return begin(name, null);
+    }
+
+    public static Span begin(String name, Object detail) {
+        if (!ENABLED) {
+            return NOOP;
+        }
+        Span parent = current.get();
+        return open(parent != null ? parent.instance : FLEET, name, detail == null ? null : String.valueOf(detail));
+    }
+
+    private static Span open(int instance, String name, String detail) {
+        Span span = new Span(name, detail, instance, current.get());
+        current.set(span);
+        return span;
+    }
+
+    /**
+     * Write the buffered spans as Chrome trace JSON; instance null for the whole fleet.
+     */
+    public static void export(Path file, Integer instance) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            export(out, instance);
+        }
+    }
+
+    public static void export(Writer out, Integer instance) throws IOException {
+        List<Span> spans = new ArrayList<>();
+        for (int i = 0; i < ring.length(); i++) {
+            Span span = ring.get(i);
+            if (span != null && (instance == null || span.instance == instance)) {
+                spans.add(span);
+            }
+        }
+        spans.sort(Comparator.comparingLong(s -> s.startNanos));
+
+        JsonWriter json = new JsonWriter(out);
+        json.beginObject();
+        json.name("displayTimeUnit").value("ms");
+        json.name("traceEvents").beginArray();
+
+        // Name the processes (instances) and tracks (threads) once each
+        Set<Integer> processes = new TreeSet<>();
+        Map<Long, Span> threads = new LinkedHashMap<>();
+        for (Span span : spans) {
+            processes.add(span.instance);
+            threads.putIfAbsent(((long) span.instance << 32) ^ span.threadId, span);
+        }
+        for (int process : processes) {
+            json.beginObject();
+            json.name("ph").value("M").name("name").value("process_name").name("pid").value(pid(process));
+            json.name("args").beginObject().name("name").value(process == FLEET ? "fleet" : "instance " + process).endObject();
+            json.endObject();
+            json.beginObject();
+            json.name("ph").value("M").name("name").value("process_sort_index").name("pid").value(pid(process));
+            json.name("args").beginObject().name("sort_index").value(pid(process)).endObject();
+            json.endObject();
+        }
+        for (Span span : threads.values()) {
+            json.beginObject();
+            json.name("ph").value("M").name("name").value("thread_name");
+            json.name("pid").value(pid(span.instance)).name("tid").value(span.threadId);
+            json.name("args").beginObject().name("name").value(span.threadName).endObject();
+            json.endObject();
+        }
+
+        for (Span span : spans) {
+            json.beginObject();
+            json.name("name").value(span.detail == null ? span.name : span.name + " " + span.detail);
+            json.name("cat").value(span.name);
+            json.name("ph").value("X");
+            json.name("ts").value(originMicros + (span.startNanos - originNanos) / 1000);
+            json.name("dur").value(Math.max(1, (span.endNanos - span.startNanos) / 1000));
+            json.name("pid").value(pid(span.instance));
+            json.name("tid").value(span.threadId);
+            json.endObject();
+        }
+
+        json.endArray();
+        json.endObject();
+        json.flush();
+    }
+
+    /**
+     * GET /trace or /trace?instance=N, served next to /metrics.
+     */
+    static void handle(HttpExchange exchange) throws IOException {
+        Integer instance = null;
+        String query = exchange.getRequestURI().getQuery();
+        if (query != null && query.startsWith("instance=")) {
+            try {
+                instance = Integer.valueOf(query.substring("instance=".length()));
+            } catch (NumberFormatException e) {
+                exchange.sendResponseHeaders(400, -1);
+                exchange.close();
+                return;
+            }
+        }
+        StringWriter body = new StringWriter();
+        export(body, instance);
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.getResponseHeaders().set("Content-Disposition", "attachment; filename=\"trace"
+            + (instance != null ? "_" + instance : "") + ".json\"");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // Trace viewers want non-negative pids; the fleet sorts first as 0
+    private static int pid(int instance) {
+        return instance + 1;
+    }
+}
@@ -0,0 +1,108 @@
+package newgame;
+
+import org.opencv.core.*;
+import org.opencv.imgcodecs.Imgcodecs;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * Inputs shared by the benchmarks, read relative to the repository root:
+ *
+ *   -Dbench.frames=benchmarks/frames  recorded 480x800 screenshots (copy screenshots/frame_*.png from a run)
+ *   -Dbench.ocr=benchmarks/ocr        OCR text of the march panel (run the bot with -Dbot.ocr.capture=...)
+ *
+ * Without recorded frames a synthetic frame is generated with every template pasted onto noise, so the
+ * suite still runs, but baselines should be taken on real frames.
+ */
+final class BenchFixtures {
+    static final String FRAMES_DIR = System.getProperty("bench.frames", "benchmarks/frames");
+    static final String OCR_DIR = System.getProperty("bench.ocr", "benchmarks/ocr");
+
+    private BenchFixtures() {
+    }
+
+    static void requireOpenCv() {
+        if (!BotUtils.isOpenCvLoaded()) {
+            throw new IllegalStateException("OpenCV native library is required");
+        }
+    }
+
+    /**
+     * Every template TemplateStore can load from src/images (or the bundle), sorted.
+     */
+    static List<String> templates() {
+        TemplateStore.loadAll();
+        List<String> names = new ArrayList<>(TemplateStore.names());
+        if (names.isEmpty()) {
+            throw new IllegalStateException("No templates found in " + TemplateStore.IMAGES_DIR);
+        }
+        return names;
+    }
+
+    /**
+     * Paths of the recorded frames, or of one synthetic frame if there are none.
+     */
+    static List<String> frames(List<String> templates) throws IOException {
+        File[] files = new File(FRAMES_DIR).listFiles((dir, name) -> name.toLowerCase().endsWith(".png"));
+        if (files != null && files.length > 0) {
+            List<String> paths = new ArrayList<>();
+            for (File file : files) {
+                paths.add(file.getPath());
+            }
+            Collections.sort(paths);
+            return paths;
+        }
+        System.err.println("⚠️ No recorded frames in " + FRAMES_DIR + ", using a synthetic frame");
+        return Collections.singletonList(syntheticFrame(templates));
+    }
+
+    private static String syntheticFrame(List<String> templates) throws IOException {
+        Mat screen = new Mat(800, 480, CvType.CV_8UC1);
+        byte[] noise = new byte[800 * 480];
+        new Random(42).nextBytes(noise);
+        screen.put(0, 0, noise);
+
+        // Each template goes where its region says it lives, or down a diagonal
+        int slot = 0;
+        for (String name : templates) {
+            Mat template = TemplateStore.get(name);
+            if (template == null || template.cols() > screen.cols() || template.rows() > screen.rows()) {
+                continue;
+            }
+            Rect region = TemplateStore.meta(name).region;
+            int x = region != null ? region.x : (slot * 37) % (screen.cols() - template.cols() + 1);
+            int y = region != null ? region.y : (slot * 97) % (screen.rows() - template.rows() + 1);
+            x = Math.min(x, screen.cols() - template.cols());
+            y = Math.min(y, screen.rows() - template.rows());
+            Mat target = screen.submat(new Rect(x, y, template.cols(), template.rows()));
+            template.copyTo(target);
+            target.release();
+            slot++;
+        }
+
+        File file = File.createTempFile("bench-frame", ".png");
+        file.deleteOnExit();
+        Imgcodecs.imwrite(file.getPath(), screen);
+        screen.release();
+        return file.getPath();
+    }
+
+    /**
+     * Captured OCR texts, in file name order.
+     */
+    static List<String> ocrTexts() throws IOException {
+        File[] files = new File(OCR_DIR).listFiles((dir, name) -> name.endsWith(".txt"));
+        if (files == null || files.length == 0) {
+            throw new IllegalStateException("No OCR samples in " + OCR_DIR);
+        }
+        Arrays.sort(files);
+        List<String> texts = new ArrayList<>();
+        for (File file : files) {
+            texts.add(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).replace("\r\n", "\n"));
+        }
+        return texts;
+    }
+}
@@ -0,0 +1,58 @@
+package newgame;
+
+import org.openjdk.jmh.annotations.*;
+import java.awt.Point;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BotUtils.findImageOnScreenGrayWithRetry for every template in src/images against the recorded frames
+ * (see {@link BenchFixtures}), with each template's own threshold, region and scales.
+ *
+ *   java -cp <bot classes>:<benchmarks>:jmh-core.jar:opencv.jar:gson.jar -Djava.library.path=<opencv native> \
+ *       org.openjdk.jmh.Main FindImageBenchmark
+ *
+ * matchNext walks every (frame, template) pair, switching frames after each full pass over the templates as
+ * a bot step would; sweepFrame is one frame checked for every template. The match memo is off, or every
+ * operation after the first pass would be a lookup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dbot.memo=false")
+@State(Scope.Thread)
+public class FindImageBenchmark {
+
+    private List<String> templates;
+    private List<String> frames;
+    private int next;
+    private int nextFrame;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchFixtures.requireOpenCv();
+        templates = BenchFixtures.templates();
+        frames = BenchFixtures.frames(templates);
+    }
+
+    @Benchmark
+    public Point matchNext() {
+        int pair = next++ % (frames.size() * templates.size());
+        String frame = frames.get(pair / templates.size());
+        String template = templates.get(pair % templates.size());
+        return BotUtils.findImageOnScreenGrayWithRetry(frame, template, TemplateStore.meta(template).threshold, 0);
+    }
+
+    @Benchmark
+    public int sweepFrame() {
+        String frame = frames.get(nextFrame++ % frames.size());
+        int found = 0;
+        for (String template : templates) {
+            if (BotUtils.findImageOnScreenGrayWithRetry(frame, template, TemplateStore.meta(template).threshold, 0) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+}
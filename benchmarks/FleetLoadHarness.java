@@ -0,0 +1,147 @@
+package newgame;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fleet throughput and resource use against a {@link SimulatedFleet} as the instance count grows:
+ *
+ *   java -cp <bot classes>:<benchmarks>:opencv.jar:gson.jar -Djava.library.path=<opencv native> \
+ *       -Dbench.fleet.sizes=10,50,100,200 -Dbench.fleet.seconds=60 newgame.FleetLoadHarness
+ *
+ * For each size every VM is booted, AutoStartGameTask brings its game up, and then every instance runs
+ * gather cycles back to back for the measured period: setupMarchView and readMarchQueues, the part of
+ * GatherResourcesTask that isn't waiting for marches. "failed" is memuc calls the fleet failed / cycles that
+ * didn't read any queues. bot.sim.* tunes latencies and failure rates. The march panel is drawn from the
+ * simulated queues, so its OCR is only reused while the queues and their timers hold still;
+ * -Dbot.delta=false and -Dbot.memo=false measure without any reuse at all.
+ */
+final class FleetLoadHarness {
+    private static final int[] SIZES = parseSizes(System.getProperty("bench.fleet.sizes", "10,50,100,200"));
+    private static final long SECONDS = Long.getLong("bench.fleet.seconds", 60L);
+    private static final int START_ATTEMPTS = Integer.getInteger("bench.fleet.attempts", 10);
+
+    private FleetLoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        BenchFixtures.requireOpenCv();
+        int largest = 0;
+        for (int size : SIZES) {
+            largest = Math.max(largest, size);
+        }
+        if (System.getProperty("bot.sim.instances") == null) {
+            System.setProperty("bot.sim.instances", String.valueOf(largest));
+        }
+        SimulatedFleet fleet = SimulatedFleet.fromProperties();
+        if (fleet.size() < largest) {
+            throw new IllegalStateException("bot.sim.instances is smaller than the largest size " + largest);
+        }
+        CommandRunner.setBackend(fleet);
+
+        System.out.printf("%9s %6s %8s %8s %8s %10s %9s %9s %9s %9s %6s %8s %8s%n",
+            "instances", "ready", "boot s", "start s", "cycles", "cycles/s", "p50 ms", "p99 ms",
+            "calls/s", "failed", "cpu %", "heap MB", "threads");
+        for (int size : SIZES) {
+            step(fleet, size);
+        }
+        System.exit(0);
+    }
+
+    private static void step(SimulatedFleet fleet, int size) throws InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        com.sun.management.OperatingSystemMXBean os =
+            (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        threads.resetPeakThreadCount();
+
+        // Boot
+        long bootStart = System.nanoTime();
+        List<CompletableFuture<CommandRunner.CommandResult>> starts = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            starts.add(CommandRunner.memucAsync(60000, "start", "-i", String.valueOf(i)));
+        }
+        CompletableFuture.allOf(starts.toArray(new CompletableFuture<?>[0])).join();
+        double bootSeconds = (System.nanoTime() - bootStart) / 1e9;
+
+        // Game start, counting instances whose task saw the game running
+        long gameStart = System.nanoTime();
+        CountDownLatch started = new CountDownLatch(size);
+        AtomicInteger ready = new AtomicInteger();
+        for (int i = 0; i < size; i++) {
+            MemuInstance instance = new MemuInstance(i, "Sim " + i, "Running", "");
+            instance.addListener((previous, current) -> {
+                if (current.state.startsWith("Game running") || current.state.startsWith("Game already running")) {
+                    if (!previous.state.startsWith("Game")) {
+                        ready.incrementAndGet();
+                    }
+                }
+            });
+            new AutoStartGameTask(instance, START_ATTEMPTS, started::countDown).execute();
+        }
+        started.await(10, TimeUnit.MINUTES);
+        double startSeconds = (System.nanoTime() - gameStart) / 1e9;
+
+        // Gather cycles for the measured period
+        LatencyRecorder cycles = new LatencyRecorder();
+        AtomicInteger failedCycles = new AtomicInteger();
+        long callsBefore = fleet.calls();
+        long failuresBefore = fleet.failures();
+        long cpuBefore = os.getProcessCpuTime();
+        long measureStart = System.nanoTime();
+        long deadline = measureStart + TimeUnit.SECONDS.toNanos(SECONDS);
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            int index = i;
+            Thread worker = new Thread(() -> {
+                while (System.nanoTime() < deadline) {
+                    long t = System.nanoTime();
+                    if (MarchDetector.setupMarchView(index) && !MarchDetector.readMarchQueues(index).isEmpty()) {
+                        cycles.recordNanos(System.nanoTime() - t);
+                    } else {
+                        failedCycles.incrementAndGet();
+                    }
+                }
+            }, "LoadWorker-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double measured = (System.nanoTime() - measureStart) / 1e9;
+        double cpu = (os.getProcessCpuTime() - cpuBefore) / 1e9 / measured / os.getAvailableProcessors() * 100;
+        long heapMb = memory.getHeapMemoryUsage().getUsed() >> 20;
+        long calls = fleet.calls() - callsBefore;
+        long failures = fleet.failures() - failuresBefore;
+
+        List<CompletableFuture<CommandRunner.CommandResult>> stops = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            stops.add(CommandRunner.memucAsync(60000, "stop", "-i", String.valueOf(i)));
+        }
+        CompletableFuture.allOf(stops.toArray(new CompletableFuture<?>[0])).join();
+
+        LatencyRecorder.Histogram total = cycles.total();
+        System.out.printf("%9d %6d %8.1f %8.1f %8d %10.2f %9.0f %9.0f %9.1f %9s %6.0f %8d %8d%n",
+            size, ready.get(), bootSeconds, startSeconds, total.count(), total.count() / measured,
+            total.percentileMillis(50), total.percentileMillis(99), calls / measured,
+            failures + "/" + failedCycles.get(), cpu, heapMb, threads.getPeakThreadCount());
+    }
+
+    private static int[] parseSizes(String value) {
+        String[] parts = value.split("\\s*,\\s*");
+        int[] sizes = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            sizes[i] = Integer.parseInt(parts[i]);
+        }
+        return sizes;
+    }
+}
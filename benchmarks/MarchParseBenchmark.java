@@ -0,0 +1,69 @@
+package newgame;
+
+import org.openjdk.jmh.annotations.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The pure-Java half of reading march queues: scoring tesseract output and parsing it, over the captured OCR
+ * texts in benchmarks/ocr (see {@link BenchFixtures}). Each operation processes the whole corpus once.
+ *
+ *   java -cp <bot classes>:<benchmarks>:jmh-core.jar org.openjdk.jmh.Main MarchParseBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MarchParseBenchmark {
+
+    private List<String> texts;
+    private List<List<String>> lines; // Per text, trimmed and non-empty, as parseByLines receives them
+
+    @Setup
+    public void setUp() throws Exception {
+        texts = BenchFixtures.ocrTexts();
+        lines = new ArrayList<>();
+        for (String text : texts) {
+            List<String> clean = new ArrayList<>();
+            for (String line : text.split("\n")) {
+                if (!line.trim().isEmpty()) {
+                    clean.add(line.trim());
+                }
+            }
+            lines.add(clean);
+        }
+    }
+
+    @Benchmark
+    public int parseMarchQueues() {
+        int queues = 0;
+        for (String text : texts) {
+            queues += MarchDetector.parseMarchQueues(text).size();
+        }
+        return queues;
+    }
+
+    @Benchmark
+    public int parseByLines() {
+        int queues = 0;
+        for (List<String> text : lines) {
+            queues += MarchDetector.parseByLines(text, System.currentTimeMillis()).size();
+        }
+        return queues;
+    }
+
+    /**
+     * performSimpleOCR scores four tesseract configurations per panel read.
+     */
+    @Benchmark
+    public int scoreOCRQuality() {
+        int score = 0;
+        for (String text : texts) {
+            score += MarchDetector.scoreOCRQuality(text);
+        }
+        return score;
+    }
+}
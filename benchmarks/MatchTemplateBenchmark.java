@@ -0,0 +1,103 @@
+package newgame;
+
+import org.opencv.core.*;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+import org.openjdk.jmh.annotations.*;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-call allocating template matching (as findImageOnScreenGrayWithRetry used to do it) against the
+ * {@link MatchBuffers} path, on a synthetic 480x800 frame.
+ *
+ *   java -cp <bot classes>:<benchmarks>:jmh-core.jar:opencv.jar -Djava.library.path=<opencv native> \
+ *       org.openjdk.jmh.Main MatchTemplateBenchmark -prof gc
+ *
+ * nativeAllocs is the number of native Mat allocations per operation; -prof gc shows the Java side.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MatchTemplateBenchmark {
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Allocations {
+        public long nativeAllocs;
+    }
+
+    private File screenFile;
+    private File templateFile;
+    private Mat template;
+
+    @Setup
+    public void setUp() throws Exception {
+        if (!BotUtils.isOpenCvLoaded()) {
+            throw new IllegalStateException("OpenCV native library is required");
+        }
+        File dir = Files.createTempDirectory("match-bench").toFile();
+        screenFile = new File(dir, "screen.png");
+        templateFile = new File(dir, "template.png");
+
+        Mat screen = new Mat(800, 480, CvType.CV_8UC1);
+        byte[] noise = new byte[800 * 480];
+        new Random(42).nextBytes(noise);
+        screen.put(0, 0, noise);
+        Imgcodecs.imwrite(screenFile.getPath(), screen);
+
+        Mat crop = screen.submat(new Rect(200, 300, 64, 64)).clone();
+        Imgcodecs.imwrite(templateFile.getPath(), crop);
+        template = Imgcodecs.imread(templateFile.getPath(), Imgcodecs.IMREAD_GRAYSCALE);
+        crop.release();
+        screen.release();
+    }
+
+    @TearDown
+    public void tearDown() {
+        template.release();
+        screenFile.delete();
+        templateFile.delete();
+    }
+
+    @Benchmark
+    public double allocating(Allocations allocs) {
+        Mat tpl = Imgcodecs.imread(templateFile.getPath(), Imgcodecs.IMREAD_GRAYSCALE);
+        Mat screen = Imgcodecs.imread(screenFile.getPath(), Imgcodecs.IMREAD_GRAYSCALE);
+        Mat result = new Mat();
+        Imgproc.matchTemplate(screen, tpl, result, Imgproc.TM_CCOEFF_NORMED);
+        double best = Core.minMaxLoc(result).maxVal;
+        tpl.release();
+        screen.release();
+        result.release();
+        allocs.nativeAllocs += 3;
+        return best;
+    }
+
+    @Benchmark
+    public double buffered(Allocations allocs) {
+        long before = MatchBuffers.allocations();
+        MatchBuffers buffers = MatchBuffers.current();
+        Mat screen = buffers.screen(screenFile.getPath());
+        Mat result = buffers.result(screen.rows() - template.rows() + 1, screen.cols() - template.cols() + 1);
+        Imgproc.matchTemplate(screen, template, result, Imgproc.TM_CCOEFF_NORMED);
+        double best = Core.minMaxLoc(result).maxVal;
+        allocs.nativeAllocs += MatchBuffers.allocations() - before;
+        return best;
+    }
+
+    /**
+     * A new frame every call: the decode still allocates, the result buffer doesn't.
+     */
+    @Benchmark
+    public double bufferedNewFrame(Allocations allocs) {
+        MatchBuffers buffers = MatchBuffers.current();
+        buffers.invalidateScreen();
+        return buffered(allocs);
+    }
+}
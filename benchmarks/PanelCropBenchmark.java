@@ -0,0 +1,59 @@
+package newgame;
+
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.openjdk.jmh.annotations.*;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cutting the march text panel out of a frame: the crop alone on a decoded frame, and
+ * MarchDetector.extractLeftPanel as the bot runs it (decode, crop, encode to screenshots/).
+ *
+ *   java -cp <bot classes>:<benchmarks>:jmh-core.jar:opencv.jar:gson.jar -Djava.library.path=<opencv native> \
+ *       org.openjdk.jmh.Main PanelCropBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PanelCropBenchmark {
+    private static final int BENCH_INSTANCE = 999; // Keeps the panel file away from real instances' files
+
+    private String framePath;
+    private Mat frame;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchFixtures.requireOpenCv();
+        List<String> frames = BenchFixtures.frames(BenchFixtures.templates());
+        framePath = frames.get(0);
+        frame = Imgcodecs.imread(framePath, Imgcodecs.IMREAD_COLOR);
+        BotUtils.createDirectoryIfNeeded(BotUtils.SCREENSHOTS_DIR);
+    }
+
+    @TearDown
+    public void tearDown() {
+        frame.release();
+    }
+
+    /**
+     * The crop with its pixels copied out, as the encoder reads them.
+     */
+    @Benchmark
+    public long crop() {
+        Mat view = MarchDetector.cropTextPanel(frame);
+        Mat copy = view.clone();
+        long bytes = copy.total() * copy.elemSize();
+        copy.release();
+        view.release();
+        return bytes;
+    }
+
+    @Benchmark
+    public String extractLeftPanel() {
+        return MarchDetector.extractLeftPanel(framePath, BENCH_INSTANCE);
+    }
+}
@@ -0,0 +1,88 @@
+package newgame;
+
+import java.awt.Point;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Steps/min of {@link FramePipeline} against a {@link SimulatedFleet}, for the pipelined/sequential comparison:
+ *
+ *   java -cp <bot classes>:<benchmarks>:opencv.jar:gson.jar -Dbot.pipeline=false newgame.PipelineHarness
+ *   java -cp <bot classes>:<benchmarks>:opencv.jar:gson.jar newgame.PipelineHarness
+ *
+ * Every instance loops over one step: take a frame, spend bench.pipeline.analyze ms (default 300) on it in
+ * place of matching and OCR, then either tap and let the screen settle for bench.pipeline.settle ms (default
+ * 1000), or with -Dbench.pipeline.poll=true look again without tapping, prefetching the next frame first.
+ * OpenCV isn't needed; frames aren't delta-hashed without it.
+ */
+final class PipelineHarness {
+    private static final int INSTANCES = Integer.getInteger("bench.pipeline.instances", 4);
+    private static final long SECONDS = Long.getLong("bench.pipeline.seconds", 60L);
+    private static final long ANALYZE_MS = Long.getLong("bench.pipeline.analyze", 300L);
+    private static final long SETTLE_MS = Long.getLong("bench.pipeline.settle", 1000L);
+    private static final boolean POLL = Boolean.getBoolean("bench.pipeline.poll");
+
+    private PipelineHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (System.getProperty("bot.sim.instances") == null) {
+            System.setProperty("bot.sim.instances", String.valueOf(INSTANCES));
+        }
+        SimulatedFleet fleet = SimulatedFleet.fromProperties();
+        CommandRunner.setBackend(fleet);
+        BotUtils.createDirectoryIfNeeded(BotUtils.SCREENSHOTS_DIR);
+
+        List<CompletableFuture<CommandRunner.CommandResult>> starts = new ArrayList<>();
+        for (int i = 0; i < INSTANCES; i++) {
+            starts.add(CommandRunner.memucAsync(60000, "start", "-i", String.valueOf(i)));
+        }
+        CompletableFuture.allOf(starts.toArray(new CompletableFuture<?>[0])).join();
+
+        AtomicLong steps = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(SECONDS);
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < INSTANCES; i++) {
+            FramePipeline pipeline = FramePipeline.forInstance(i);
+            Thread worker = new Thread(() -> {
+                while (System.nanoTime() < deadline) {
+                    try (FramePipeline.Frame frame = pipeline.acquire()) {
+                        if (frame == null) {
+                            failed.incrementAndGet();
+                            continue;
+                        }
+                        if (POLL) {
+                            pipeline.prefetch();
+                        }
+                        if (!BotUtils.delay((int) ANALYZE_MS)) {
+                            return;
+                        }
+                    }
+                    if (!POLL) {
+                        pipeline.tap(new Point(1, 1), SETTLE_MS);
+                    }
+                    steps.incrementAndGet();
+                }
+            }, "PipelineWorker-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double minutes = (System.nanoTime() - start) / 60e9;
+
+        File[] left = new File(BotUtils.SCREENSHOTS_DIR).listFiles((dir, name) -> name.startsWith(FramePipeline.FILE_PREFIX));
+        System.out.printf("%s, %s: %d instances, %.1f steps/min per instance, %d failed captures, %d memuc calls, %d frame files left%n",
+            FramePipeline.PIPELINED ? "pipelined" : "sequential", POLL ? "poll" : "tap", INSTANCES,
+            steps.get() / minutes / INSTANCES, failed.get(), fleet.calls(), left != null ? left.length : 0);
+        System.exit(0);
+    }
+}
@@ -0,0 +1,89 @@
+package newgame;
+
+import org.opencv.core.Rect;
+import java.util.Arrays;
+import java.util.List;
+
+import static newgame.Tests.check;
+import static newgame.Tests.equal;
+
+/**
+ * Block hashes deciding when a result from an earlier frame still holds, and march returns predicted from
+ * the capture a panel was read on.
+ */
+final class FrameDeltaTest {
+    // A 400x648 screen at the 1/8 hashing scale: 7x11 blocks of 64x64 full-size pixels
+    private static final int WIDTH = 50;
+    private static final int HEIGHT = 81;
+
+    private FrameDeltaTest() {
+    }
+
+    public static void main(String[] args) {
+        Tests.run(FrameDeltaTest::run);
+    }
+
+    static void run(Tests t) {
+        t.test("an identical frame keeps every cached result", () -> {
+            FrameDelta first = frame(0, screen(), null);
+            FrameDelta second = frame(0, screen(), first);
+            check(second.unchanged(), "unchanged");
+            check(new FrameDelta.Cached<>(first, null, "whole").validFor(second), "whole frame");
+            check(new FrameDelta.Cached<>(first, new Rect(100, 100, 50, 50), "area").validFor(second), "area");
+        });
+
+        t.test("a change invalidates only results overlapping its block", () -> {
+            FrameDelta first = frame(0, screen(), null);
+            byte[] changed = screen();
+            changed[5 * WIDTH + 5] = (byte) 200; // Reduced (5,5): the block at full-size (0,0)-(63,63)
+            FrameDelta second = frame(0, changed, first);
+            List<Rect> dirty = second.dirtyRegions();
+            equal(1, dirty.size(), "dirty regions");
+            equal(Arrays.asList(0, 0, 64, 64), Arrays.asList(dirty.get(0).x, dirty.get(0).y, dirty.get(0).width, dirty.get(0).height),
+                "dirty block");
+            check(new FrameDelta.Cached<>(first, new Rect(100, 100, 50, 50), "x").validFor(second), "elsewhere still valid");
+            check(!new FrameDelta.Cached<>(first, new Rect(60, 60, 10, 10), "x").validFor(second), "overlapping the corner");
+            check(!new FrameDelta.Cached<>(first, null, "x").validFor(second), "whole frame");
+        });
+
+        t.test("changes within the dropped intensity bits go unseen", () -> {
+            FrameDelta first = frame(0, screen(), null);
+            byte[] faint = screen();
+            faint[5 * WIDTH + 5] = (byte) (faint[5 * WIDTH + 5] + 3); // 112 -> 115, both 14 after >> 3
+            check(new FrameDelta.Cached<>(first, null, "x").validFor(frame(0, faint, first)),
+                "documented limit: not pixel equality");
+        });
+
+        t.test("results don't carry across instances or sizes", () -> {
+            FrameDelta first = frame(0, screen(), null);
+            FrameDelta.Cached<String> cached = new FrameDelta.Cached<>(first, null, "x");
+            check(!cached.validFor(null), "no delta");
+            check(!cached.validFor(frame(1, screen(), null)), "other instance");
+            FrameDelta resized = FrameDelta.fromPixels(0, 2, new byte[60 * 100], 60, 100, first, 0, 0);
+            check(!cached.validFor(resized), "other size");
+            check(resized.dirtyRegions() == null, "no dirty regions against a different size");
+        });
+
+        t.test("march returns count from the capture the panel was read on", () -> {
+            long readAt = 1_000_000L;
+            List<MarchDetector.MarchInfo> queues = MarchDetector.parseMarchQueues(
+                String.join("\n", Arrays.asList("March Queue 1", "Idle", "March Queue 2", "Gathering 01:02:03")), readAt);
+            equal(2, queues.size(), "queues: " + queues);
+            equal(-1L, queues.get(0).returnsAt, "idle has no return");
+            equal(readAt + (3723L * 1000), queues.get(1).returnsAt, "gathering returns remaining time after the read");
+        });
+    }
+
+    private static byte[] screen() {
+        byte[] pixels = new byte[WIDTH * HEIGHT];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = (byte) (16 + (i % 7) * 32);
+        }
+        return pixels;
+    }
+
+    private static FrameDelta frame(int instance, byte[] pixels, FrameDelta previous) {
+        long version = previous != null ? previous.version + 1 : 1;
+        return FrameDelta.fromPixels(instance, version, pixels, WIDTH, HEIGHT, previous, 0, 0);
+    }
+}
@@ -0,0 +1,145 @@
+package newgame;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static newgame.Tests.check;
+import static newgame.Tests.equal;
+import static newgame.Tests.fails;
+
+/**
+ * listvms parsing, and the shared in-flight query across invalidate() and failures.
+ */
+final class InstanceInventoryTest {
+    private InstanceInventoryTest() {
+    }
+
+    public static void main(String[] args) {
+        Tests.run(InstanceInventoryTest::run);
+    }
+
+    static void run(Tests t) {
+        t.test("parses full and short listvms rows", () -> {
+            List<InstanceInventory.VmInfo> vms = InstanceInventory.parse(Arrays.asList(
+                "0,MEmu,132456,1,4321,1073741824",
+                "1,MEmu_1,0,0,0",
+                "2,MEmu_2"));
+            equal(3, vms.size(), "rows");
+            InstanceInventory.VmInfo first = vms.get(0);
+            equal(0, first.index, "index");
+            equal("MEmu", first.title, "title");
+            equal(132456L, first.windowHandle, "window handle");
+            check(first.running, "started flag 1 means running");
+            equal(4321, first.pid, "pid");
+            equal(1073741824L, first.diskUsage, "disk usage");
+            check(!vms.get(1).running, "started flag 0 and no pid means stopped");
+            equal(-1L, vms.get(1).diskUsage, "disk usage when not reported");
+            check(!vms.get(2).running, "index and title only");
+        });
+
+        t.test("a pid means running even without the started flag", () -> {
+            List<InstanceInventory.VmInfo> vms = InstanceInventory.parse(Arrays.asList("3,MEmu_3,0,0,999"));
+            check(vms.get(0).running, "running");
+        });
+
+        t.test("skips blank, malformed and non-numeric rows", () -> {
+            List<InstanceInventory.VmInfo> vms = InstanceInventory.parse(Arrays.asList(
+                "", "garbage", "x,MEmu,0,1,1", " 4 , MEmu_4 , zz ,1, 12 "));
+            equal(1, vms.size(), "rows");
+            equal(4, vms.get(0).index, "index with spaces");
+            equal("MEmu_4", vms.get(0).title, "title trimmed");
+            equal(0L, vms.get(0).windowHandle, "unparsable handle falls back to 0");
+        });
+
+        t.test("refresh doesn't join or cache a query started before invalidate()", () -> {
+            ControlledListvms backend = new ControlledListvms();
+            CommandRunner.Backend previous = CommandRunner.getBackend();
+            CommandRunner.setBackend(backend);
+            try {
+                InstanceInventory.invalidate();
+                CompletableFuture<List<InstanceInventory.VmInfo>> before = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return InstanceInventory.snapshot();
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+                CompletableFuture<CommandRunner.CommandResult> stale = backend.next();
+
+                // The VM is started here; the listvms above may or may not have seen it
+                CompletableFuture<List<InstanceInventory.VmInfo>> after = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return InstanceInventory.refresh();
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+                CompletableFuture<CommandRunner.CommandResult> fresh = backend.next();
+                check(fresh != stale, "refresh issued its own listvms");
+
+                backend.answer(fresh, "0,MEmu,0,1,100");
+                check(after.get(5, TimeUnit.SECONDS).get(0).running, "refresh sees the started VM");
+                backend.answer(stale, "0,MEmu,0,0,0");
+                check(!before.get(5, TimeUnit.SECONDS).get(0).running, "the earlier caller gets its own answer");
+                check(InstanceInventory.snapshot().get(0).running, "the stale answer didn't replace the cache");
+                equal(2, backend.calls, "listvms calls");
+            } finally {
+                CommandRunner.setBackend(previous);
+                InstanceInventory.invalidate();
+            }
+        });
+
+        t.test("a backend exception fails the query instead of leaving it in flight", () -> {
+            CommandRunner.Backend previous = CommandRunner.getBackend();
+            try {
+                CommandRunner.setBackend((command, timeoutMs) -> {
+                    throw new IllegalStateException("backend broke");
+                });
+                InstanceInventory.invalidate();
+                IOException e = fails(IOException.class, InstanceInventory::snapshot);
+                check(String.valueOf(e.getMessage()).contains("backend broke"), "cause reported: " + e.getMessage());
+
+                CountDownLatch answered = new CountDownLatch(1);
+                CommandRunner.setBackend((command, timeoutMs) -> {
+                    answered.countDown();
+                    return CompletableFuture.completedFuture(
+                        new CommandRunner.CommandResult(command, 0, "0,MEmu,0,1,100", "", 1, false));
+                });
+                equal(1, InstanceInventory.snapshot().size(), "next snapshot runs a new query");
+                check(answered.await(0, TimeUnit.SECONDS), "listvms was called again");
+            } finally {
+                CommandRunner.setBackend(previous);
+                InstanceInventory.invalidate();
+            }
+        });
+    }
+
+    // Hands out each listvms call as a future the test answers when it wants to
+    private static final class ControlledListvms implements CommandRunner.Backend {
+        private final LinkedBlockingQueue<CompletableFuture<CommandRunner.CommandResult>> pending = new LinkedBlockingQueue<>();
+        volatile int calls;
+
+        @Override
+        public CompletableFuture<CommandRunner.CommandResult> run(List<String> command, long timeoutMs) {
+            calls++;
+            CompletableFuture<CommandRunner.CommandResult> future = new CompletableFuture<>();
+            pending.add(future);
+            return future;
+        }
+
+        CompletableFuture<CommandRunner.CommandResult> next() throws InterruptedException {
+            CompletableFuture<CommandRunner.CommandResult> future = pending.poll(5, TimeUnit.SECONDS);
+            check(future != null, "listvms was called");
+            return future;
+        }
+
+        void answer(CompletableFuture<CommandRunner.CommandResult> call, String stdout) {
+            call.complete(new CommandRunner.CommandResult(Arrays.asList("memuc", "listvms"), 0, stdout, "", 1, false));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package newgame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static newgame.Tests.check;
+import static newgame.Tests.equal;
+
+/**
+ * Placeholder substitution, and binary logs decoding to the lines the console would have printed.
+ */
+final class LogFormatTest {
+    private LogFormatTest() {
+    }
+
+    public static void main(String[] args) {
+        Tests.run(LogFormatTest::run);
+    }
+
+    static void run(Tests t) {
+        t.test("placeholders are filled in order", () -> {
+            equal("a 1 b two c", Log.format("a {} b {} c", new Object[]{1, "two"}), "two args");
+            equal("x {} y", Log.format("x {} y", new Object[0]), "no args");
+            equal("only 1 then {}", Log.format("only {} then {}", new Object[]{1}), "fewer args than placeholders");
+            equal("v=null", Log.format("v={}", new Object[]{null}), "null arg");
+            equal("no placeholders", Log.format("no placeholders", new Object[]{1, 2}), "extra args ignored");
+            equal("{x} 5", Log.format("{x} {}", new Object[]{5}), "other braces kept");
+        });
+
+        t.test("a binary log decodes to the console lines", () -> {
+            File file = File.createTempFile("bot", ".blog");
+            file.deleteOnExit();
+            long time = 1_700_000_000_123L;
+            Object[][] events = {
+                {"Found template at: ({}, {}) for {}", new Object[]{12, 34, "close_x.png"}},
+                {"Confidence {} (threshold {})", new Object[]{0.8125, 0.8}},
+                {"Pid {} running={} note={}", new Object[]{123456789012L, true, null}},
+                {"Small {} {} and float {}", new Object[]{(short) 7, (byte) 3, 0.1f}},
+                {"Found template at: ({}, {}) for {}", new Object[]{5, 6, "game_icon.png"}},
+            };
+            Log.BinarySink sink = Log.BinarySink.open(file.getPath());
+            for (int i = 0; i < events.length; i++) {
+                sink.write(time + i, Log.Level.INFO, "BotUtils", i, "main", (String) events[i][0], (Object[]) events[i][1], null);
+            }
+            sink.write(time, Log.Level.ERROR, "MarchDetector", 2, "main", "OCR failed: {}",
+                new Object[]{new IllegalStateException("no tesseract")}, null);
+            sink.flush();
+
+            StringBuilder expected = new StringBuilder();
+            for (int i = 0; i < events.length; i++) {
+                expected.append(Log.line(time + i, Log.Level.INFO, "BotUtils", i,
+                    Log.format((String) events[i][0], (Object[]) events[i][1]))).append(System.lineSeparator());
+            }
+            expected.append(Log.line(time, Log.Level.ERROR, "MarchDetector", 2,
+                "OCR failed: java.lang.IllegalStateException: no tesseract")).append(System.lineSeparator());
+
+            String decoded = decode(Files.readAllBytes(file.toPath()), Log.Level.TRACE, null);
+            String[] lines = decoded.split(System.lineSeparator());
+            equal(expected.toString(), String.join(System.lineSeparator(), Arrays.copyOf(lines, events.length + 1))
+                + System.lineSeparator(), "decoded lines");
+            check(decoded.contains("at newgame.LogFormatTest"), "stack trace of the trailing Throwable kept");
+
+            String filtered = decode(Files.readAllBytes(file.toPath()), Log.Level.WARN, null);
+            check(filtered.startsWith(Log.line(time, Log.Level.ERROR, "MarchDetector", 2, "OCR failed")) && !filtered.contains("BotUtils"),
+                "level filter keeps only the error:\n" + filtered);
+            equal(Log.line(time + 4, Log.Level.INFO, "BotUtils", 4, "Found template at: (5, 6) for game_icon.png")
+                + System.lineSeparator(), decode(Files.readAllBytes(file.toPath()), Log.Level.TRACE, 4), "instance filter");
+        });
+
+        t.test("a truncated last record is dropped", () -> {
+            File file = File.createTempFile("bot", ".blog");
+            file.deleteOnExit();
+            Log.BinarySink sink = Log.BinarySink.open(file.getPath());
+            sink.write(1L, Log.Level.INFO, "Main", Log.NO_INSTANCE, "main", "first {}", new Object[]{1}, null);
+            sink.write(2L, Log.Level.INFO, "Main", Log.NO_INSTANCE, "main", "second {}", new Object[]{2}, null);
+            sink.flush();
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            String decoded = decode(Arrays.copyOf(bytes, bytes.length - 3), Log.Level.TRACE, null);
+            equal(Log.line(1L, Log.Level.INFO, "Main", Log.NO_INSTANCE, "first 1") + System.lineSeparator(), decoded,
+                "complete records only");
+        });
+    }
+
+    private static String decode(byte[] log, Log.Level minLevel, Integer instance) throws Exception {
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(text, true, "UTF-8");
+        LogDecoder.decode(new DataInputStream(new ByteArrayInputStream(log)), minLevel, instance, out);
+        out.flush();
+        return new String(text.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
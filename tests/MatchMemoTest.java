@@ -0,0 +1,80 @@
+package newgame;
+
+import java.awt.Point;
+import java.io.File;
+import java.nio.file.Files;
+
+import static newgame.Tests.check;
+import static newgame.Tests.equal;
+
+/**
+ * The match memo's LRU bound and expiry, and the frame fingerprints it is keyed by.
+ */
+final class MatchMemoTest {
+    private MatchMemoTest() {
+    }
+
+    public static void main(String[] args) {
+        Tests.run(MatchMemoTest::run);
+    }
+
+    static void run(Tests t) {
+        t.test("hits and remembered misses are keyed by frame, template and threshold", () -> {
+            MatchMemo memo = new MatchMemo(16, 0);
+            memo.put(MatchMemo.key(1, "close_x.png", 0.8, null), new Point(10, 20), 0.9, 0);
+            memo.put(MatchMemo.key(1, "game_icon.png", 0.8, null), null, 0.65, 0);
+
+            MatchMemo.Entry hit = memo.get(MatchMemo.key(1, "close_x.png", 0.8, null), 0);
+            equal(new Point(10, 20), hit.point, "found point");
+            MatchMemo.Entry miss = memo.get(MatchMemo.key(1, "game_icon.png", 0.8, null), 0);
+            check(miss != null && miss.point == null, "not-found is remembered");
+            equal(0.65, miss.confidence, "with its best score");
+            check(memo.get(MatchMemo.key(2, "close_x.png", 0.8, null), 0) == null, "other frame");
+            check(memo.get(MatchMemo.key(1, "close_x.png", 0.7, null), 0) == null, "other threshold");
+        });
+
+        t.test("the least recently used entry is evicted first", () -> {
+            MatchMemo memo = new MatchMemo(3, 0);
+            for (int frame = 1; frame <= 3; frame++) {
+                memo.put(MatchMemo.key(frame, "t.png", 0.8, null), new Point(frame, frame), 0.9, 0);
+            }
+            check(memo.get(MatchMemo.key(1, "t.png", 0.8, null), 0) != null, "touch frame 1");
+            memo.put(MatchMemo.key(4, "t.png", 0.8, null), new Point(4, 4), 0.9, 0);
+            equal(3, memo.entries(), "bounded");
+            check(memo.get(MatchMemo.key(2, "t.png", 0.8, null), 0) == null, "frame 2 was least recently used");
+            check(memo.get(MatchMemo.key(1, "t.png", 0.8, null), 0) != null, "recently used frame 1 kept");
+            check(memo.get(MatchMemo.key(3, "t.png", 0.8, null), 0) != null, "frame 3 kept");
+            check(memo.get(MatchMemo.key(4, "t.png", 0.8, null), 0) != null, "frame 4 kept");
+        });
+
+        t.test("entries expire after the ttl, and never without one", () -> {
+            MatchMemo expiring = new MatchMemo(16, 1000);
+            MatchMemo.Key key = MatchMemo.key(7, "t.png", 0.8, null);
+            expiring.put(key, new Point(1, 1), 0.9, 5000);
+            check(expiring.get(key, 6000) != null, "at the ttl");
+            check(expiring.get(key, 6001) == null, "past the ttl");
+            equal(0, expiring.entries(), "expired entry dropped");
+
+            MatchMemo forever = new MatchMemo(16, 0);
+            forever.put(key, new Point(1, 1), 0.9, 0);
+            check(forever.get(key, Long.MAX_VALUE) != null, "no ttl");
+        });
+
+        t.test("a rewritten screenshot gets a new fingerprint even with the same size and mtime", () -> {
+            File file = File.createTempFile("screen", ".png");
+            file.deleteOnExit();
+            Files.write(file.toPath(), new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9});
+            long modified = file.lastModified();
+            MatchBuffers buffers = MatchBuffers.current();
+            long before = buffers.fingerprint(file.getPath());
+            equal(before, buffers.fingerprint(file.getPath()), "stable while untouched");
+
+            Files.write(file.toPath(), new byte[]{9, 8, 7, 6, 5, 4, 3, 2, 1});
+            check(file.setLastModified(modified), "mtime restored");
+            MatchBuffers.rewritten(file.getPath());
+            long after = buffers.fingerprint(file.getPath());
+            check(after != before, "fingerprint of the new content");
+            equal(MatchBuffers.fingerprintOf(new byte[]{9, 8, 7, 6, 5, 4, 3, 2, 1}), after, "matches the new bytes");
+        });
+    }
+}
@@ -0,0 +1,89 @@
+package newgame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static newgame.Tests.check;
+import static newgame.Tests.equal;
+
+/**
+ * Snapshot versions and change notifications.
+ */
+final class MemuInstanceTest {
+    private MemuInstanceTest() {
+    }
+
+    public static void main(String[] args) {
+        Tests.run(MemuInstanceTest::run);
+    }
+
+    static void run(Tests t) {
+        t.test("a chained transition is one change", () -> {
+            MemuInstance instance = new MemuInstance(0, "MEmu", "Running", "");
+            instance.setAutoStartGameRunning(true);
+            long before = instance.snapshot().version;
+            List<Long> seen = new ArrayList<>();
+            instance.addListener((previous, current) -> seen.add(current.version - previous.version));
+
+            InstanceSnapshot installed = instance.update(s -> s.withAutoStartGameRunning(false).withState("Gathering resources"));
+            equal(before + 1, installed.version, "version");
+            equal(installed, instance.snapshot(), "installed snapshot is current");
+            equal(Collections.singletonList(1L), seen, "one notification, one version apart");
+        });
+
+        t.test("a no-op transition changes nothing", () -> {
+            MemuInstance instance = new MemuInstance(1, "MEmu_1", "Running", "");
+            InstanceSnapshot before = instance.snapshot();
+            List<InstanceSnapshot> seen = new ArrayList<>();
+            instance.addListener((previous, current) -> seen.add(current));
+            instance.setState(before.state);
+            check(instance.snapshot() == before, "same snapshot");
+            check(seen.isEmpty(), "no notification");
+        });
+
+        t.test("compareAndSet fails against a replaced snapshot", () -> {
+            MemuInstance instance = new MemuInstance(2, "MEmu_2", "Running", "");
+            InstanceSnapshot stale = instance.snapshot();
+            instance.setState("Busy");
+            check(!instance.compareAndSet(stale, stale.withState("Other")), "rejected");
+            equal("Busy", instance.getState(), "state kept");
+        });
+
+        t.test("concurrent changes get distinct consecutive versions", () -> {
+            MemuInstance instance = new MemuInstance(3, "MEmu_3", "Running", "");
+            int threads = 4;
+            int perThread = 500;
+            List<Long> versions = Collections.synchronizedList(new ArrayList<>());
+            instance.addListener((previous, current) -> versions.add(current.version));
+            CountDownLatch go = new CountDownLatch(1);
+            List<Thread> workers = new ArrayList<>();
+            for (int w = 0; w < threads; w++) {
+                int id = w;
+                Thread worker = new Thread(() -> {
+                    try {
+                        go.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < perThread; i++) {
+                        instance.setState("worker " + id + " step " + i);
+                    }
+                });
+                workers.add(worker);
+                worker.start();
+            }
+            go.countDown();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            equal((long) threads * perThread, instance.snapshot().version, "final version");
+            List<Long> sorted = new ArrayList<>(versions);
+            Collections.sort(sorted);
+            for (int i = 0; i < sorted.size(); i++) {
+                equal((long) i + 1, sorted.get(i), "version delivered exactly once");
+            }
+        });
+    }
+}
@@ -0,0 +1,82 @@
+package newgame;
+
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+
+import static newgame.Tests.check;
+import static newgame.Tests.equal;
+
+/**
+ * settings.json round trips through the ModuleState&lt;?&gt; adapter registered in SettingsStore.
+ */
+final class ModuleStateAdapterTest {
+    private ModuleStateAdapterTest() {
+    }
+
+    public static void main(String[] args) {
+        Tests.run(ModuleStateAdapterTest::run);
+    }
+
+    static void run(Tests t) {
+        t.test("typed settings round-trip through SettingsStore's Gson", () -> {
+            MarchDetector.AutoGatherSettings settings = new MarchDetector.AutoGatherSettings();
+            settings.numberOfMarches = 3;
+            settings.marchSettings.add(new MarchDetector.MarchSetting(3, "Iron", 6));
+            Map<Integer, Map<String, ModuleState<?>>> modules = new HashMap<>();
+            Map<String, ModuleState<?>> instance = new HashMap<>();
+            instance.put("Auto Gather Resources", ModuleState.enabled(settings));
+            instance.put("Auto Start Game", ModuleState.disabled());
+            modules.put(2, instance);
+
+            String json = SettingsStore.toJson(modules);
+            check(json.contains("\"type\": \"autoGather\""), "adapter wrote the type discriminator:\n" + json);
+
+            Map<Integer, Map<String, ModuleState<?>>> loaded = SettingsStore.fromJson(new StringReader(json));
+            ModuleState<?> gather = loaded.get(2).get("Auto Gather Resources");
+            check(gather.enabled, "enabled");
+            check(gather.settings instanceof MarchDetector.AutoGatherSettings, "typed settings, got " + gather.settings);
+            MarchDetector.AutoGatherSettings read = (MarchDetector.AutoGatherSettings) gather.settings;
+            equal(3, read.numberOfMarches, "marches");
+            equal(3, read.marchSettings.size(), "march settings");
+            equal("Iron", read.marchSettings.get(2).resourceType, "resource");
+            equal(6, read.marchSettings.get(2).level, "level");
+
+            ModuleState<?> start = loaded.get(2).get("Auto Start Game");
+            check(!start.enabled, "disabled");
+            check(start.settings == null, "no settings");
+            equal(json, SettingsStore.toJson(loaded), "second write is identical");
+        });
+
+        t.test("settings before their type still load", () -> {
+            ModuleState<?> state = readOne("{\"settings\": {\"numberOfMarches\": 4, \"marchSettings\": []},"
+                + " \"enabled\": true, \"type\": \"autoGather\"}");
+            check(state.settings instanceof MarchDetector.AutoGatherSettings, "typed settings");
+            equal(4, ((MarchDetector.AutoGatherSettings) state.settings).numberOfMarches, "marches");
+        });
+
+        t.test("pre-typed files and unknown types load with null settings", () -> {
+            ModuleState<?> legacy = readOne("{\"enabled\": true, \"settings\": \"AutoGatherSettings@1b6d3586\"}");
+            check(legacy.enabled, "enabled kept");
+            check(legacy.settings == null, "legacy toString() dump dropped");
+
+            ModuleState<?> unknown = readOne("{\"enabled\": false, \"type\": \"nope\", \"settings\": {\"a\": 1}, \"extra\": [1]}");
+            check(!unknown.enabled, "enabled kept");
+            check(unknown.settings == null, "unknown type dropped");
+        });
+
+        t.test("settings of an unregistered class aren't saved", () -> {
+            Map<Integer, Map<String, ModuleState<?>>> modules = new HashMap<>();
+            Map<String, ModuleState<?>> instance = new HashMap<>();
+            instance.put("Mystery", ModuleState.enabled(new StringBuilder("not registered")));
+            modules.put(0, instance);
+            ModuleState<?> loaded = SettingsStore.fromJson(new StringReader(SettingsStore.toJson(modules))).get(0).get("Mystery");
+            check(loaded.enabled, "enabled kept");
+            check(loaded.settings == null, "settings left out");
+        });
+    }
+
+    private static ModuleState<?> readOne(String module) {
+        return SettingsStore.fromJson(new StringReader("{\"0\": {\"m\": " + module + "}}")).get(0).get("m");
+    }
+}
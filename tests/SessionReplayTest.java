@@ -0,0 +1,116 @@
+package newgame;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static newgame.Tests.check;
+import static newgame.Tests.equal;
+
+/**
+ * Recorded sessions: readable without close(), tolerant of a torn tail, and replayed with tap matching.
+ */
+final class SessionReplayTest {
+    private SessionReplayTest() {
+    }
+
+    public static void main(String[] args) {
+        Tests.run(SessionReplayTest::run);
+    }
+
+    static void run(Tests t) {
+        t.test("taps match within the tolerance", () -> {
+            List<String> recorded = tap(100, 200);
+            check(ReplayBackend.sameAction(recorded, tap(100, 200)), "same point");
+            check(ReplayBackend.sameAction(recorded, tap(100 + ReplayBackend.TAP_TOLERANCE, 200 - ReplayBackend.TAP_TOLERANCE)),
+                "at the tolerance");
+            check(!ReplayBackend.sameAction(recorded, tap(100 + ReplayBackend.TAP_TOLERANCE + 1, 200)), "x too far");
+            check(!ReplayBackend.sameAction(recorded, tap(100, 200 + ReplayBackend.TAP_TOLERANCE + 1)), "y too far");
+            List<String> key = Arrays.asList("memuc", "adb", "-i", "0", "shell", "input", "keyevent", "4");
+            check(ReplayBackend.sameAction(key, key), "other input compared exactly");
+            check(!ReplayBackend.sameAction(key, Arrays.asList("memuc", "adb", "-i", "0", "shell", "input", "keyevent", "3")),
+                "different key");
+            check(!ReplayBackend.sameAction(recorded, key), "different action");
+        });
+
+        t.test("replay follows the recorded taps and skips an optional one", () -> {
+            Path session = record(false);
+            ReplayBackend replay = ReplayBackend.load(session, 0);
+            equal("A", pull(replay), "first screen");
+            equal("A", pull(replay), "no action, last screen kept");
+            tapOn(replay, 104, 195);
+            equal("B", pull(replay), "near the recorded tap moves on");
+            tapOn(replay, 20, 20);
+            equal("B", pull(replay), "an unrecorded tap changes nothing");
+            tapOn(replay, 401, 99);
+            equal("D", pull(replay), "skipping the optional tap at C lands after the next recorded one");
+        });
+
+        t.test("an unclosed recording replays every call", () -> {
+            Path session = record(false);
+            check(ReplayBackend.load(session, 0).describe().startsWith("7 calls"),
+                "every recorded call is on disk: " + ReplayBackend.load(session, 0).describe());
+        });
+
+        t.test("a recording torn mid-call keeps the calls before it", () -> {
+            Path session = record(true);
+            ReplayBackend replay = ReplayBackend.load(session, 0);
+            check(replay.describe().startsWith("6 calls"), "torn call dropped: " + replay.describe());
+            equal("A", pull(replay), "earlier screens still there");
+        });
+    }
+
+    private static final List<String> SCREENS = Arrays.asList("A", "B", "C", "D");
+
+    // pull A, tap (100,200), pull B, tap (250,300) optional, pull C, tap (400,100), pull D
+    private static Path record(boolean tearLast) throws Exception {
+        File file = File.createTempFile("replay", ".session");
+        file.deleteOnExit();
+        CommandRunner.Backend device = (command, timeoutMs) -> CompletableFuture.completedFuture(
+            new CommandRunner.CommandResult(command, 0, "", "", 5, false));
+        SessionRecorder recorder = SessionRecorder.start(device, file.toPath(), null);
+        int[][] taps = {{100, 200}, {250, 300}, {400, 100}};
+        long before = 0;
+        for (int i = 0; i < SCREENS.size(); i++) {
+            File screen = File.createTempFile("screen", ".png");
+            screen.deleteOnExit();
+            Files.write(screen.toPath(), SCREENS.get(i).getBytes(StandardCharsets.UTF_8));
+            before = file.length();
+            recorder.run(pullCommand(screen), 1000).join();
+            if (i < taps.length) {
+                recorder.run(tap(taps[i][0], taps[i][1]), 1000).join();
+            }
+        }
+        if (tearLast) {
+            long after = file.length();
+            try (java.io.RandomAccessFile torn = new java.io.RandomAccessFile(file, "rw")) {
+                torn.setLength(before + (after - before) / 2);
+            }
+        }
+        return file.toPath();
+    }
+
+    private static String pull(ReplayBackend replay) throws Exception {
+        File target = File.createTempFile("pulled", ".png");
+        target.deleteOnExit();
+        CommandRunner.CommandResult result = replay.run(pullCommand(target), 1000).join();
+        check(result.ok(), "pull answered: " + result.describeFailure());
+        return new String(Files.readAllBytes(target.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private static void tapOn(ReplayBackend replay, int x, int y) {
+        check(replay.run(tap(x, y), 1000).join().ok(), "tap delivered");
+    }
+
+    private static List<String> pullCommand(File local) {
+        return Arrays.asList("memuc", "adb", "-i", "0", "pull", "/sdcard/screen.png", local.getPath());
+    }
+
+    private static List<String> tap(int x, int y) {
+        return Arrays.asList("memuc", "adb", "-i", "0", "shell", "input", "tap", String.valueOf(x), String.valueOf(y));
+    }
+}
@@ -0,0 +1,99 @@
+package newgame;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static newgame.Tests.check;
+import static newgame.Tests.equal;
+
+/**
+ * Journal replay, torn-line recovery and compaction. Writes under state/ in the working directory, using
+ * instance indices no real VM has.
+ */
+final class StateJournalTest {
+    private static final int BASE = 9000;
+
+    private StateJournalTest() {
+    }
+
+    public static void main(String[] args) {
+        Tests.run(StateJournalTest::run);
+    }
+
+    static void run(Tests t) {
+        t.test("replay folds vm, game and march entries", () -> {
+            Path path = write(BASE,
+                "{\"t\":1,\"kind\":\"vm\",\"status\":\"Running\",\"pid\":42}\n"
+                + "{\"t\":2,\"kind\":\"game\",\"running\":true}\n"
+                + "{\"t\":3,\"kind\":\"marches\",\"marches\":[{\"queue\":1,\"status\":\"GATHERING\",\"returnsAt\":5000}]}\n");
+            StateJournal.InstanceState state = StateJournal.recover(BASE);
+            check(state.isSameBoot(42), "same boot");
+            check(state.gameRunning, "game running");
+            equal(5000L, state.nextReturnAt(), "next return");
+            equal(3L, state.marchesAt, "marches time");
+            equal(3, lines(path).size(), "clean file left as is");
+        });
+
+        t.test("a new pid clears the game and marches", () -> {
+            write(BASE + 1,
+                "{\"t\":1,\"kind\":\"vm\",\"status\":\"Running\",\"pid\":42}\n"
+                + "{\"t\":2,\"kind\":\"game\",\"running\":true}\n"
+                + "{\"t\":3,\"kind\":\"vm\",\"status\":\"Running\",\"pid\":43}\n");
+            StateJournal.InstanceState state = StateJournal.recover(BASE + 1);
+            check(!state.gameRunning, "game from the old boot dropped");
+            check(state.isSameBoot(43), "current boot");
+        });
+
+        t.test("a torn last line is dropped and the next append starts a fresh line", () -> {
+            int index = BASE + 2;
+            Path path = write(index,
+                "{\"t\":1,\"kind\":\"vm\",\"status\":\"Running\",\"pid\":42}\n"
+                + "{\"t\":2,\"kind\":\"game\",\"runn");
+            StateJournal.InstanceState state = StateJournal.recover(index);
+            check(state.isSameBoot(42), "entries before the torn line kept");
+            check(!state.gameRunning, "torn entry ignored");
+
+            StateJournal.recordGame(index, true);
+            for (String line : lines(path)) {
+                check(line.startsWith("{") && line.endsWith("}"), "every line is whole: " + line);
+            }
+            StateJournal.InstanceState reread = replayCopy(path, index + 100);
+            check(reread.gameRunning, "append after the repair replays");
+            check(reread.isSameBoot(42), "vm state survived the repair");
+        });
+
+        t.test("compaction keeps the state in a few lines", () -> {
+            int index = BASE + 3;
+            Path path = write(index, "{\"t\":1,\"kind\":\"vm\",\"status\":\"Running\",\"pid\":7}\n");
+            StateJournal.recover(index);
+            for (int i = 0; i < 501; i++) {
+                StateJournal.recordGame(index, i % 2 == 0);
+            }
+            check(lines(path).size() < 10, "compacted, got " + lines(path).size() + " lines");
+            StateJournal.InstanceState reread = replayCopy(path, index + 100);
+            equal(StateJournal.recover(index).gameRunning, reread.gameRunning, "game state");
+            check(reread.isSameBoot(7), "vm state");
+        });
+    }
+
+    private static Path write(int index, String content) throws Exception {
+        Path path = Paths.get(StateJournal.JOURNAL_DIR, "journal_" + index + ".log");
+        Files.createDirectories(path.getParent());
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+        path.toFile().deleteOnExit();
+        return path;
+    }
+
+    private static List<String> lines(Path path) throws Exception {
+        return Files.readAllLines(path, StandardCharsets.UTF_8);
+    }
+
+    // What a restart would recover from this file
+    private static StateJournal.InstanceState replayCopy(Path path, int index) throws Exception {
+        write(index, new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+        return StateJournal.recover(index);
+    }
+}
@@ -0,0 +1,95 @@
+package newgame;
+
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Minimal test runner for the pure parts of the bot; no OpenCV, MEmu or tesseract needed:
+ *
+ *   java -cp <bot classes>:<tests>:gson.jar newgame.Tests                     every suite
+ *   java -cp <bot classes>:<tests>:gson.jar newgame.InstanceInventoryTest     one suite
+ *
+ * A suite is a class with a static run(Tests) method that calls {@link #test} per case. Exits non-zero if
+ * any case failed.
+ */
+final class Tests {
+    private static final String[] SUITES = {
+        "newgame.FrameDeltaTest",
+        "newgame.InstanceInventoryTest",
+        "newgame.LogFormatTest",
+        "newgame.MatchMemoTest",
+        "newgame.MemuInstanceTest",
+        "newgame.ModuleStateAdapterTest",
+        "newgame.SessionReplayTest",
+        "newgame.StateJournalTest",
+    };
+
+    interface Body {
+        void run() throws Exception;
+    }
+
+    private int passed;
+    private int failed;
+
+    private Tests() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Tests tests = new Tests();
+        for (String suite : SUITES) {
+            System.out.println("== " + suite);
+            Class.forName(suite).getDeclaredMethod("run", Tests.class).invoke(null, tests);
+        }
+        tests.finish();
+    }
+
+    /**
+     * Run one suite on its own, from its main().
+     */
+    static void run(Consumer<Tests> suite) {
+        Tests tests = new Tests();
+        suite.accept(tests);
+        tests.finish();
+    }
+
+    void test(String name, Body body) {
+        try {
+            body.run();
+            passed++;
+            System.out.println("  ok    " + name);
+        } catch (Throwable t) {
+            failed++;
+            System.out.println("  FAIL  " + name + ": " + t);
+            t.printStackTrace(System.out);
+        }
+    }
+
+    private void finish() {
+        System.out.println(passed + " passed, " + failed + " failed");
+        System.exit(failed > 0 ? 1 : 0);
+    }
+
+    static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new AssertionError(what);
+        }
+    }
+
+    static void equal(Object expected, Object actual, String what) {
+        if (!Objects.equals(expected, actual)) {
+            throw new AssertionError(what + ": expected <" + expected + "> but was <" + actual + ">");
+        }
+    }
+
+    static <T extends Throwable> T fails(Class<T> type, Body body) {
+        try {
+            body.run();
+        } catch (Throwable t) {
+            if (type.isInstance(t)) {
+                return type.cast(t);
+            }
+            throw new AssertionError("expected " + type.getSimpleName() + " but got " + t, t);
+        }
+        throw new AssertionError("expected " + type.getSimpleName() + " but nothing was thrown");
+    }
+}